@@ -0,0 +1,71 @@
+package com.example.rag.automation;
+
+import com.example.rag.automation.model.Question;
+import com.example.rag.benchmark.SyntheticFr;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo da leitura do guia de coleta.
+ *
+ * - parseAllQuestions: parsing completo do CSV (sem cache e sem o log de carga)
+ * - readAllByIndex: leitura de todas as questões por índice, como no laço do
+ *   RagApplication (guia em cache, apenas verificação de alteração do arquivo)
+ *
+ * Executar: ./gradlew jmh -Pjmh.includes=CsvQuestionReader
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CsvQuestionReaderBenchmark {
+
+    /**
+     * Quantidade de questões no guia (o guia real tem 24).
+     */
+    @Param({"24", "240"})
+    public int rows;
+
+    private Path csvFile;
+    private CsvQuestionReader reader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        csvFile = Files.createTempFile("guia-", ".csv");
+        // Mesmo charset usado pelo FileReader do CsvQuestionReader
+        Files.writeString(csvFile, SyntheticFr.guideCsv(rows), Charset.defaultCharset());
+        reader = new CsvQuestionReader(csvFile.toString());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csvFile);
+    }
+
+    @Benchmark
+    public List<Question> parseAllQuestions() throws IOException {
+        return reader.readQuestions();
+    }
+
+    @Benchmark
+    public void readAllByIndex(Blackhole blackhole) throws IOException {
+        for (int index = 0; index < rows; index++) {
+            blackhole.consume(reader.readQuestionByIndex(index));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.rag.automation;
+
+import com.example.rag.automation.model.Question;
+import com.example.rag.automation.model.TipoQuestao;
+import com.example.rag.benchmark.SyntheticFr;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo do pós-processamento de respostas (AnswerNormalizer) por tipo.
+ *
+ * Cada invocação pós-processa um conjunto de respostas brutas típicas do Gemini
+ * para o tipo (valores em mil/milhão, negativos, texto explicativo, listas de nomes).
+ * normalizeAll mede o reprocessamento em lote de respostas gravadas (BULK_COPIES
+ * cópias do conjunto).
+ *
+ * Executar: ./gradlew jmh -Pjmh.includes=PostProcess
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PostProcessBenchmark {
+
+    @Param
+    public TipoQuestao tipo;
+
+    private QuestionProcessor processor;
+    private Question question;
+    private List<String> rawAnswers;
+    private List<String> bulkRawAnswers;
+
+    private static final int BULK_COPIES = 1_000;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Pós-processamento não usa o motor RAG
+        processor = new QuestionProcessor(null);
+        question = SyntheticFr.question(tipo);
+        rawAnswers = SyntheticFr.rawAnswers(tipo);
+        bulkRawAnswers = new ArrayList<>(rawAnswers.size() * BULK_COPIES);
+        for (int i = 0; i < BULK_COPIES; i++) {
+            bulkRawAnswers.addAll(rawAnswers);
+        }
+    }
+
+    @Benchmark
+    public void postProcessAnswer(Blackhole blackhole) {
+        for (String rawAnswer : rawAnswers) {
+            blackhole.consume(processor.postProcessAnswer(rawAnswer, question));
+        }
+    }
+
+    @Benchmark
+    public List<String> normalizeAll() {
+        return AnswerNormalizer.normalizeAll(bulkRawAnswers, question);
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.rag.benchmark;
+
+import com.example.rag.automation.model.Question;
+import com.example.rag.automation.model.TipoQuestao;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Gerador de dados sintéticos no formato de Formulários de Referência (FR).
+ *
+ * Os benchmarks não dependem de PDFs reais nem de chamadas ao Gemini: os textos,
+ * o guia de coleta e as respostas brutas são gerados de forma determinística
+ * (semente fixa), de modo que os resultados sejam reprodutíveis offline.
+ */
+public final class SyntheticFr {
+
+    private static final long SEED = 42L;
+
+    private static final String[][] SECTIONS = {
+            {"2.1", "Condições financeiras e patrimoniais gerais"},
+            {"2.2", "Resultados operacional e financeiro"},
+            {"5.1", "Descrição do gerenciamento de riscos e riscos de mercado"},
+            {"5.2", "Descrição dos controles internos"},
+            {"7.1", "Principais características dos órgãos de administração e do conselho fiscal"},
+            {"7.3", "Composição e experiência profissional da administração e do conselho fiscal"},
+            {"7.4", "Composição dos comitês"},
+            {"9.1", "Auditores independentes"},
+            {"12.1", "Informações sobre o capital social"},
+    };
+
+    private static final String[] NAMES = {
+            "João Silva", "Maria Santos", "Ana Lima", "Carlos Pereira", "Fernanda Costa",
+            "Ricardo Almeida", "Patrícia Rocha", "Eduardo Martins", "Juliana Ribeiro", "Marcelo Carvalho",
+    };
+
+    private static final String[] ROLES = {
+            "Presidente do Conselho de Administração", "Conselheiro Independente", "Conselheiro Efetivo",
+            "Membro do Comitê de Auditoria", "Diretor Presidente", "Diretor Financeiro",
+    };
+
+    private static final String[] SENTENCES = {
+            "A Companhia apresentou no exercício social encerrado em 31 de dezembro condições financeiras adequadas para cumprir suas obrigações de curto e médio prazo.",
+            "Os diretores entendem que o capital de giro é suficiente para as atuais exigências e que os recursos de caixa serão suficientes para atender ao financiamento de suas atividades.",
+            "A política de gerenciamento de riscos foi aprovada pelo Conselho de Administração e é revisada anualmente pela área de auditoria interna.",
+            "Não foram identificadas deficiências significativas nos controles internos no relatório circunstanciado emitido pelos auditores independentes.",
+            "O Comitê de Auditoria é um órgão de assessoramento vinculado ao Conselho de Administração, com autonomia operacional e orçamento próprio.",
+            "A remuneração dos auditores independentes refere-se a serviços de auditoria das demonstrações financeiras individuais e consolidadas.",
+            "As informações financeiras foram elaboradas de acordo com as práticas contábeis adotadas no Brasil e com as normas internacionais de relatório financeiro (IFRS).",
+    };
+
+    private SyntheticFr() {
+    }
+
+    /**
+     * Gera o texto de um FR sintético.
+     *
+     * Cada "página" contém um título de seção numerada, parágrafos em português,
+     * uma tabela financeira e uma lista de administradores, como no texto extraído
+     * pelo Apache Tika de um FR real.
+     *
+     * @param pages Quantidade de páginas (~2.500 caracteres cada)
+     * @return Texto completo do documento
+     */
+    public static String report(int pages) {
+        Random random = new Random(SEED);
+        StringBuilder sb = new StringBuilder(pages * 2600);
+        for (int page = 0; page < pages; page++) {
+            String[] section = SECTIONS[page % SECTIONS.length];
+            sb.append(section[0]).append(" - ").append(section[1]).append("\n\n");
+            sb.append(paragraph(random, 4)).append("\n\n");
+            appendFinancialTable(sb, random);
+            sb.append('\n');
+            sb.append((char) ('a' + page % 8)).append(") ").append(paragraph(random, 3)).append("\n\n");
+            appendBoardTable(sb, random);
+            sb.append("\nPágina ").append(page + 1).append("\n\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Gera um chunk curto (~1 parágrafo + tabela), usado para popular stores de teste.
+     *
+     * @param index Índice do chunk (define a semente)
+     * @return Texto do chunk
+     */
+    public static String chunk(int index) {
+        Random random = new Random(SEED + index);
+        StringBuilder sb = new StringBuilder(1200);
+        String[] section = SECTIONS[index % SECTIONS.length];
+        sb.append(section[0]).append(" - ").append(section[1]).append("\n\n");
+        sb.append(paragraph(random, 3)).append("\n\n");
+        appendFinancialTable(sb, random);
+        return sb.toString();
+    }
+
+    /**
+     * Gera o conteúdo de um "Guia de Coleta.csv" sintético.
+     *
+     * Inclui células entre aspas com aspas escapadas ("") e quebras de linha,
+     * como no guia real.
+     *
+     * @param rows Quantidade de questões
+     * @return Conteúdo do CSV (com cabeçalho)
+     */
+    public static String guideCsv(int rows) {
+        TipoQuestao[] tipos = TipoQuestao.values();
+        StringBuilder sb = new StringBuilder(rows * 400);
+        sb.append("Nº;Dificuldade;Questão;Onde?;Como Preencher?;OBSERVAÇÕES;Tipo;Palavras-chave RAG\n");
+        for (int i = 0; i < rows; i++) {
+            String[] section = SECTIONS[i % SECTIONS.length];
+            sb.append(i + 2).append(";Médio;Qual é o valor do item ").append(i).append(" da empresa?;")
+                    .append(section[0]).append(", item h, ").append(section[1]).append(';')
+                    .append("\"COPIAR o valor do \"\"Lucro Líquido\"\".\nAtentar-se para a necessidade de multiplicar por mil\";")
+                    .append("Campo aberto, preencher com número.;")
+                    .append(tipos[i % tipos.length]).append(';')
+                    .append("item h, demonstrações financeiras, R$, mil, exercício, 31/12\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param tipo Tipo da questão
+     * @return Questão sintética do tipo informado
+     */
+    public static Question question(TipoQuestao tipo) {
+        Question question = new Question();
+        question.setNumero(tipo == TipoQuestao.MULTIPLA_ESCOLHA ? 47 : 2);
+        question.setDificuldade("Médio");
+        question.setQuestao("Questão sintética do tipo " + tipo);
+        question.setOnde("2.1, item h, Condições financeiras e patrimoniais");
+        question.setComoPreencher("Conforme o guia");
+        question.setObservacoes("");
+        question.setTipo(tipo);
+        question.setPalavrasChaveRag("");
+        return question;
+    }
+
+    /**
+     * Respostas brutas típicas do Gemini para cada tipo de questão
+     * (com e sem texto explicativo, valores em mil/milhão, negativos etc.).
+     *
+     * @param tipo Tipo da questão
+     * @return Respostas brutas a pós-processar
+     */
+    public static List<String> rawAnswers(TipoQuestao tipo) {
+        return switch (tipo) {
+            case MONETARIA -> List.of(
+                    "4.872.707 (em R$ mil)",
+                    "O lucro líquido foi de R$ (1.234,5) milhões no exercício de 2024.",
+                    "-523.114",
+                    "R$ 12,7 bilhões");
+            case SIM_NAO -> List.of(
+                    "SIM",
+                    "Não. A Companhia não possui conselho fiscal instalado.",
+                    "NÃO DIVULGADO",
+                    "Sim, a política foi aprovada em 2023.");
+            case CONTAGEM -> List.of(
+                    "9 (João Silva, Maria Santos, Ana Lima, Carlos Pereira, Fernanda Costa, Ricardo Almeida, Patrícia Rocha, Eduardo Martins, Juliana Ribeiro)",
+                    "2 (Maria Santos, Ana Lima)",
+                    "0",
+                    "Foram identificados 3 conselheiros independentes: João Silva, Ana Lima e Marcelo Carvalho.");
+            case TEXTO_ESPECIFICO -> List.of(
+                    "KPMG Auditores Independentes Ltda.",
+                    "A firma de auditoria independente é a Deloitte Touche Tohmatsu.",
+                    "**PwC**",
+                    "INFORMAÇÃO NÃO ENCONTRADA");
+            case MULTIPLA_ESCOLHA -> List.of(
+                    "Sim, houve casos de desvios",
+                    "Não houve casos",
+                    "NÃO DIVULGADO",
+                    "A resposta é: Não houve casos de desvios, fraudes ou irregularidades.");
+        };
+    }
+
+    private static String paragraph(Random random, int sentences) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < sentences; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(SENTENCES[random.nextInt(SENTENCES.length)]);
+        }
+        return sb.toString();
+    }
+
+    private static void appendFinancialTable(StringBuilder sb, Random random) {
+        sb.append("(Em R$ mil) 31/12/2024 31/12/2023 31/12/2022\n");
+        for (String line : List.of("Receita operacional líquida", "Lucro bruto", "EBITDA", "Lucro líquido do exercício")) {
+            sb.append(line);
+            for (int year = 0; year < 3; year++) {
+                sb.append(' ').append(String.format(Locale.ROOT, "%,d", random.nextInt(9_000_000) - 500_000).replace(',', '.'));
+            }
+            sb.append('\n');
+        }
+    }
+
+    private static void appendBoardTable(StringBuilder sb, Random random) {
+        sb.append("Nome Cargo Data da eleição Prazo do mandato\n");
+        int members = 3 + random.nextInt(5);
+        for (int i = 0; i < members; i++) {
+            sb.append(NAMES[random.nextInt(NAMES.length)]).append(' ')
+                    .append(ROLES[random.nextInt(ROLES.length)]).append(' ')
+                    .append(String.format(Locale.ROOT, "%02d/%02d/2024", 1 + random.nextInt(28), 1 + random.nextInt(12)))
+                    .append(" 2 anos\n");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.rag.indexer;
+
+import com.example.rag.benchmark.SyntheticFr;
+import com.example.rag.config.Config;
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vazão da indexação (chunking + embeddings + gravação no MappedEmbeddingStore).
+ *
+ * Usa um FR sintético em memória (sem Apache Tika), isolando o custo das etapas 3 a 5
+ * do DocumentIndexer. O benchmark "chunking" mede apenas a divisão em segmentos,
+ * para separar o custo do splitter do custo do modelo ONNX.
+ *
+ * O benchmark "concurrentIndexing" indexa vários documentos ao mesmo tempo, como o
+ * pipeline paralelo, para comparar valores de EMBEDDING_PARALLELISM sob concorrência
+ * (o paralelismo efetivo é limitado a núcleos / INDEXING_THREADS).
+ *
+ * Executar: ./gradlew jmh -Pjmh.includes=DocumentIndexer
+ * Comparar o paralelismo: EMBEDDING_PARALLELISM=4 BATCH_PARALLEL_ENABLED=true INDEXING_THREADS=4 ./gradlew jmh ...
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+public class DocumentIndexerBenchmark {
+
+    /**
+     * Tamanho do documento em páginas (~2.500 caracteres por página).
+     */
+    @Param({"20", "100"})
+    public int pages;
+
+    private EmbeddingModel embeddingModel;
+    private Document document;
+
+    // Indexadores da iteração (índices temporários apagados fora da medição)
+    private final Queue<DocumentIndexer> indexers = new ConcurrentLinkedQueue<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        embeddingModel = EmbeddingModelProvider.get();
+        document = Document.from(SyntheticFr.report(pages));
+    }
+
+    @TearDown(Level.Iteration)
+    public void releaseIndexes() {
+        DocumentIndexer indexer;
+        while ((indexer = indexers.poll()) != null) {
+            indexer.release();
+        }
+    }
+
+    @Benchmark
+    public List<TextSegment> chunking() {
+        return DocumentSplitters.recursive(Config.MAX_SEGMENT_SIZE_IN_TOKENS, Config.SEGMENT_OVERLAP_IN_TOKENS)
+                .split(document);
+    }
+
+    @Benchmark
+    public EmbeddingStore<TextSegment> chunkingAndEmbedding() {
+        DocumentIndexer indexer = new DocumentIndexer(embeddingModel);
+        indexer.indexDocument(document);
+        indexers.add(indexer);
+        return indexer.getEmbeddingStore();
+    }
+
+    /**
+     * Indexadores simultâneos (threads do pipeline paralelo).
+     */
+    @State(Scope.Benchmark)
+    public static class Concurrency {
+        @Param({"1", "4"})
+        public int indexers;
+    }
+
+    @Benchmark
+    public List<EmbeddingStore<TextSegment>> concurrentIndexing(Concurrency concurrency) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency.indexers);
+        try {
+            List<Future<EmbeddingStore<TextSegment>>> results = new ArrayList<>();
+            for (int i = 0; i < concurrency.indexers; i++) {
+                results.add(pool.submit(() -> {
+                    DocumentIndexer indexer = new DocumentIndexer(embeddingModel);
+                    indexer.indexDocument(document);
+                    indexers.add(indexer);
+                    return indexer.getEmbeddingStore();
+                }));
+            }
+            List<EmbeddingStore<TextSegment>> stores = new ArrayList<>();
+            for (Future<EmbeddingStore<TextSegment>> result : results) {
+                stores.add(result.get());
+            }
+            return stores;
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
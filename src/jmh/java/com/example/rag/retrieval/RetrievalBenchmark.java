@@ -0,0 +1,131 @@
+package com.example.rag.retrieval;
+
+import com.example.rag.benchmark.SyntheticFr;
+import com.example.rag.config.Config;
+import com.example.rag.indexer.EmbeddingModelProvider;
+import com.example.rag.store.Bm25Index;
+import com.example.rag.store.MappedEmbeddingStore;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latência do retrieval (embedding da query + busca) em função do tamanho do store.
+ *
+ * O store é populado com vetores derivados de embeddings reais de chunks sintéticos
+ * (com ruído gaussiano), de modo que os scores fiquem na faixa de um FR real e
+ * passem pelo MIN_SCORE_FOR_RETRIEVAL. Vetorizar dezenas de milhares de chunks
+ * com o modelo ONNX deixaria o setup lento demais.
+ *
+ * - retrieveOnly: caminho completo usado pelo QuestionProcessor (somente vetorial),
+ *   sem a listagem dos matches no console feita por retrieve()
+ * - retrieveHybrid: idem, com busca híbrida (BM25 + vetorial, RRF)
+ * - storeSearch: somente a varredura do MappedEmbeddingStore (query já vetorizada)
+ * - lexicalSearch: somente a busca no índice BM25
+ *
+ * Executar: ./gradlew jmh -Pjmh.includes=Retrieval
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RetrievalBenchmark {
+
+    // Chunks vetorizados de verdade; os demais são variações com ruído
+    private static final int BASE_CHUNKS = 64;
+    private static final double NOISE = 0.02;
+
+    private static final String QUERY =
+            "Qual é a receita líquida da empresa? 2.1, item h, Receita operacional líquida, R$, mil";
+
+    /**
+     * Quantidade de chunks no store (um FR típico tem algumas centenas).
+     */
+    @Param({"500", "5000", "50000"})
+    public int storeSize;
+
+    private MappedEmbeddingStore store;
+    private Bm25Index lexicalIndex;
+    private RagQueryEngine engine;
+    private RagQueryEngine hybridEngine;
+    private EmbeddingSearchRequest searchRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        EmbeddingModel embeddingModel = EmbeddingModelProvider.get();
+
+        List<TextSegment> baseSegments = new ArrayList<>();
+        for (int i = 0; i < BASE_CHUNKS; i++) {
+            baseSegments.add(TextSegment.from(SyntheticFr.chunk(i)));
+        }
+        List<Embedding> baseEmbeddings = embeddingModel.embedAll(baseSegments).content();
+
+        Random random = new Random(42);
+        store = MappedEmbeddingStore.createTemporary();
+        List<Embedding> embeddings = new ArrayList<>(storeSize);
+        List<TextSegment> segments = new ArrayList<>(storeSize);
+        for (int i = 0; i < storeSize; i++) {
+            float[] base = baseEmbeddings.get(i % BASE_CHUNKS).vector();
+            float[] vector = new float[base.length];
+            for (int d = 0; d < base.length; d++) {
+                vector[d] = base[d] + (float) (random.nextGaussian() * NOISE);
+            }
+            embeddings.add(Embedding.from(vector));
+            segments.add(baseSegments.get(i % BASE_CHUNKS));
+        }
+        store.addAll(embeddings, segments);
+        store.close();
+
+        lexicalIndex = Bm25Index.build(store);
+        engine = new RagQueryEngine(store, embeddingModel);
+        hybridEngine = new RagQueryEngine(store, embeddingModel, lexicalIndex);
+        searchRequest = EmbeddingSearchRequest.builder()
+                .queryEmbedding(embeddingModel.embed(QUERY).content())
+                .maxResults(Config.MAX_RESULTS_FOR_RETRIEVAL)
+                .minScore(Config.MIN_SCORE_FOR_RETRIEVAL)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.release();
+    }
+
+    @Benchmark
+    public List<EmbeddingMatch<TextSegment>> retrieveOnly() {
+        return engine.search(QUERY, null).matches();
+    }
+
+    @Benchmark
+    public List<EmbeddingMatch<TextSegment>> retrieveHybrid() {
+        return hybridEngine.search(QUERY, null).matches();
+    }
+
+    @Benchmark
+    public EmbeddingSearchResult<TextSegment> storeSearch() {
+        return store.search(searchRequest);
+    }
+
+    @Benchmark
+    public List<Bm25Index.Hit> lexicalSearch() {
+        return lexicalIndex.search(QUERY, Config.MAX_RESULTS_FOR_RETRIEVAL, null);
+    }
+}
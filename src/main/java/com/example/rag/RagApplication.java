@@ -2,16 +2,32 @@ package com.example.rag;
 
 import com.example.rag.config.Config;
 import com.example.rag.indexer.DocumentIndexer;
+import com.example.rag.indexer.EmbeddingModelProvider;
+import com.example.rag.output.ArrowResultSink;
+import com.example.rag.output.CompositeResultSink;
+import com.example.rag.output.CsvResultSink;
+import com.example.rag.output.ResultSink;
+import com.example.rag.pipeline.BatchPipeline;
 import com.example.rag.retrieval.RagQueryEngine;
+import com.example.rag.retrieval.ResponseCache;
 import java.io.File;
-import java.io.PrintWriter;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import com.example.rag.automation.AnswerNormalizer;
+import com.example.rag.automation.CheckpointJournal;
 import com.example.rag.automation.QuestionProcessor;
 import com.example.rag.automation.CsvQuestionReader;
+import com.example.rag.automation.model.AnswerLayout;
+import com.example.rag.automation.model.AnswerTrace;
 import com.example.rag.automation.model.CompanyResponse;
 import com.example.rag.automation.model.Question;
+import dev.langchain4j.model.embedding.EmbeddingModel;
 
 /**
  * Sistema de Processamento Automatizado de Formulários de Referência (FR).
@@ -26,7 +42,7 @@ import com.example.rag.automation.model.Question;
  * ├── 1.2 Extrair texto (Apache Tika)
  * ├── 1.3 Dividir em chunks (2000 tokens, overlap 600)
  * ├── 1.4 Gerar embeddings para cada chunk (AllMiniLmL6V2)
- * └── 1.5 Armazenar em banco vetorial em memória
+ * └── 1.5 Armazenar em banco vetorial (arquivo mapeado em memória, com cache em disco)
  * 
  * FASE 2: PROCESSAMENTO DE QUESTÕES
  * ├── 2.1 Ler questões do arquivo "Guia de Coleta.csv"
@@ -73,7 +89,7 @@ import com.example.rag.automation.model.Question;
  * 
  * ARQUIVOS:
  * - Input: data/report/*.pdf + Guia de Coleta.csv
- * - Output: output/respostas.csv
+ * - Output: output/respostas.csv (+ output/respostas.arrow com COLUMNAR_OUTPUT_ENABLED)
  * 
  * PERFORMANCE:
  * - Indexação: ~10 segundos para 200 páginas (chunks maiores)
@@ -82,6 +98,12 @@ import com.example.rag.automation.model.Question;
  */
 public class RagApplication {
     
+    private static final String OUTPUT_FILE = "output/respostas.csv";
+    private static final String COLUMNAR_OUTPUT_FILE = "output/respostas.arrow";
+    
+    // Questões do guia processadas por empresa (as primeiras do guia)
+    private static final int QUESTIONS_TO_PROCESS = 5;
+    
     /**
      * Método principal da aplicação.
      * 
@@ -95,7 +117,7 @@ public class RagApplication {
      *     - Extrai texto (Apache Tika)
      *     - Divide em chunks (segmentação)
      *     - Gera embeddings para cada chunk
-     *     - Armazena em banco vetorial em memória
+     *     - Armazena em banco vetorial mapeado em memória (ou recarrega do cache)
      * 
      * FASE 2: PROCESSAMENTO DE QUESTÕES
      * 2.1 Lê questões do arquivo "Guia de Coleta.csv"
@@ -107,7 +129,21 @@ public class RagApplication {
      *     - Pós-processar resposta
      * 2.3 Salva respostas em output/respostas.csv
      * 
-     * @param args Argumentos de linha de comando (opcional: substring do PDF a processar)
+     * CHECKPOINT E RETOMADA:
+     * Cada resposta é registrada em output/checkpoint.log (a cada CHECKPOINT_INTERVAL
+     * respostas). Com --resume, empresas concluídas são reescritas a partir do diário
+     * sem reindexação, e nas demais apenas as questões pendentes são processadas.
+     * Questões que falharam (ex: cota do Gemini esgotada) não são registradas e a
+     * empresa fica pendente até que todas sejam respondidas.
+     * 
+     * REPROCESSAMENTO (--renormalize):
+     * O diário também guarda a resposta bruta do Gemini de cada questão. Com
+     * --renormalize, as regras atuais de pós-processamento são reaplicadas a essas
+     * respostas e o output/respostas.csv é reescrito, sem Gemini e sem indexação.
+     * 
+     * @param args Argumentos de linha de comando (opcional: substring do PDF a processar;
+     *             --resume para retomar uma execução interrompida;
+     *             --renormalize para reaplicar o pós-processamento às respostas gravadas)
      */
     public static void main(String[] args) {
         // =====================
@@ -117,6 +153,12 @@ public class RagApplication {
         Config.printConfig(); // Passo 1.2: Carrega configurações
 
         try {
+            if (List.of(args).contains("--renormalize")) {
+                // Sem Gemini e sem indexação: só o pós-processamento das respostas gravadas
+                renormalize();
+                return;
+            }
+
             // Passo 1.3: Listar todos os PDFs na pasta data/report
             File folder = new File(Config.DATA_FOLDER);
             File[] pdfFiles = folder.listFiles((dir, name) -> name.toLowerCase().endsWith(".pdf"));
@@ -126,103 +168,406 @@ public class RagApplication {
             }
 
             // Permitir rodar apenas um PDF específico via argumento
+            // e retomar uma execução interrompida com --resume
             String pdfToProcess = null;
-            if (args.length > 0) {
-                pdfToProcess = args[0];
+            boolean resume = false;
+            for (String arg : args) {
+                if (arg.equals("--resume")) {
+                    resume = true;
+                } else if (pdfToProcess == null) {
+                    pdfToProcess = arg;
+                }
             }
 
+            // Colunas do CSV: uma por questão do guia de coleta
+            AnswerLayout layout = AnswerLayout.fromQuestions(new CsvQuestionReader().readAllQuestions());
+
+            // Modelo de embeddings carregado uma única vez e compartilhado por todos os PDFs
+            long startupBegin = System.currentTimeMillis();
+            EmbeddingModel embeddingModel = EmbeddingModelProvider.get();
+            System.out.println("⏱️ Inicialização do modelo de embeddings: " + (System.currentTimeMillis() - startupBegin) + "ms");
+            long batchBegin = System.currentTimeMillis();
+            int processedDocuments;
+
+            // Diário de progresso (checkpoint a cada CHECKPOINT_INTERVAL respostas)
             // =====================
             // FASE 2: PREPARAÇÃO DO OUTPUT CSV
             // =====================
             // Passo 2.3: Salvar respostas em output/respostas.csv
-            Path outputPath = Path.of("output/respostas.csv");
-            Files.createDirectories(outputPath.getParent());
-            PrintWriter writer = new PrintWriter(Files.newBufferedWriter(outputPath));
-            // Cabeçalho do CSV de respostas (CompanyResponse.csvHeader)
-            writer.println(CompanyResponse.csvHeader());
-
-            for (File pdfFile : pdfFiles) {
-                if (pdfToProcess != null && !pdfFile.getName().toLowerCase().contains(pdfToProcess.trim().toLowerCase())) {
-                    System.out.println("[INFO] Ignorando arquivo: " + pdfFile.getName() + " (esperado substring: " + pdfToProcess + ")");
-                    continue;
+            // Gravado em um arquivo parcial (linha a linha, com fsync) e publicado ao final.
+            // Se o lote falhar, o parcial NÃO é publicado (abort): o CSV da execução anterior
+            // continua intacto e as respostas concluídas seguem no diário para o --resume.
+            // O diário e o sink são fechados em qualquer caso (try-with-resources).
+            try (CheckpointJournal journal = new CheckpointJournal(
+                         Path.of(Config.CHECKPOINT_FILE), resume, Config.CHECKPOINT_INTERVAL);
+                 ResultSink sink = openResultSink(layout)) {
+                try {
+                    processedDocuments = processBatch(pdfFiles, pdfToProcess, embeddingModel, journal, sink, layout);
+                } catch (Exception e) {
+                    sink.abort();
+                    throw e;
                 }
+            }
+            System.out.println("⏱️ Lote: " + processedDocuments + " documento(s) em "
+                    + (System.currentTimeMillis() - batchBegin) + "ms (modelo carregado uma vez em "
+                    + EmbeddingModelProvider.getLoadTimeMs() + "ms)");
+            ResponseCache responseCache = ResponseCache.shared();
+            if (responseCache != null) {
+                System.out.println("💾 Cache de respostas: " + responseCache.stats());
+            }
+        } catch (Exception e) {
+            System.err.println("\n❌ Erro na execução: " + e.getMessage());
+            e.printStackTrace();
+        }
+        System.out.println("\n✅ Aplicação finalizada!");
+    }
+    
+    
+    
+    /**
+     * Processa os PDFs selecionados (FASE 1 e 2 de cada empresa) e grava as respostas no sink.
+     * 
+     * Empresas concluídas em execução anterior (--resume) são reescritas a partir do diário,
+     * sem reindexação.
+     * 
+     * @param pdfFiles PDFs encontrados em DATA_FOLDER
+     * @param pdfToProcess Substring do nome do PDF a processar, ou null para todos
+     * @param embeddingModel Modelo de embeddings compartilhado
+     * @param journal Diário de progresso
+     * @param sink Destino das respostas
+     * @param layout Questões (colunas) do guia de coleta
+     * @return Quantidade de documentos processados
+     * @throws Exception Se houver erro de indexação, de processamento ou de gravação
+     */
+    private static int processBatch(File[] pdfFiles, String pdfToProcess, EmbeddingModel embeddingModel,
+                                    CheckpointJournal journal, ResultSink sink, AnswerLayout layout) throws Exception {
+        int processedDocuments = 0;
+
+        // Aplicar filtro opcional de PDF (argumento de linha de comando)
+        List<File> selectedPdfs = new ArrayList<>();
+        for (File pdfFile : pdfFiles) {
+            if (pdfToProcess != null && !pdfFile.getName().toLowerCase().contains(pdfToProcess.trim().toLowerCase())) {
+                System.out.println("[INFO] Ignorando arquivo: " + pdfFile.getName() + " (esperado substring: " + pdfToProcess + ")");
+                continue;
+            }
+            String companyName = pdfFile.getName().replaceFirst("\\.pdf$", "");
+            if (journal.isCompleted(companyName)) {
+                // Retomada: empresa concluída em execução anterior, sem reindexar
+                System.out.println("[INFO] Já concluído (checkpoint): " + pdfFile.getName());
+                CompanyResponse response = responseFromJournal(companyName, journal, layout);
+                fillManualAnswers(companyName, response);
+                sink.write(response);
+                continue;
+            }
+            selectedPdfs.add(pdfFile);
+        }
+
+        if (Config.BATCH_PARALLEL_ENABLED) {
+            // Modo pipeline: indexação de um PDF sobrepõe a espera do LLM de outro
+            BatchPipeline pipeline = new BatchPipeline(embeddingModel,
+                    Config.INDEXING_THREADS, Config.ANSWERING_THREADS, Config.PIPELINE_QUEUE_CAPACITY);
+            pipeline.run(selectedPdfs, (companyName, queryEngine) -> {
+                CompanyResponse response = processCompany(companyName, queryEngine, journal, layout);
+                sink.write(response);
+                markCompletedIfAnswered(companyName, journal);
+            });
+            processedDocuments = selectedPdfs.size();
+        } else {
+            for (File pdfFile : selectedPdfs) {
                 System.out.println("[INFO] Processando arquivo: " + pdfFile.getName());
                 System.out.println("\n" + "=".repeat(80));
                 System.out.println("INDEXANDO: " + pdfFile.getName());
                 System.out.println("=".repeat(80));
+                long documentBegin = System.currentTimeMillis();
 
                 // Passo 1.4: Indexação do PDF
                 // - Extrai texto, divide em chunks, gera embeddings, armazena em memória
-                DocumentIndexer indexer = new DocumentIndexer();
+                DocumentIndexer indexer = new DocumentIndexer(embeddingModel);
                 indexer.indexDocument(pdfFile.getAbsolutePath());
+                long indexingMs = System.currentTimeMillis() - documentBegin;
 
                 // Instancia motor de busca RAG para o PDF indexado
                 RagQueryEngine queryEngine = new RagQueryEngine(
                         indexer.getEmbeddingStore(),
-                        indexer.getEmbeddingModel()
+                        indexer.getEmbeddingModel(),
+                        indexer.getLexicalIndex()
                 );
 
                 // Nome da empresa = nome do arquivo (sem .pdf)
                 String companyName = pdfFile.getName().replaceFirst("\\.pdf$", "");
-                QuestionProcessor processor = new QuestionProcessor(queryEngine);
-                CsvQuestionReader reader = new CsvQuestionReader();
-                CompanyResponse response = new CompanyResponse(companyName);
-
-                // =====================
-                // FASE 2: PROCESSAMENTO DE QUESTÕES
-                // =====================
-                // Passo 2.1: Ler questões do arquivo "Guia de Coleta.csv"
-                // CsvQuestionReader lê o arquivo do guia de coleta
-                int numQuestionsToProcess = 5; // Limitar às 24 primeiras questões
-                for (int index = 0; index < numQuestionsToProcess; index++) {
-                    // Passo 2.2: Para cada questão
-                    Question question = reader.readQuestionByIndex(index);
-                    if (question == null) continue;
-                    // - Enriquecer query com termos do guia
-                    // - Buscar chunks relevantes via RAG
-                    // - Construir prompt estruturado
-                    // - Enviar para Google Gemini
-                    // - Pós-processar resposta
-                    String answer = processor.processQuestion(question);
-                    response.setResposta(question.getNumero(), answer);
-                    // Delay entre requisições para respeitar o rate limit
-                    if (index < numQuestionsToProcess - 1) {
-                        try {
-                            System.out.println("⏳ Aguardando " + (Config.REQUEST_DELAY_MS/1000.0) + "s antes da próxima questão (rate limiting)...");
-                            Thread.sleep(Config.REQUEST_DELAY_MS);
-                        } catch (InterruptedException ie) {
-                            Thread.currentThread().interrupt();
-                        }
+                CompanyResponse response;
+                try {
+                    response = processCompany(companyName, queryEngine, journal, layout);
+                } finally {
+                    // Índice temporário (cache desabilitado) não é mais consultado
+                    indexer.release();
+                }
+
+                // Passo 2.3: Salvar linha de respostas da empresa no CSV de output
+                sink.write(response);
+                markCompletedIfAnswered(companyName, journal);
+
+                long documentMs = System.currentTimeMillis() - documentBegin;
+                processedDocuments++;
+                System.out.println("⏱️ " + companyName + ": indexação " + indexingMs + "ms | questões "
+                        + (documentMs - indexingMs) + "ms | total " + documentMs + "ms");
+            }
+        }
+        return processedDocuments;
+    }
+    
+    /**
+     * Responde as questões do guia para uma empresa já indexada (FASE 2).
+     * 
+     * Usado tanto pelo modo sequencial quanto pelo pipeline paralelo (BatchPipeline).
+     * 
+     * @param companyName Nome da empresa (nome do PDF sem extensão)
+     * @param queryEngine Motor RAG sobre o índice do PDF da empresa
+     * @param journal Diário de progresso: questões já registradas não são reprocessadas
+     * @param layout Questões (colunas) do guia de coleta
+     * @return Respostas da empresa (inclui respostas manuais, se houver)
+     * @throws Exception Se houver erro ao ler o guia ou o CSV manual
+     */
+    private static CompanyResponse processCompany(String companyName, RagQueryEngine queryEngine,
+                                                  CheckpointJournal journal, AnswerLayout layout) throws Exception {
+        // Respostas obtidas antes de uma interrupção (modo --resume)
+        CompanyResponse response = responseFromJournal(companyName, journal, layout);
+
+        // Respostas brutas no diário: permitem reaplicar o pós-processamento (--renormalize).
+        // Cada resposta final vai para o diário assim que a questão termina, em todos os modos;
+        // questões que falharam não são registradas e voltam a ser processadas com --resume
+        QuestionProcessor processor = new QuestionProcessor(queryEngine,
+                trace -> {
+                    journal.recordRawAnswer(companyName, trace.numero(), trace.rawAnswer());
+                    response.setTrace(trace);
+                },
+                (numero, answer) -> journal.recordAnswer(companyName, numero, answer));
+        CsvQuestionReader reader = new CsvQuestionReader();
+
+        // =====================
+        // FASE 2: PROCESSAMENTO DE QUESTÕES
+        // =====================
+        // Passo 2.1: Ler questões do arquivo "Guia de Coleta.csv"
+        // CsvQuestionReader lê o arquivo do guia de coleta
+        if (Config.BATCH_QUESTIONS_ENABLED || Config.VIRTUAL_THREADS_ENABLED || Config.ASYNC_QUESTIONS_ENABLED) {
+            List<Question> questions = new ArrayList<>();
+            for (int index = 0; index < QUESTIONS_TO_PROCESS; index++) {
+                Question question = reader.readQuestionByIndex(index);
+                if (question != null && !journal.isAnswered(companyName, question.getNumero())) {
+                    questions.add(question);
+                }
+            }
+            Map<Integer, String> answers;
+            if (Config.BATCH_QUESTIONS_ENABLED) {
+                // Questões da mesma seção do FR respondidas em uma única chamada ao Gemini
+                answers = processor.processQuestions(questions);
+            } else if (Config.VIRTUAL_THREADS_ENABLED) {
+                // Uma virtual thread por questão; o RateLimiter compartilhado controla a cota.
+                // Uma falha cancela só as questões desta empresa: as já respondidas estão no
+                // diário e as demais ficam pendentes para --resume
+                try {
+                    answers = processor.processQuestionsOnVirtualThreads(questions);
+                } catch (IllegalStateException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof CheckpointJournal.WriteFailedException journalFailure) {
+                        throw journalFailure;
+                    }
+                    System.err.println("❌ " + companyName + ": " + e.getMessage() + " (" + cause.getMessage() + ")");
+                    answers = journal.getAnswers(companyName);
+                }
+            } else {
+                // Todas as questões em voo ao mesmo tempo (CompletableFuture); o RateLimiter
+                // compartilhado decide quando cada chamada ao Gemini é enviada. Uma falha
+                // afeta só esta empresa, como no modo de virtual threads
+                try {
+                    answers = processor.processQuestionsAsync(questions).join();
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof CheckpointJournal.WriteFailedException journalFailure) {
+                        throw journalFailure;
+                    }
+                    System.err.println("❌ " + companyName + ": falha nas questões assíncronas (" + cause.getMessage() + ")");
+                    answers = journal.getAnswers(companyName);
+                }
+            }
+            answers.forEach(response::setResposta);
+        } else {
+            for (int index = 0; index < QUESTIONS_TO_PROCESS; index++) {
+                // Passo 2.2: Para cada questão
+                Question question = reader.readQuestionByIndex(index);
+                if (question == null || journal.isAnswered(companyName, question.getNumero())) continue;
+                // - Enriquecer query com termos do guia
+                // - Buscar chunks relevantes via RAG
+                // - Construir prompt estruturado
+                // - Enviar para Google Gemini
+                // - Pós-processar resposta
+                String answer = processor.processQuestion(question);
+                // Rate limiting é aplicado pelo RateLimiter compartilhado dentro do RagQueryEngine
+                response.setResposta(question.getNumero(), answer);
+            }
+        }
+
+        // Passo extra: Preencher respostas manuais se existir linha correspondente no CSV manual
+        fillManualAnswers(companyName, response);
+        return response;
+    }
+    
+    /**
+     * Marca a empresa como concluída no diário somente se todas as questões foram
+     * respondidas. Com alguma falha (ex: cota do Gemini esgotada), a empresa continua
+     * pendente e --resume processa de novo apenas as questões que faltam.
+     */
+    private static void markCompletedIfAnswered(String companyName, CheckpointJournal journal) throws Exception {
+        CsvQuestionReader reader = new CsvQuestionReader();
+        int pending = 0;
+        for (int index = 0; index < QUESTIONS_TO_PROCESS; index++) {
+            Question question = reader.readQuestionByIndex(index);
+            if (question != null && !journal.isAnswered(companyName, question.getNumero())) {
+                pending++;
+            }
+        }
+        if (pending == 0) {
+            journal.markCompleted(companyName);
+        } else {
+            // Grava as respostas obtidas; a empresa fica pendente para --resume
+            journal.flush();
+            System.out.println("⚠️ " + companyName + ": " + pending + " questão(ões) sem resposta; "
+                    + "use --resume para processá-las novamente");
+        }
+    }
+    
+    /**
+     * Modo --renormalize: reaplica o pós-processamento atual às respostas brutas do diário.
+     * 
+     * FUNCIONAMENTO:
+     * 1. Relê o diário (output/checkpoint.log) com as respostas brutas de cada empresa
+     * 2. Normaliza todas as respostas em paralelo (AnswerNormalizer não tem estado)
+     * 3. Registra no diário as respostas que mudaram (a última linha prevalece)
+     * 4. Reescreve output/respostas.csv com as empresas concluídas
+     * 
+     * Questões sem resposta bruta (ex: diários antigos, "INFORMAÇÃO NÃO ENCONTRADA" por
+     * falta de contexto) mantêm a resposta registrada.
+     * 
+     * @throws Exception Se houver erro ao ler o diário, o guia ou gravar o CSV
+     */
+    private static void renormalize() throws Exception {
+        long begin = System.currentTimeMillis();
+        List<Question> guide = new CsvQuestionReader().readAllQuestions();
+        AnswerLayout layout = AnswerLayout.fromQuestions(guide);
+        Map<Integer, Question> questions = new HashMap<>();
+        for (Question question : guide) {
+            questions.put(question.getNumero(), question);
+        }
+
+        try (CheckpointJournal journal = new CheckpointJournal(
+                Path.of(Config.CHECKPOINT_FILE), true, Config.CHECKPOINT_INTERVAL)) {
+            record StoredAnswer(String company, int numero, String rawAnswer) {
+            }
+            List<StoredAnswer> stored = new ArrayList<>();
+            for (String company : journal.getCompanies()) {
+                journal.getRawAnswers(company).forEach((numero, rawAnswer) -> {
+                    if (questions.containsKey(numero)) {
+                        stored.add(new StoredAnswer(company, numero, rawAnswer));
                     }
+                });
+            }
+
+            List<String> normalized = stored.parallelStream()
+                    .map(answer -> AnswerNormalizer.normalize(answer.rawAnswer(), questions.get(answer.numero())))
+                    .toList();
+
+            int changed = 0;
+            for (int i = 0; i < stored.size(); i++) {
+                StoredAnswer answer = stored.get(i);
+                if (!normalized.get(i).equals(journal.getAnswer(answer.company(), answer.numero()))) {
+                    journal.recordAnswer(answer.company(), answer.numero(), normalized.get(i));
+                    changed++;
                 }
+            }
 
-                // Passo extra: Preencher respostas manuais se existir linha correspondente no CSV manual
-                // (output/respostas-analise_manual.csv)
-                Path manualPath = Path.of("output/respostas-analise_manual.csv");
-                if (Files.exists(manualPath)) {
-                    List<String> manualLines = Files.readAllLines(manualPath);
-                    for (String line : manualLines) {
-                        String[] fields = line.split(";");
-                        if (fields.length > 0 && fields[0].trim().equalsIgnoreCase(companyName.trim())) {
-                            response.preencherRespostasManuais(fields);
-                            break;
+            int written = 0;
+            try (ResultSink sink = openResultSink(layout)) {
+                try {
+                    for (String company : journal.getCompanies()) {
+                        if (!journal.isCompleted(company)) {
+                            continue;
                         }
+                        CompanyResponse response = responseFromJournal(company, journal, layout);
+                        fillManualAnswers(company, response);
+                        sink.write(response);
+                        written++;
                     }
+                } catch (Exception e) {
+                    sink.abort();
+                    throw e;
                 }
-
-                // Passo 2.3: Salvar linha de respostas da empresa no CSV de output
-                writer.println(response.toCsvLine());
-                writer.flush();
             }
-            writer.close();
-        } catch (Exception e) {
-            System.err.println("\n❌ Erro na execução: " + e.getMessage());
-            e.printStackTrace();
+
+            System.out.println("♻️ Reprocessamento: " + stored.size() + " resposta(s) bruta(s), "
+                    + changed + " alterada(s), " + written + " empresa(s) em " + OUTPUT_FILE
+                    + " (" + (System.currentTimeMillis() - begin) + "ms)");
         }
-        System.out.println("\n✅ Aplicação finalizada!");
     }
     
+    /**
+     * Destino das respostas: CSV e, se COLUMNAR_OUTPUT_ENABLED, também o arquivo Arrow.
+     */
+    private static ResultSink openResultSink(AnswerLayout layout) throws IOException {
+        ResultSink csv = new CsvResultSink(Path.of(OUTPUT_FILE), layout);
+        if (!Config.COLUMNAR_OUTPUT_ENABLED) {
+            return csv;
+        }
+        try {
+            ResultSink arrow = new ArrowResultSink(Path.of(COLUMNAR_OUTPUT_FILE), layout.numeros());
+            return new CompositeResultSink(List.of(csv, arrow));
+        } catch (IOException | RuntimeException e) {
+            // Sem publicar um CSV só com o cabeçalho por cima do anterior
+            csv.abort();
+            throw e;
+        }
+    }
+
+    /**
+     * Respostas (e respostas brutas, sem métricas) já registradas no diário para a empresa.
+     * Questões que não estão mais no guia são ignoradas.
+     */
+    private static CompanyResponse responseFromJournal(String companyName, CheckpointJournal journal,
+                                                       AnswerLayout layout) {
+        CompanyResponse response = new CompanyResponse(companyName, layout);
+        journal.getAnswers(companyName).forEach((numero, answer) -> {
+            if (layout.contains(numero)) {
+                response.setResposta(numero, answer);
+            }
+        });
+        journal.getRawAnswers(companyName).forEach((numero, rawAnswer) -> {
+            if (layout.contains(numero)) {
+                response.setTrace(AnswerTrace.rawOnly(numero, rawAnswer));
+            }
+        });
+        return response;
+    }
     
+    /**
+     * Preenche as respostas manuais se existir linha da empresa no CSV manual
+     * (output/respostas-analise_manual.csv).
+     * 
+     * @param companyName Nome da empresa (primeira coluna do CSV manual)
+     * @param response Respostas da empresa
+     * @throws Exception Se houver erro ao ler o CSV manual
+     */
+    private static void fillManualAnswers(String companyName, CompanyResponse response) throws Exception {
+        Path manualPath = Path.of("output/respostas-analise_manual.csv");
+        if (Files.exists(manualPath)) {
+            List<String> manualLines = Files.readAllLines(manualPath);
+            for (String line : manualLines) {
+                String[] fields = line.split(";", -1);
+                if (fields.length > 0 && fields[0].trim().equalsIgnoreCase(companyName.trim())) {
+                    response.preencherRespostasManuais(fields);
+                    break;
+                }
+            }
+        }
+    }
     
     /**
      * Exibe o banner de boas-vindas da aplicação.
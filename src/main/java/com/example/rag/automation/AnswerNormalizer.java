@@ -0,0 +1,488 @@
+package com.example.rag.automation;
+
+import com.example.rag.automation.model.Question;
+import com.example.rag.automation.model.TipoQuestao;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Normaliza (pós-processa) as respostas brutas do Gemini conforme o tipo da questão.
+ *
+ * PROBLEMA:
+ * O pós-processamento compilava expressões regulares a cada chamada e encadeava
+ * toUpperCase/replaceAll/matches/contains, cada um percorrendo e copiando a resposta.
+ * Ao reprocessar dezenas de milhares de respostas gravadas depois de uma mudança de
+ * regra, esse custo passa a dominar.
+ *
+ * SOLUÇÃO:
+ * - Uma regra por TipoQuestao (EnumMap), sem estado: pode ser usada por várias threads
+ * - Padrões compilados uma única vez (static final), sem distinção de maiúsculas
+ *   (nenhuma cópia em caixa alta da resposta)
+ * - Cada regra percorre a resposta uma vez: um find()/lookingAt() ou um laço sobre os caracteres
+ * - API independente do QuestionProcessor (não depende do motor RAG)
+ *
+ * REGRAS POR TIPO:
+ * - MONETARIA: primeiro valor + unidade (mil, milhões, bilhões) → "R$ 1.234.000";
+ *   negativo se houver "-" antes do número ou parênteses contábeis no próprio valor "(1.234)"
+ * - SIM_NAO: "SIM", "NÃO", "NÃO DIVULGADO" ou "NÃO APLICADO", sem texto explicativo
+ * - CONTAGEM: "N (Nome 1, Nome 2)" preservado; senão o primeiro número; "nenhum" → "0"
+ * - TEXTO_ESPECIFICO: sem aspas/negrito e espaços repetidos; nome da política; máximo de uma frase
+ * - MULTIPLA_ESCOLHA: opções fixas da Q47 (Seguro D&O); demais respostas sem alteração
+ *
+ * MUDANÇAS EM RELAÇÃO AO PÓS-PROCESSAMENTO ANTERIOR (QuestionProcessor.postProcess*):
+ * Respostas já gravadas podem mudar ao reprocessar (--renormalize):
+ * - "12,7 milhões"                     antes "R$ 12.700"          agora "R$ 12.700.000"
+ *   ("milhões" casava com "mil")
+ * - "R$ 12,7 bilhões"                  antes "R$ 13"              agora "R$ 12.700.000.000"
+ * - "R$ (1.234,5) milhões"             antes "R$ 1.235"           agora "-R$ 1.234.500.000"
+ * - "(523.114)"                        antes "R$ 523.114"         agora "-R$ 523.114"
+ * - "-R$ 523.114"                      antes "R$ 523.114"         agora "-R$ 523.114"
+ * - "NÃO DIVULGADO"                    antes "NÃO"                agora "NÃO DIVULGADO"
+ * - "Não se aplica."                   antes "NÃO"                agora "NÃO APLICADO"
+ * - "A Companhia não possui política"  antes "SIM"                agora "NÃO"
+ * - "**Deloitte**"                     antes "**Deloitte**"       agora "Deloitte"
+ *
+ * USO:
+ * String answer = AnswerNormalizer.normalize(rawAnswer, question);
+ * List<String> answers = AnswerNormalizer.normalizeAll(rawAnswers, question);
+ */
+public final class AnswerNormalizer {
+
+    public static final String NOT_FOUND = "INFORMAÇÃO NÃO ENCONTRADA";
+
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+
+    // MONETARIA: "(1.234,5) milhões", "4.872.707 (em R$ mil)", "12,7 bilhões"
+    private static final Pattern MONETARY = Pattern.compile(
+            "(?<open>\\(\\s*(?:R\\$\\s*)?)?(?<number>\\d[\\d.,]*)(?<close>\\s*\\))?"
+                    + "\\s*\\(?\\s*(?:em\\s*)?(?:R\\$\\s*)?"
+                    + "(?<unit>(?:bilh(?:ões|ão|oes|ao)|billions?|milh(?:ões|ão|oes|ao)|millions?|mil|thousands?)(?!\\p{L}))?",
+            FLAGS);
+
+    // SIM_NAO: resposta no início (após negrito/aspas)
+    private static final Pattern YES_NO_PREFIX = Pattern.compile(
+            "[\\s*\"'“]*(?:(?<undisclosed>N[ÃA]O\\s+DIVULGAD[OA])|(?<notApplicable>N[ÃA]O\\s+(?:SE\\s+)?APLICA(?:DO|DA)?)"
+                    + "|(?<yes>SIM)|(?<no>N[ÃA]O))(?!\\p{L})",
+            FLAGS);
+
+    // SIM_NAO: indícios no meio do texto explicativo
+    private static final Pattern YES_NO_MARKERS = Pattern.compile(
+            "(?<undisclosed>N[ÃA]O\\s+DIVULGAD[OA])|(?<notApplicable>N[ÃA]O\\s+(?:SE\\s+)?APLICA(?:DO|DA)?)"
+                    + "|(?<negative>N[ÃA]O\\s+(?:POSSUI|DIVULGA|INSTALADO|ADEQUADO))"
+                    + "|(?<positive>POSSUI|DIVULGA|INSTALADO|ADEQUADO)",
+            FLAGS);
+
+    // CONTAGEM
+    private static final Pattern COUNT_WITH_NAMES = Pattern.compile("(\\d+)\\s*\\(([^)]+)\\)");
+    private static final Pattern DIGITS = Pattern.compile("\\d+");
+    private static final Pattern ZERO = Pattern.compile("NENHUM|ZERO|N[ÃA]O\\s+H[ÁA]", FLAGS);
+    private static final Pattern NOT_FOUND_TEXT = Pattern.compile("INFORMA[ÇC][ÃA]O\\s+N[ÃA]O\\s+ENCONTRADA", FLAGS);
+
+    // TEXTO_ESPECIFICO
+    private static final Pattern POLICY = Pattern.compile("pol[íi]tica de", FLAGS);
+    private static final int POLICY_MAX_CHARS = 150;
+    private static final int TEXT_MAX_CHARS = 200;
+    // Texto longo é reduzido à primeira frase só se ela for mais curta que isto
+    private static final int FIRST_SENTENCE_MAX_CHARS = 150;
+
+    // MULTIPLA_ESCOLHA (Q47 - Seguro D&O)
+    private static final int Q47_NUMBER = 47;
+    private static final Pattern Q47_MARKERS = Pattern.compile(
+            "(?<dno>D&O)|(?<other>OUTRA\\s+FORMA|REEMBOLSO)|(?<undisclosed>N[ÃA]O\\s+DIVULGADO)", FLAGS);
+    private static final Pattern Q47_NO = Pattern.compile("N[ÃA]O", FLAGS);
+
+    /**
+     * Regra de normalização de um tipo de questão (recebe a resposta já sem espaços nas pontas).
+     */
+    @FunctionalInterface
+    private interface Rule {
+        String apply(String answer, Question q);
+    }
+
+    private static final Map<TipoQuestao, Rule> RULES = new EnumMap<>(TipoQuestao.class);
+
+    static {
+        RULES.put(TipoQuestao.MONETARIA, (answer, q) -> normalizeMonetary(answer));
+        RULES.put(TipoQuestao.SIM_NAO, (answer, q) -> normalizeYesNo(answer));
+        RULES.put(TipoQuestao.CONTAGEM, (answer, q) -> normalizeCounting(answer));
+        RULES.put(TipoQuestao.TEXTO_ESPECIFICO, (answer, q) -> normalizeText(answer));
+        RULES.put(TipoQuestao.MULTIPLA_ESCOLHA, AnswerNormalizer::normalizeMultipleChoice);
+    }
+
+    private AnswerNormalizer() {
+    }
+
+    /**
+     * Normaliza uma resposta conforme o tipo da questão.
+     *
+     * @param rawAnswer Resposta bruta do Gemini
+     * @param q Questão do guia (tipo, número e "Como Preencher?")
+     * @return Resposta formatada, ou "INFORMAÇÃO NÃO ENCONTRADA" se a resposta estiver vazia
+     */
+    public static String normalize(String rawAnswer, Question q) {
+        if (rawAnswer == null || rawAnswer.isBlank()) {
+            return NOT_FOUND;
+        }
+        String answer = rawAnswer.trim();
+        Rule rule = q.getTipo() != null ? RULES.get(q.getTipo()) : null;
+        return rule != null ? rule.apply(answer, q) : normalizeGeneric(answer);
+    }
+
+    /**
+     * Normaliza em lote respostas brutas de uma mesma questão
+     * (ex: respostas gravadas reprocessadas depois de uma mudança de regra).
+     *
+     * @param rawAnswers Respostas brutas
+     * @param q Questão do guia
+     * @return Respostas formatadas, na mesma ordem
+     */
+    public static List<String> normalizeAll(List<String> rawAnswers, Question q) {
+        List<String> answers = new ArrayList<>(rawAnswers.size());
+        for (String rawAnswer : rawAnswers) {
+            answers.add(normalize(rawAnswer, q));
+        }
+        return answers;
+    }
+
+    /**
+     * MONETARIA: primeiro valor da resposta, multiplicado pela unidade e formatado em reais.
+     *
+     * Um número entre parênteses só é o valor (negativo, notação contábil) se vier com
+     * "R$" ou unidade, ou se for a resposta inteira; senão é um rótulo (ex: o ano em
+     * "(2023): 1.234 mil") e a busca segue para o próximo número.
+     *
+     * Exemplos:
+     * - "4.872.707 (em R$ mil)"        → "R$ 4.872.707.000"
+     * - "R$ (1.234,5) milhões"         → "-R$ 1.234.500.000" (parênteses contábeis)
+     * - "(523.114)"                    → "-R$ 523.114"
+     * - "(2023): 1.234 mil"            → "R$ 1.234.000"
+     * - "R$ 12,7 bilhões"              → "R$ 12.700.000.000"
+     * - "-R$ 523.114"                  → "-R$ 523.114"
+     */
+    static String normalizeMonetary(String answer) {
+        Matcher matcher = MONETARY.matcher(answer);
+        boolean parenthesized;
+        do {
+            if (!matcher.find()) {
+                return answer;
+            }
+            parenthesized = matcher.start("open") >= 0 && matcher.start("close") >= 0;
+        } while (parenthesized && !isParenthesizedAmount(answer, matcher));
+
+        double number = parseBrazilianNumber(answer, matcher.start("number"), matcher.end("number"));
+        if (Double.isNaN(number)) {
+            System.err.println("⚠️ Erro ao converter número: " + matcher.group("number"));
+            return answer;
+        }
+        int unitStart = matcher.start("unit");
+        if (unitStart >= 0) {
+            number *= unitMultiplier(answer, unitStart, matcher.end("unit"));
+        }
+
+        boolean negative = parenthesized || hasMinusBefore(answer, matcher.start());
+        return formatCurrency(Math.round(number), negative);
+    }
+
+    /**
+     * @return true se o número entre parênteses casado é o próprio valor: "R$" dentro ou
+     *         antes dos parênteses, unidade depois, ou nada além dele na resposta
+     */
+    private static boolean isParenthesizedAmount(String answer, Matcher matcher) {
+        if (matcher.start("unit") >= 0 || matcher.group("open").indexOf('$') >= 0) {
+            return true;
+        }
+        int before = matcher.start() - 1;
+        while (before >= 0 && Character.isWhitespace(answer.charAt(before))) {
+            before--;
+        }
+        if (before >= 1 && answer.charAt(before) == '$' && Character.toUpperCase(answer.charAt(before - 1)) == 'R') {
+            return true;
+        }
+        return before < 0 && isBlankOrPunctuation(answer, matcher.end("close"));
+    }
+
+    // Resto da resposta sem outro conteúdo ("(1.234).")
+    private static boolean isBlankOrPunctuation(String text, int from) {
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c) && c != '.' && c != ';') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Converte "1.234.567,89" (ponto de milhar, vírgula decimal) sem criar strings intermediárias.
+     *
+     * @return Valor, ou NaN se houver mais de uma vírgula
+     */
+    private static double parseBrazilianNumber(String text, int start, int end) {
+        // Pontuação no fim pertence à frase ("R$ 1.234.")
+        while (end > start && !Character.isDigit(text.charAt(end - 1))) {
+            end--;
+        }
+        long integerPart = 0;
+        long fraction = 0;
+        long fractionScale = 1;
+        boolean decimal = false;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == ',') {
+                if (decimal) {
+                    return Double.NaN;
+                }
+                decimal = true;
+            } else if (c != '.') {
+                if (decimal) {
+                    fraction = fraction * 10 + (c - '0');
+                    fractionScale *= 10;
+                } else {
+                    integerPart = integerPart * 10 + (c - '0');
+                }
+            }
+        }
+        return integerPart + (double) fraction / fractionScale;
+    }
+
+    /**
+     * @return Multiplicador da unidade casada por MONETARY
+     */
+    private static double unitMultiplier(String text, int start, int end) {
+        char first = Character.toLowerCase(text.charAt(start));
+        if (first == 'b') {
+            return 1_000_000_000d;                  // bilhão, bilhões, billion
+        }
+        if (first == 't' || end - start == 3) {
+            return 1_000d;                          // mil, thousand
+        }
+        return 1_000_000d;                          // milhão, milhões, million
+    }
+
+    /**
+     * @return true se houver "-" antes do número, ignorando espaços e "R$" ("-1.234", "- R$ 1.234")
+     */
+    private static boolean hasMinusBefore(String text, int position) {
+        int i = position - 1;
+        while (i >= 0 && Character.isWhitespace(text.charAt(i))) {
+            i--;
+        }
+        if (i >= 1 && text.charAt(i) == '$' && Character.toUpperCase(text.charAt(i - 1)) == 'R') {
+            i -= 2;
+            while (i >= 0 && Character.isWhitespace(text.charAt(i))) {
+                i--;
+            }
+        }
+        return i >= 0 && (text.charAt(i) == '-' || text.charAt(i) == '−');
+    }
+
+    /**
+     * Formata como moeda brasileira (ex: "R$ 1.234.567", "-R$ 1.234").
+     */
+    static String formatCurrency(long value, boolean negative) {
+        String digits = Long.toString(Math.abs(value));
+        StringBuilder sb = new StringBuilder(digits.length() + digits.length() / 3 + 4);
+        if (negative && value != 0) {
+            sb.append('-');
+        }
+        sb.append("R$ ");
+        int firstGroup = digits.length() % 3 == 0 ? 3 : digits.length() % 3;
+        sb.append(digits, 0, firstGroup);
+        for (int i = firstGroup; i < digits.length(); i += 3) {
+            sb.append('.').append(digits, i, i + 3);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * SIM_NAO: extrai apenas "SIM", "NÃO", "NÃO DIVULGADO" ou "NÃO APLICADO".
+     *
+     * 1. Resposta no início ("SIM, pois...", "Não. A Companhia...", "NÃO DIVULGADO")
+     * 2. Senão, indícios no texto, por prioridade: não divulgado, não aplicado,
+     *    negação ("não possui") e afirmação ("possui")
+     */
+    static String normalizeYesNo(String answer) {
+        Matcher prefix = YES_NO_PREFIX.matcher(answer);
+        if (prefix.lookingAt()) {
+            if (prefix.start("undisclosed") >= 0) {
+                return "NÃO DIVULGADO";
+            }
+            if (prefix.start("notApplicable") >= 0) {
+                return "NÃO APLICADO";
+            }
+            return prefix.start("yes") >= 0 ? "SIM" : "NÃO";
+        }
+
+        boolean undisclosed = false;
+        boolean notApplicable = false;
+        boolean negative = false;
+        boolean positive = false;
+        Matcher markers = YES_NO_MARKERS.matcher(answer);
+        while (markers.find()) {
+            undisclosed |= markers.start("undisclosed") >= 0;
+            notApplicable |= markers.start("notApplicable") >= 0;
+            negative |= markers.start("negative") >= 0;
+            positive |= markers.start("positive") >= 0;
+        }
+        if (undisclosed) {
+            return "NÃO DIVULGADO";
+        }
+        if (notApplicable) {
+            return "NÃO APLICADO";
+        }
+        if (negative) {
+            return "NÃO";
+        }
+        if (positive) {
+            return "SIM";
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * CONTAGEM: "NÚMERO (Nome 1, Nome 2, ...)" é preservado; senão, o primeiro número.
+     */
+    static String normalizeCounting(String answer) {
+        if (NOT_FOUND_TEXT.matcher(answer).find()) {
+            return NOT_FOUND;
+        }
+
+        Matcher withNames = COUNT_WITH_NAMES.matcher(answer);
+        if (withNames.lookingAt()) {
+            return withNames.group(1) + " (" + withNames.group(2).trim() + ")";
+        }
+
+        Matcher digits = DIGITS.matcher(answer);
+        if (digits.find()) {
+            return digits.group();
+        }
+
+        if (ZERO.matcher(answer).find()) {
+            return "0";
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * TEXTO_ESPECIFICO: limpa a formatação e preserva o conteúdo.
+     *
+     * - Aspas e negrito (markdown) nas pontas são removidos; espaços repetidos viram um
+     * - "Política de ..." é cortada na primeira vírgula ou ponto (máx. 150 caracteres)
+     * - Textos com mais de 200 caracteres ficam só com a primeira frase, se curta
+     */
+    static String normalizeText(String answer) {
+        int start = 0;
+        int end = answer.length();
+        while (start < end && isWrapper(answer.charAt(start))) {
+            start++;
+        }
+        while (end > start && isWrapper(answer.charAt(end - 1))) {
+            end--;
+        }
+        String text = collapseWhitespace(answer, start, end);
+
+        Matcher policy = POLICY.matcher(text);
+        if (policy.find()) {
+            int policyStart = policy.start();
+            int policyEnd = Math.min(text.length(), policyStart + POLICY_MAX_CHARS);
+            for (int i = policyStart; i < policyEnd; i++) {
+                char c = text.charAt(i);
+                if (c == '.' || c == ',') {
+                    policyEnd = i;
+                    break;
+                }
+            }
+            text = text.substring(policyStart, policyEnd);
+        }
+
+        if (text.length() > TEXT_MAX_CHARS) {
+            int sentenceEnd = text.indexOf('.');
+            if (sentenceEnd >= 0 && sentenceEnd < FIRST_SENTENCE_MAX_CHARS) {
+                text = text.substring(0, sentenceEnd);
+            }
+        }
+        return text.trim();
+    }
+
+    private static boolean isWrapper(char c) {
+        return c == '"' || c == '*' || c == '“' || c == '”' || Character.isWhitespace(c);
+    }
+
+    /**
+     * MULTIPLA_ESCOLHA: opções fixas da Q47 (forma de reembolso de administradores).
+     */
+    static String normalizeMultipleChoice(String answer, Question q) {
+        if (q.getComoPreencher() == null || q.getNumero() != Q47_NUMBER) {
+            return answer;
+        }
+
+        boolean other = false;
+        boolean undisclosed = false;
+        Matcher markers = Q47_MARKERS.matcher(answer);
+        while (markers.find()) {
+            if (markers.start("dno") >= 0) {
+                return "Seguro D&O";
+            }
+            other |= markers.start("other") >= 0;
+            undisclosed |= markers.start("undisclosed") >= 0;
+        }
+        if (other) {
+            return "Outra forma de reembolso";
+        }
+        if (undisclosed) {
+            return "Não Divulgado";
+        }
+        if (Q47_NO.matcher(answer).matches()) {
+            return "Não";
+        }
+        return answer;
+    }
+
+    /**
+     * Tipos sem regra específica: espaços repetidos viram um; ponto final único é removido.
+     */
+    static String normalizeGeneric(String answer) {
+        String text = collapseWhitespace(answer, 0, answer.length());
+        if (text.endsWith(".") && !text.contains(". ")) {
+            return text.substring(0, text.length() - 1);
+        }
+        return text;
+    }
+
+    /**
+     * Copia o trecho trocando cada sequência de espaços/quebras de linha por um espaço
+     * (sem espaços nas pontas). Devolve o próprio texto se nada mudar.
+     */
+    private static String collapseWhitespace(String text, int start, int end) {
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        StringBuilder sb = null;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            boolean collapse = Character.isWhitespace(c) && (c != ' ' || Character.isWhitespace(text.charAt(i + 1)));
+            if (collapse && sb == null) {
+                sb = new StringBuilder(end - start).append(text, start, i);
+            }
+            if (sb != null) {
+                if (!Character.isWhitespace(c)) {
+                    sb.append(c);
+                } else if (sb.charAt(sb.length() - 1) != ' ') {
+                    sb.append(' ');
+                }
+            }
+        }
+        if (sb != null) {
+            return sb.toString();
+        }
+        return start == 0 && end == text.length() ? text : text.substring(start, end);
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.rag.automation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Diário de progresso (append-only) do processamento em lote.
+ *
+ * PROBLEMA:
+ * As respostas de uma empresa só chegam ao respostas.csv quando todas as suas
+ * questões terminam, e o CSV é recriado a cada execução. Uma falha na empresa 180
+ * de 200 obriga a reprocessar tudo, consumindo de novo a cota do Gemini.
+ *
+ * SOLUÇÃO:
+ * Cada resposta é registrada no diário assim que é obtida. As linhas ficam em buffer
+ * e são gravadas com fsync a cada CHECKPOINT_INTERVAL respostas (e sempre ao concluir
+ * uma empresa). No modo de retomada (--resume), o diário é relido e os pares
+ * (empresa, questão) já respondidos não são processados novamente.
+ *
+ * Só entram no diário respostas obtidas: falhas ("ERRO: ...", geração sem resposta por
+ * erro de API ou cota esgotada) não são registradas, e a empresa só é marcada como
+ * concluída quando todas as questões foram respondidas. Assim --resume tenta de novo
+ * exatamente as questões que falharam.
+ *
+ * FORMATO (uma linha por evento, campos separados por TAB):
+ * R	[empresa]	[número da questão]	[resposta]   → resposta bruta do Gemini (antes do pós-processamento)
+ * A	[empresa]	[número da questão]	[resposta]   → questão respondida (resposta final)
+ * C	[empresa]                                   → empresa concluída (linha gravada no CSV)
+ *
+ * Se a mesma questão aparecer mais de uma vez, vale a última linha (ex: respostas
+ * reescritas pelo modo --renormalize, que reaplica o pós-processamento às respostas brutas).
+ *
+ * TAB, quebras de linha e barras invertidas são escapados (\t, \n, \r, \\).
+ * Uma última linha incompleta (queda durante a gravação) é descartada na leitura.
+ *
+ * FALHA NA GRAVAÇÃO:
+ * Se um checkpoint não puder ser gravado, o arquivo volta ao tamanho anterior (sem
+ * linhas pela metade) e recordAnswer/markCompleted/flush lançam WriteFailedException.
+ * O lote deve parar: continuar reportaria progresso que não está no disco.
+ *
+ * Thread-safe: pode ser usado pelas várias threads do pipeline paralelo.
+ */
+public class CheckpointJournal implements AutoCloseable {
+
+    /**
+     * Checkpoint não gravado no disco (causa = erro de E/S).
+     *
+     * Não deve ser tratada como falha de uma questão ou empresa: interrompe o lote.
+     */
+    public static class WriteFailedException extends UncheckedIOException {
+        public WriteFailedException(String message, IOException cause) {
+            super(message, cause);
+        }
+    }
+
+    private static final String RAW_ANSWER = "R";
+    private static final String ANSWER = "A";
+    private static final String COMPLETED = "C";
+
+    private final FileChannel channel;
+    private final int checkpointInterval;
+
+    // Estado recuperado do diário (modo retomada) + respostas desta execução (ordem de registro)
+    private final Map<String, Map<Integer, String>> answers = new LinkedHashMap<>();
+    private final Map<String, Map<Integer, String>> rawAnswers = new HashMap<>();
+    private final Set<String> completedCompanies = new LinkedHashSet<>();
+
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingAnswers;
+
+    /**
+     * Abre o diário.
+     *
+     * @param path Arquivo do diário
+     * @param resume true para retomar (reler o diário existente); false para começar do zero
+     * @param checkpointInterval Quantidade de respostas entre gravações em disco
+     * @throws IOException Se houver erro ao ler ou criar o arquivo
+     */
+    public CheckpointJournal(Path path, boolean resume, int checkpointInterval) throws IOException {
+        this.checkpointInterval = Math.max(1, checkpointInterval);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+
+        long validLength = 0;
+        if (resume && Files.exists(path)) {
+            validLength = load(path);
+            System.out.println("♻️ Retomando: " + answers.size() + " empresa(s) no diário, "
+                    + completedCompanies.size() + " concluída(s)");
+        }
+
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // Descarta o diário anterior (execução nova) ou uma última linha incompleta
+        channel.truncate(validLength);
+        channel.position(validLength);
+    }
+
+    /**
+     * Lê o diário existente.
+     *
+     * @return Tamanho em bytes da parte válida (até a última quebra de linha)
+     */
+    private long load(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n') {
+            end--;
+        }
+
+        String content = new String(bytes, 0, end, StandardCharsets.UTF_8);
+        for (String line : content.split("\n")) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length == 4 && (ANSWER.equals(fields[0]) || RAW_ANSWER.equals(fields[0]))) {
+                try {
+                    (ANSWER.equals(fields[0]) ? answers : rawAnswers)
+                            .computeIfAbsent(unescape(fields[1]), k -> new LinkedHashMap<>())
+                            .put(Integer.parseInt(fields[2]), unescape(fields[3]));
+                } catch (NumberFormatException e) {
+                    // Linha corrompida: ignorar
+                }
+            } else if (fields.length == 2 && COMPLETED.equals(fields[0])) {
+                completedCompanies.add(unescape(fields[1]));
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Registra uma resposta. A gravação em disco ocorre a cada CHECKPOINT_INTERVAL respostas.
+     *
+     * @param company Nome da empresa
+     * @param questionNumber Número da questão
+     * @param answer Resposta final (pós-processada)
+     * @throws WriteFailedException Se o checkpoint desta resposta não puder ser gravado
+     */
+    public synchronized void recordAnswer(String company, int questionNumber, String answer) {
+        answers.computeIfAbsent(company, k -> new LinkedHashMap<>()).put(questionNumber, answer);
+        pending.append(ANSWER).append('\t').append(escape(company)).append('\t')
+                .append(questionNumber).append('\t').append(escape(answer != null ? answer : "")).append('\n');
+        if (++pendingAnswers >= checkpointInterval) {
+            flush();
+        }
+    }
+
+    /**
+     * Registra a resposta bruta do Gemini (antes do pós-processamento).
+     *
+     * Gravada junto com a próxima resposta final; permite reaplicar regras de
+     * pós-processamento novas sem consultar o Gemini de novo (--renormalize).
+     *
+     * @param company Nome da empresa
+     * @param questionNumber Número da questão
+     * @param rawAnswer Resposta bruta
+     */
+    public synchronized void recordRawAnswer(String company, int questionNumber, String rawAnswer) {
+        rawAnswers.computeIfAbsent(company, k -> new LinkedHashMap<>()).put(questionNumber, rawAnswer);
+        pending.append(RAW_ANSWER).append('\t').append(escape(company)).append('\t')
+                .append(questionNumber).append('\t').append(escape(rawAnswer)).append('\n');
+    }
+
+    /**
+     * Marca a empresa como concluída (linha já gravada no CSV de saída) e grava o diário.
+     *
+     * @param company Nome da empresa
+     * @throws WriteFailedException Se o diário não puder ser gravado
+     */
+    public synchronized void markCompleted(String company) {
+        completedCompanies.add(company);
+        pending.append(COMPLETED).append('\t').append(escape(company)).append('\n');
+        flush();
+    }
+
+    /**
+     * Grava as linhas pendentes e força a escrita no disco (fsync).
+     *
+     * Em caso de erro, o que foi escrito nesta chamada é desfeito (truncate) e as
+     * linhas continuam pendentes: uma nova tentativa não duplica nem corta linhas.
+     *
+     * @throws WriteFailedException Se as linhas não puderem ser gravadas
+     */
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long position = -1;
+        try {
+            position = channel.position();
+            ByteBuffer buffer = ByteBuffer.wrap(pending.toString().getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            if (position >= 0) {
+                try {
+                    channel.truncate(position);
+                    channel.position(position);
+                } catch (IOException rollback) {
+                    e.addSuppressed(rollback);
+                }
+            }
+            System.err.println("⚠️ Erro ao gravar checkpoint: " + e.getMessage());
+            throw new WriteFailedException("Checkpoint não gravado (" + pendingAnswers + " resposta(s) pendente(s))", e);
+        }
+        System.out.println("💾 Checkpoint: " + pendingAnswers + " resposta(s) gravada(s)");
+        pending.setLength(0);
+        pendingAnswers = 0;
+    }
+
+    /**
+     * @return true se a empresa já foi concluída (em execução anterior ou nesta)
+     */
+    public synchronized boolean isCompleted(String company) {
+        return completedCompanies.contains(company);
+    }
+
+    /**
+     * @return true se a questão já foi respondida para a empresa
+     */
+    public synchronized boolean isAnswered(String company, int questionNumber) {
+        Map<Integer, String> companyAnswers = answers.get(company);
+        return companyAnswers != null && companyAnswers.containsKey(questionNumber);
+    }
+
+    /**
+     * @return Cópia das respostas registradas para a empresa (por número da questão)
+     */
+    public synchronized Map<Integer, String> getAnswers(String company) {
+        Map<Integer, String> companyAnswers = answers.get(company);
+        return companyAnswers != null ? new LinkedHashMap<>(companyAnswers) : new LinkedHashMap<>();
+    }
+
+    /**
+     * @return Resposta final registrada para a questão, ou null
+     */
+    public synchronized String getAnswer(String company, int questionNumber) {
+        Map<Integer, String> companyAnswers = answers.get(company);
+        return companyAnswers != null ? companyAnswers.get(questionNumber) : null;
+    }
+
+    /**
+     * @return Cópia das respostas brutas registradas para a empresa (por número da questão)
+     */
+    public synchronized Map<Integer, String> getRawAnswers(String company) {
+        Map<Integer, String> companyRawAnswers = rawAnswers.get(company);
+        return companyRawAnswers != null ? new LinkedHashMap<>(companyRawAnswers) : new LinkedHashMap<>();
+    }
+
+    /**
+     * @return Empresas presentes no diário, na ordem em que apareceram
+     */
+    public synchronized List<String> getCompanies() {
+        Set<String> companies = new LinkedHashSet<>(answers.keySet());
+        companies.addAll(completedCompanies);
+        return new ArrayList<>(companies);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } catch (WriteFailedException e) {
+            throw e.getCause();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '\t' -> sb.append("\\t");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                default -> sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                switch (next) {
+                    case 't' -> sb.append('\t');
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    default -> sb.append(next);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
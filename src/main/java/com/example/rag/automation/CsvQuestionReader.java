@@ -5,8 +5,16 @@ import com.example.rag.automation.model.Question;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Leitor do arquivo "Guia de Coleta.csv".
@@ -15,11 +23,45 @@ import java.util.List;
  * - Separador: ponto e vírgula (;)
  * - Aspas duplas escapadas ("")
  * - Quebras de linha dentro de células
+ * 
+ * CACHE DO GUIA:
+ * O guia é lido e parseado uma única vez por JVM e mantido em uma estrutura
+ * imutável indexada por posição e por número da questão, compartilhada por todas
+ * as instâncias (uma por empresa no lote). Cada acesso compara a data de modificação
+ * e o tamanho do arquivo com os da última leitura; se o guia for alterado durante
+ * um processo longo, ele é relido automaticamente.
  */
 public class CsvQuestionReader {
     
     private static final String CSV_FILE_PATH = "Guia de Coleta.csv";
     
+    /**
+     * Guia parseado (imutável), com os metadados do arquivo no momento da leitura.
+     */
+    private record QuestionGuide(List<Question> questions, Map<Integer, Question> byNumero,
+                                 FileTime lastModified, long size) {
+        
+        boolean isCurrent(FileTime currentModified, long currentSize) {
+            return lastModified.equals(currentModified) && size == currentSize;
+        }
+    }
+    
+    // Guias já carregados, por caminho absoluto do arquivo
+    private static final Map<Path, QuestionGuide> GUIDES = new ConcurrentHashMap<>();
+    
+    private final Path csvPath;
+    
+    public CsvQuestionReader() {
+        this(CSV_FILE_PATH);
+    }
+    
+    /**
+     * @param csvFilePath Caminho do guia de coleta
+     */
+    public CsvQuestionReader(String csvFilePath) {
+        this.csvPath = Paths.get(csvFilePath).toAbsolutePath().normalize();
+    }
+    
     /**
      * Lê uma questão específica do CSV pelo número.
      * 
@@ -28,12 +70,7 @@ public class CsvQuestionReader {
      * @throws IOException Se houver erro ao ler o arquivo
      */
     public Question readQuestion(int numero) throws IOException {
-        List<Question> allQuestions = readAllQuestions();
-        
-        return allQuestions.stream()
-                .filter(q -> q.getNumero() == numero)
-                .findFirst()
-                .orElse(null);
+        return loadGuide().byNumero().get(numero);
     }
     
     /**
@@ -44,7 +81,7 @@ public class CsvQuestionReader {
      * @throws IOException Se houver erro ao ler o arquivo
      */
     public Question readQuestionByIndex(int index) throws IOException {
-        List<Question> allQuestions = readAllQuestions();
+        List<Question> allQuestions = loadGuide().questions();
         
         if (index >= 0 && index < allQuestions.size()) {
             return allQuestions.get(index);
@@ -54,15 +91,67 @@ public class CsvQuestionReader {
     }
     
     /**
-     * Lê todas as questões do CSV.
+     * Lê todas as questões do CSV (a partir do cache, se o arquivo não mudou).
      * 
-     * @return Lista de questões
+     * @return Lista imutável de questões, na ordem do guia
      * @throws IOException Se houver erro ao ler o arquivo
      */
     public List<Question> readAllQuestions() throws IOException {
+        return loadGuide().questions();
+    }
+    
+    /**
+     * Retorna o guia em cache, relendo o arquivo se ele foi alterado desde a última leitura.
+     */
+    private QuestionGuide loadGuide() throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(csvPath, BasicFileAttributes.class);
+        QuestionGuide guide = GUIDES.get(csvPath);
+        if (guide != null && guide.isCurrent(attributes.lastModifiedTime(), attributes.size())) {
+            return guide;
+        }
+        
+        synchronized (GUIDES) {
+            // Outra thread pode ter recarregado enquanto aguardávamos
+            guide = GUIDES.get(csvPath);
+            if (guide != null && guide.isCurrent(attributes.lastModifiedTime(), attributes.size())) {
+                return guide;
+            }
+            if (guide != null) {
+                System.out.println("🔄 Guia de coleta alterado, recarregando: " + csvPath.getFileName());
+            }
+            
+            List<Question> questions = parseAllQuestions();
+            Map<Integer, Question> byNumero = new HashMap<>();
+            for (Question question : questions) {
+                // Em caso de número repetido, vale a primeira ocorrência (como na busca linear)
+                byNumero.putIfAbsent(question.getNumero(), question);
+            }
+            guide = new QuestionGuide(List.copyOf(questions), Map.copyOf(byNumero),
+                    attributes.lastModifiedTime(), attributes.size());
+            GUIDES.put(csvPath, guide);
+            return guide;
+        }
+    }
+    
+    /**
+     * Lê e parseia todas as questões do arquivo, sem usar o cache.
+     * 
+     * @return Lista de questões
+     * @throws IOException Se houver erro ao ler o arquivo
+     */
+    public List<Question> parseAllQuestions() throws IOException {
+        List<Question> questions = readQuestions();
+        System.out.println("✅ Carregadas " + questions.size() + " questões do guia");
+        return questions;
+    }
+    
+    /**
+     * Parsing do arquivo sem saída no console (medido pelo CsvQuestionReaderBenchmark).
+     */
+    List<Question> readQuestions() throws IOException {
         List<Question> questions = new ArrayList<>();
         
-        try (BufferedReader br = new BufferedReader(new FileReader(CSV_FILE_PATH))) {
+        try (BufferedReader br = new BufferedReader(new FileReader(csvPath.toFile()))) {
             // Pular cabeçalho
             String headerLine = br.readLine();
             if (headerLine == null) {
@@ -97,8 +186,6 @@ public class CsvQuestionReader {
                 }
             }
         }
-        
-        System.out.println("✅ Carregadas " + questions.size() + " questões do guia");
         return questions;
     }
     
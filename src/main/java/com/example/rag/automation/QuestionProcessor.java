@@ -1,11 +1,32 @@
 package com.example.rag.automation;
 
+import com.example.rag.automation.model.AnswerTrace;
 import com.example.rag.automation.model.Question;
+import com.example.rag.automation.model.TipoQuestao;
+import com.example.rag.config.Config;
+import com.example.rag.retrieval.ContextBuilder;
 import com.example.rag.retrieval.RagQueryEngine;
+import com.example.rag.retrieval.RateLimiter;
+import com.example.rag.retrieval.SectionFilter;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -22,10 +43,109 @@ import java.util.stream.Collectors;
  */
 public class QuestionProcessor {
     
+    /**
+     * Regras de identificação de conselheiros e membros de comitês (questões de contagem).
+     * Compartilhadas entre o prompt individual e o prompt com várias questões.
+     */
+    private static final String COUNTING_RULES = """
+            ═══════════════════════════════════════════════════════════════
+            REGRA ABSOLUTA - Identificar membros corretamente:
+            ═══════════════════════════════════════════════════════════════
+            
+            CONSELHEIRO = SOMENTE se tiver esta estrutura:
+               Nome: [NOME COMPLETO]
+               CPF: [###.###.###-##]
+               Órgãos da Administração:
+                  Órgão da Administração: "Conselho de Administração"
+            
+            NÃO É CONSELHEIRO se:
+               • Órgão da Administração = "Diretoria" (mesmo que seja diretor)
+               • Só aparece em seção "Comitês:" (sem tabela "Órgãos da Administração")
+               • Não tem a coluna "Órgão da Administração" = "Conselho de Administração"
+            
+            ═══════════════════════════════════════════════════════════════
+            TIPOS DE CONSELHEIROS (veja coluna "Cargo eletivo ocupado"):
+            ═══════════════════════════════════════════════════════════════
+            
+            INDEPENDENTE:
+               "Cargo eletivo ocupado" contém "Independente"
+               Exemplos: "Conselho de Adm. Independente (Efetivo)"
+               DEVE ter "Órgão da Administração" = "Conselho de Administração"
+
+            EXTERNO:
+               "Cargo eletivo ocupado" = "Conselho de Administração (Efetivo)"
+               SEM palavra "Independente" E SEM palavra "Diretor"
+               DEVE ter "Órgão da Administração" = "Conselho de Administração"
+
+            EXECUTIVO:
+               Aparece em DUAS linhas: uma com Diretoria E outra com Conselho
+               OU "Cargo eletivo ocupado" contém "Diretor" E "Conselheiro"
+               Exemplo: "Conselheiro(Efetivo) e Dir. Presidente"
+
+            ═══════════════════════════════════════════════════════════════
+            📋 MEMBROS DE COMITÊS (seção 7.4):
+            ═══════════════════════════════════════════════════════════════
+            
+            Procure seção "Comitês:" após os dados da pessoa
+            Tabela tem: "Tipo comitê", "Cargo ocupado", "Data posse"
+            ATENÇÃO: Pessoa pode estar em Comitê E ser Conselheiro (se tiver ambas as seções)
+            Se pergunta sobre "membros do Comitê que são conselheiros":
+               → Conte APENAS quem aparece em "Comitês:" E tem "Órgão da Administração" = "Conselho de Administração"
+            
+            ═══════════════════════════════════════════════════════════════
+            """;
+    
+    // Seção do FR em "Onde?" (ex: "2.1", "7.3")
+    private static final Pattern SECTION_PATTERN = Pattern.compile("\\d+\\.\\d+");
+    private static final Pattern DIGITS_PATTERN = Pattern.compile("\\d+");
+    
+    private static final String NOT_FOUND = AnswerNormalizer.NOT_FOUND;
+    
     private final RagQueryEngine ragEngine;
     
+    // Destino das respostas brutas do Gemini (com score do retrieval e latência), ou null
+    private final Consumer<AnswerTrace> traceSink;
+    
+    // Destino de cada resposta final obtida (número da questão, resposta), ou null
+    private final BiConsumer<Integer, String> answerSink;
+    
+    /**
+     * Prompt pronto para o Gemini, com a maior similaridade recuperada, o início da questão
+     * e as operações de retrieval feitas para ela (não os contadores do motor, que
+     * são compartilhados pelas questões em paralelo).
+     */
+    private record PreparedPrompt(String prompt, double retrievalScore, long startNanos,
+                                  int embeddingCalls, int searchCalls) {
+    }
+    
     public QuestionProcessor(RagQueryEngine ragEngine) {
+        this(ragEngine, null);
+    }
+    
+    /**
+     * @param ragEngine Motor RAG sobre o índice do PDF da empresa
+     * @param traceSink Recebe cada resposta bruta do Gemini antes do pós-processamento
+     *                  (ex: CheckpointJournal.recordRawAnswer, para o modo --renormalize).
+     *                  Pode ser chamado por várias threads nos modos assíncrono/virtual threads.
+     */
+    public QuestionProcessor(RagQueryEngine ragEngine, Consumer<AnswerTrace> traceSink) {
+        this(ragEngine, traceSink, null);
+    }
+    
+    /**
+     * @param ragEngine Motor RAG sobre o índice do PDF da empresa
+     * @param traceSink Recebe cada resposta bruta do Gemini antes do pós-processamento
+     * @param answerSink Recebe cada resposta final assim que a questão termina
+     *                   (ex: CheckpointJournal.recordAnswer). NÃO é chamado quando a questão
+     *                   falha ("ERRO: ..." ou geração sem resposta por erro de API/cota), para
+     *                   que a retomada (--resume) processe a questão de novo.
+     *                   Pode ser chamado por várias threads nos modos assíncrono/virtual threads.
+     */
+    public QuestionProcessor(RagQueryEngine ragEngine, Consumer<AnswerTrace> traceSink,
+                             BiConsumer<Integer, String> answerSink) {
         this.ragEngine = ragEngine;
+        this.traceSink = traceSink;
+        this.answerSink = answerSink;
     }
     
     /**
@@ -35,55 +155,515 @@ public class QuestionProcessor {
      * @return Resposta formatada
      */
     public String processQuestion(Question question) {
+        try {
+            return answerQuestion(question);
+        } catch (CheckpointJournal.WriteFailedException e) {
+            // Diário sem gravar: não é falha da questão, interrompe o lote
+            throw e;
+        } catch (Exception e) {
+            System.err.println("❌ Erro ao processar questão: " + e.getMessage());
+            e.printStackTrace();
+            return "ERRO: " + e.getMessage();
+        }
+    }
+    
+    /**
+     * Corpo de processQuestion, sem converter exceções em "ERRO: ...".
+     * 
+     * Usado diretamente pelo modo virtual threads, em que uma exceção cancela as
+     * demais questões da empresa.
+     */
+    private String answerQuestion(Question question) {
+        // PASSOS 1-4: Retrieval e prompt estruturado
+        PreparedPrompt structuredPrompt = prepareStructuredPrompt(question);
+        if (structuredPrompt == null) {
+            return recordAnswer(question, NOT_FOUND);
+        }
+        
+        // PASSO 5: Enviar para Gemini (somente geração: o retrieval já foi feito no PASSO 2)
+        System.out.println("\n🤖 Enviando para Gemini...");
+        String rawAnswer = ragEngine.generate(structuredPrompt.prompt());
+        System.out.println("   📊 Embeddings: " + structuredPrompt.embeddingCalls()
+                + " | Buscas: " + structuredPrompt.searchCalls());
+
+        // PASSO 6: Pós-processar resposta
+        return finishAnswer(rawAnswer, question, structuredPrompt);
+    }
+    
+    /**
+     * Versão assíncrona de processQuestion, composta como futures:
+     * retrieval + prompt (pool comum) → geração não bloqueante (generateAsync) → pós-processamento.
+     * 
+     * Nenhuma thread fica bloqueada enquanto a chamada ao Gemini está em andamento ou
+     * aguardando o rate limiter, então dezenas de questões podem estar em voo ao mesmo tempo.
+     * 
+     * @param question Questão do guia
+     * @return Future com a resposta formatada (erros viram "ERRO: ..."; só falha com
+     *         CheckpointJournal.WriteFailedException, quando o diário não pôde ser gravado)
+     */
+    public CompletableFuture<String> processQuestionAsync(Question question) {
+        return CompletableFuture.supplyAsync(() -> prepareStructuredPrompt(question))
+                .thenCompose(prompt -> prompt == null
+                        ? CompletableFuture.completedFuture(recordAnswer(question, NOT_FOUND))
+                        : ragEngine.generateAsync(prompt.prompt())
+                                .thenApply(rawAnswer -> finishAnswer(rawAnswer, question, prompt)))
+                .exceptionally(e -> {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof CheckpointJournal.WriteFailedException journalFailure) {
+                        throw journalFailure;
+                    }
+                    System.err.println("❌ Erro ao processar questão " + question.getNumero() + ": " + cause.getMessage());
+                    return "ERRO: " + cause.getMessage();
+                });
+    }
+    
+    /**
+     * Dispara todas as questões de forma assíncrona e reúne as respostas.
+     * 
+     * A cota do Gemini continua respeitada: cada chamada passa pelo RateLimiter
+     * compartilhado (RateLimiter.acquireAsync) antes de ser enviada.
+     * 
+     * @param questions Questões do guia
+     * @return Future com as respostas por número da questão (na ordem de entrada)
+     */
+    public CompletableFuture<Map<Integer, String>> processQuestionsAsync(List<Question> questions) {
+        Map<Integer, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        for (Question q : questions) {
+            futures.put(q.getNumero(), processQuestionAsync(q));
+        }
+        return CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                .thenApply(done -> {
+                    Map<Integer, String> answers = new LinkedHashMap<>();
+                    futures.forEach((numero, future) -> answers.put(numero, future.join()));
+                    return answers;
+                });
+    }
+    
+    /**
+     * Processa as questões de uma empresa, cada uma em sua própria virtual thread.
+     * 
+     * Entre o retrieval e a resposta do Gemini, processQuestion passa quase todo o tempo
+     * esperando (rate limiter e rede). Virtual threads tornam essa espera barata: todas as
+     * questões ficam em voo ao mesmo tempo e o RateLimiter compartilhado decide quando
+     * cada chamada é enviada.
+     * 
+     * ESCOPO POR EMPRESA:
+     * O executor é criado e fechado nesta chamada (try-with-resources), então nenhuma
+     * tarefa sobrevive ao método. As tarefas executam a questão sem o tratamento de
+     * processQuestion (exceções não viram "ERRO: ..."): a primeira exceção cancela
+     * (interrompe) as demais tarefas desta empresa e é propagada como
+     * IllegalStateException; as outras empresas do lote não são afetadas. Respostas já
+     * obtidas foram entregues ao answerSink; as canceladas não.
+     * 
+     * Falhas na chamada ao Gemini (generate devolve null) não são exceções: a questão
+     * fica como "INFORMAÇÃO NÃO ENCONTRADA", sem registro, como nos outros modos.
+     * 
+     * @param questions Questões do guia
+     * @return Respostas formatadas por número da questão (na ordem de entrada)
+     * @throws InterruptedException Se a thread chamadora for interrompida
+     * @throws IllegalStateException Se uma questão falhar (causa = exceção da questão)
+     */
+    public Map<Integer, String> processQuestionsOnVirtualThreads(List<Question> questions) throws InterruptedException {
+        Map<Future<String>, Question> tasks = new HashMap<>();
+        Map<Integer, String> completed = new HashMap<>();
+        
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("question-", 1).factory())) {
+            CompletionService<String> completion = new ExecutorCompletionService<>(executor);
+            for (Question q : questions) {
+                tasks.put(completion.submit(() -> answerQuestion(q)), q);
+            }
+            
+            // Resultados em ordem de conclusão: a primeira falha cancela as tarefas restantes
+            try {
+                for (int i = 0; i < tasks.size(); i++) {
+                    Future<String> done = completion.take();
+                    completed.put(tasks.get(done).getNumero(), done.get());
+                }
+            } catch (ExecutionException e) {
+                executor.shutdownNow();
+                throw new IllegalStateException("Falha em uma questão; tarefas restantes canceladas", e.getCause());
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                throw e;
+            }
+        }
+        
+        Map<Integer, String> answers = new LinkedHashMap<>();
+        for (Question q : questions) {
+            answers.put(q.getNumero(), completed.get(q.getNumero()));
+        }
+        return answers;
+    }
+    
+    /**
+     * PASSOS 1 a 4: query enriquecida, retrieval, contexto e prompt estruturado.
+     * 
+     * @return Prompt pronto para o Gemini, ou null se nenhum chunk relevante foi encontrado
+     */
+    private PreparedPrompt prepareStructuredPrompt(Question question) {
+        long startNanos = System.nanoTime();
         System.out.println("\n" + "=".repeat(80));
         System.out.println("📋 Processando Questão " + question.getNumero() + ": " + question.getQuestao());
         System.out.println("=".repeat(80));
         
-        try {
-            // PASSO 1: Enriquecer query de busca
-            String enrichedQuery = buildEnrichedSearchQuery(question);
-            System.out.println("\n🔍 Query enriquecida:");
-            System.out.println("   " + enrichedQuery.substring(0, Math.min(100, enrichedQuery.length())) + "...");
-            
-            // PASSO 2: Buscar chunks relevantes
-            System.out.println("\n🔎 Buscando chunks relevantes...");
-            List<EmbeddingMatch<TextSegment>> matches = ragEngine.retrieveOnly(enrichedQuery);
-            
-            if (matches.isEmpty()) {
-                System.out.println("   ⚠️ Nenhum chunk relevante encontrado!");
-                return "INFORMAÇÃO NÃO ENCONTRADA";
+        // PASSO 1: Enriquecer query de busca
+        String enrichedQuery = buildEnrichedSearchQuery(question);
+        System.out.println("\n🔍 Query enriquecida:");
+        System.out.println("   " + enrichedQuery.substring(0, Math.min(100, enrichedQuery.length())) + "...");
+        
+        // PASSO 2: Buscar chunks relevantes
+        System.out.println("\n🔎 Buscando chunks relevantes...");
+        // Restrito à seção do FR indicada em "Onde?" (fallback: documento inteiro)
+        RagQueryEngine.Retrieval retrieval = ragEngine.retrieve(enrichedQuery,
+                SectionFilter.fromOnde(question.getOnde()));
+        List<EmbeddingMatch<TextSegment>> matches = retrieval.matches();
+        
+        if (matches.isEmpty()) {
+            System.out.println("   ⚠️ Nenhum chunk relevante encontrado!");
+            return null;
+        }
+        
+        System.out.println("   ✅ Encontrados " + matches.size() + " chunks");
+        printTopMatches(matches, 3);
+        
+        // PASSO 3: Construir contexto (orçamento de tokens do tipo da questão)
+        int tokenBudget = question.getTipo() != null
+                ? Config.contextTokenBudget(question.getTipo().name())
+                : Config.CONTEXT_TOKEN_BUDGET;
+        String context = buildContext(matches, tokenBudget);
+        
+        // PASSO 4: Criar prompt estruturado
+        // Maior similaridade, não a do primeiro: na busca híbrida a ordem é a da fusão RRF
+        return new PreparedPrompt(buildStructuredPrompt(question, context), retrieval.bestScore(), startNanos,
+                retrieval.embeddingCalls(), retrieval.searchCalls());
+    }
+    
+    /**
+     * PASSO 6: pós-processa a resposta bruta do Gemini.
+     */
+    private String finishAnswer(String rawAnswer, Question question, PreparedPrompt prepared) {
+        // Se rawAnswer for nulo (ex: erro de API/rate-limit), tratar como não encontrada,
+        // sem registrar: a questão volta a ser processada na retomada
+        if (rawAnswer == null) {
+            System.err.println("   ⚠️ Resposta do LLM é nula — tratando como informação não encontrada (provável erro na chamada ao modelo)");
+            return NOT_FOUND;
+        }
+
+        recordTrace(question, rawAnswer, prepared.retrievalScore(), prepared.startNanos());
+        String finalAnswer = recordAnswer(question, postProcessAnswer(rawAnswer, question));
+        
+        System.out.println("\n✅ Resposta final (Q" + question.getNumero() + "): " + finalAnswer);
+        return finalAnswer;
+    }
+    
+    /**
+     * Processa várias questões, agrupando as que compartilham a mesma seção do FR
+     * em uma única chamada ao Gemini.
+     * 
+     * ESTRATÉGIA:
+     * 1. Agrupa questões pela seção de "Onde?" (ex: "7.3", "2.1"), em grupos de
+     *    no máximo Config.MAX_QUESTIONS_PER_PROMPT
+     * 2. Para cada grupo, faz o retrieval de cada questão (local, barato) e une os
+     *    chunks sem repetição, intercalando por ranking e limitado a MAX_RESULTS_FOR_RETRIEVAL
+     * 3. Envia um único prompt pedindo as respostas em JSON ({"numero": "resposta"})
+     * 4. Distribui as respostas e aplica o pós-processamento específico de cada tipo
+     * 
+     * Questões sozinhas em seu grupo, ou cuja resposta não veio no JSON, são
+     * processadas individualmente por processQuestion.
+     * 
+     * FALHA NO GRUPO:
+     * Se a chamada do grupo falhar (generate devolve null, ex: erro de API ou cota
+     * esgotada) ou lançar exceção, as questões do grupo ficam como "INFORMAÇÃO NÃO
+     * ENCONTRADA", sem registro, e voltam a ser processadas com --resume. Não há
+     * recurso a uma chamada por questão: multiplicaria as requisições justamente
+     * quando a cota acabou.
+     * 
+     * @param questions Questões do guia
+     * @return Respostas formatadas por número da questão (na ordem de entrada)
+     */
+    public Map<Integer, String> processQuestions(List<Question> questions) {
+        Map<Integer, String> answers = new LinkedHashMap<>();
+        
+        for (List<Question> group : groupBySection(questions)) {
+            if (group.size() == 1) {
+                Question single = group.get(0);
+                answers.put(single.getNumero(), processQuestion(single));
+                continue;
             }
             
-            System.out.println("   ✅ Encontrados " + matches.size() + " chunks");
-            printTopMatches(matches, 3);
+            System.out.println("\n" + "=".repeat(80));
+            System.out.println("📋 Processando grupo de " + group.size() + " questões: "
+                    + group.stream().map(q -> "Q" + q.getNumero()).collect(Collectors.joining(", ")));
+            System.out.println("=".repeat(80));
             
-            // PASSO 3: Construir contexto
-            String context = buildContext(matches);
+            Map<Integer, String> rawAnswers = Map.of();
+            long groupStart = System.nanoTime();
+            double groupScore = Double.NaN;
+            boolean groupFailed = false;
+            try {
+                List<EmbeddingMatch<TextSegment>> matches = retrieveForGroup(group);
+                if (!matches.isEmpty()) {
+                    groupScore = matches.stream().mapToDouble(EmbeddingMatch::score).max().getAsDouble();
+                    printTopMatches(matches, 3);
+                    String prompt = buildMultiQuestionPrompt(group, buildContext(matches, Config.CONTEXT_TOKEN_BUDGET));
+                    System.out.println("\n🤖 Enviando grupo para Gemini...");
+                    String rawAnswer = ragEngine.generate(prompt);
+                    if (rawAnswer != null) {
+                        rawAnswers = parseJsonAnswers(rawAnswer);
+                    } else {
+                        System.err.println("   ⚠️ Resposta do LLM é nula para o grupo (provável erro na chamada ao modelo)");
+                        groupFailed = true;
+                    }
+                }
+            } catch (Exception e) {
+                System.err.println("❌ Erro ao processar grupo: " + e.getMessage());
+                groupFailed = true;
+            }
             
-            // PASSO 4: Criar prompt estruturado
-            String structuredPrompt = buildStructuredPrompt(question, context);
+            if (groupFailed) {
+                // Sem registro no diário: o grupo inteiro volta a ser processado com --resume
+                System.err.println("   ⚠️ " + group.size() + " questões sem resposta, pendentes para --resume");
+                for (Question q : group) {
+                    answers.put(q.getNumero(), NOT_FOUND);
+                }
+                continue;
+            }
             
-            // PASSO 5: Enviar para Gemini
-            System.out.println("\n🤖 Enviando para Gemini...");
-            String rawAnswer = ragEngine.query(structuredPrompt);
-
-            // PASSO 6: Pós-processar resposta
-            // Se rawAnswer for nulo (ex: erro de API/rate-limit), tratar como não encontrada
-            if (rawAnswer == null) {
-                System.err.println("   ⚠️ Resposta do LLM é nula — tratando como informação não encontrada (provável erro na chamada ao modelo)");
-                return "INFORMAÇÃO NÃO ENCONTRADA";
+            for (Question q : group) {
+                String raw = rawAnswers.get(q.getNumero());
+                if (raw == null) {
+                    // Resposta ausente no JSON: recorrer ao processamento individual
+                    System.out.println("   ⚠️ Q" + q.getNumero() + " sem resposta no lote, processando individualmente");
+                    answers.put(q.getNumero(), processQuestion(q));
+                } else {
+                    recordTrace(q, raw, groupScore, groupStart);
+                    String finalAnswer = recordAnswer(q, postProcessAnswer(raw, q));
+                    System.out.println("   ✅ Q" + q.getNumero() + ": " + finalAnswer);
+                    answers.put(q.getNumero(), finalAnswer);
+                }
             }
-
-            String finalAnswer = postProcessAnswer(rawAnswer, question);
+        }
+        return answers;
+    }
+    
+    /**
+     * Agrupa questões pela seção do FR indicada em "Onde?".
+     * 
+     * A seção é o primeiro número no formato "N.N" (ex: "2.1, item h" → "2.1").
+     * Grupos maiores que MAX_QUESTIONS_PER_PROMPT são divididos.
+     */
+    private List<List<Question>> groupBySection(List<Question> questions) {
+        Map<String, List<Question>> bySection = new LinkedHashMap<>();
+        for (Question q : questions) {
+            String onde = q.getOnde() != null ? q.getOnde() : "";
+            Matcher matcher = SECTION_PATTERN.matcher(onde);
+            String section = matcher.find() ? matcher.group() : onde.trim();
+            // Sem seção identificável: não agrupar
+            String key = section.isEmpty() ? "#" + q.getNumero() : section;
+            bySection.computeIfAbsent(key, k -> new ArrayList<>()).add(q);
+        }
+        
+        int maxPerPrompt = Math.max(1, Config.MAX_QUESTIONS_PER_PROMPT);
+        List<List<Question>> groups = new ArrayList<>();
+        for (List<Question> sectionQuestions : bySection.values()) {
+            for (int i = 0; i < sectionQuestions.size(); i += maxPerPrompt) {
+                groups.add(sectionQuestions.subList(i, Math.min(i + maxPerPrompt, sectionQuestions.size())));
+            }
+        }
+        return groups;
+    }
+    
+    /**
+     * Faz o retrieval de cada questão do grupo e une os chunks sem repetição.
+     * 
+     * Os resultados são intercalados por posição no ranking (1º de cada questão,
+     * depois 2º de cada questão...) para que todas as questões tenham contexto,
+     * limitados a MAX_RESULTS_FOR_RETRIEVAL chunks no total.
+     */
+    private List<EmbeddingMatch<TextSegment>> retrieveForGroup(List<Question> group) {
+        List<List<EmbeddingMatch<TextSegment>>> perQuestion = new ArrayList<>();
+        int longest = 0;
+        for (Question q : group) {
+            List<EmbeddingMatch<TextSegment>> matches = ragEngine.retrieveOnly(buildEnrichedSearchQuery(q),
+                    SectionFilter.fromOnde(q.getOnde()));
+            perQuestion.add(matches);
+            longest = Math.max(longest, matches.size());
+        }
+        
+        Set<String> seen = new HashSet<>();
+        List<EmbeddingMatch<TextSegment>> merged = new ArrayList<>();
+        for (int rank = 0; rank < longest && merged.size() < Config.MAX_RESULTS_FOR_RETRIEVAL; rank++) {
+            for (List<EmbeddingMatch<TextSegment>> matches : perQuestion) {
+                if (rank < matches.size() && merged.size() < Config.MAX_RESULTS_FOR_RETRIEVAL) {
+                    EmbeddingMatch<TextSegment> match = matches.get(rank);
+                    if (seen.add(match.embeddingId())) {
+                        merged.add(match);
+                    }
+                }
+            }
+        }
+        return merged;
+    }
+    
+    /**
+     * Constrói prompt com várias questões e saída estruturada em JSON.
+     * 
+     * Cada questão leva seu tipo, localização, instruções e formato esperado;
+     * as regras de contagem são incluídas uma única vez se houver questão de contagem.
+     */
+    private String buildMultiQuestionPrompt(List<Question> group, String context) {
+        StringBuilder questionsBlock = new StringBuilder();
+        boolean hasCounting = false;
+        for (Question q : group) {
+            questionsBlock.append("QUESTÃO ").append(q.getNumero()).append(" (").append(q.getTipo()).append("): ")
+                    .append(q.getQuestao()).append("\n");
+            questionsBlock.append("   LOCALIZAÇÃO: ").append(q.getOnde() != null ? q.getOnde() : "FR").append("\n");
+            if (q.getComoPreencher() != null && !q.getComoPreencher().isEmpty()) {
+                questionsBlock.append("   INSTRUÇÕES: ").append(q.getComoPreencher()).append("\n");
+            }
+            if (q.getObservacoes() != null && !q.getObservacoes().isEmpty()) {
+                questionsBlock.append("   OBSERVAÇÕES: ").append(q.getObservacoes()).append("\n");
+            }
+            questionsBlock.append("   FORMATO: ").append(expectedFormat(q)).append("\n\n");
+            hasCounting |= q.getTipo() == TipoQuestao.CONTAGEM;
+        }
+        
+        return String.format("""
+            Você é um assistente especializado em análise de Formulários de Referência.
             
-            System.out.println("\n✅ Resposta final: " + finalAnswer);
-            return finalAnswer;
+            TAREFA: Responder TODAS as questões abaixo com base nos documentos fornecidos.
             
-        } catch (Exception e) {
-            System.err.println("❌ Erro ao processar questão: " + e.getMessage());
-            e.printStackTrace();
-            return "ERRO: " + e.getMessage();
+            %s
+            DOCUMENTOS:
+            %s
+            
+            %s
+            REGRAS CRÍTICAS:
+            1. Responda cada questão seguindo EXATAMENTE o formato indicado para ela
+            2. NÃO inclua explicações, justificativas ou texto adicional nas respostas
+            3. Se não encontrar a informação de uma questão: "INFORMAÇÃO NÃO ENCONTRADA"
+            4. Retorne APENAS um objeto JSON, sem markdown, no formato:
+               {"NÚMERO_DA_QUESTÃO": "resposta", ...}
+               Exemplo: {"30": "9 (João Silva, Maria Santos, ...)", "31": "2 (Maria Santos, Ana Lima)"}
+            
+            RESPOSTA (apenas o JSON):
+            """,
+            questionsBlock,
+            context,
+            hasCounting ? COUNTING_RULES + "\n" : ""
+        );
+    }
+    
+    /**
+     * Formato de resposta esperado por tipo (resumo das regras dos prompts individuais).
+     */
+    private String expectedFormat(Question q) {
+        switch (q.getTipo()) {
+            case MONETARIA:
+                return "apenas número + unidade (ex: \"4.872.707 (em R$ mil)\"), com \"-\" para prejuízo";
+            case SIM_NAO:
+                return "apenas SIM, NÃO, NÃO DIVULGADO ou NÃO APLICADO";
+            case CONTAGEM:
+                return "NÚMERO (Nome1, Nome2, ...) ou apenas \"0\"";
+            case TEXTO_ESPECIFICO:
+                return "texto curto copiado literalmente do documento (máximo 150 caracteres)";
+            case MULTIPLA_ESCOLHA:
+                return "apenas o texto EXATO de uma das opções listadas nas instruções";
+            default:
+                return "apenas a informação solicitada";
+        }
+    }
+    
+    /**
+     * Extrai as respostas de um objeto JSON plano {"numero": "resposta"}.
+     * 
+     * Tolerante a cercas de markdown (```json) e texto antes/depois do objeto.
+     * Valores numéricos sem aspas também são aceitos.
+     * 
+     * @param raw Resposta bruta do LLM
+     * @return Respostas por número da questão (vazio se o JSON for inválido)
+     */
+    private Map<Integer, String> parseJsonAnswers(String raw) {
+        Map<Integer, String> result = new HashMap<>();
+        int start = raw.indexOf('{');
+        int end = raw.lastIndexOf('}');
+        if (start < 0 || end <= start) {
+            System.err.println("   ⚠️ Resposta do lote não contém JSON");
+            return result;
+        }
+        
+        String json = raw.substring(start + 1, end);
+        int i = 0;
+        while (i < json.length()) {
+            // Chave
+            int keyStart = json.indexOf('"', i);
+            if (keyStart < 0) break;
+            StringBuilder key = new StringBuilder();
+            i = readJsonString(json, keyStart, key);
+            int colon = json.indexOf(':', i);
+            if (colon < 0) break;
+            i = colon + 1;
+            while (i < json.length() && Character.isWhitespace(json.charAt(i))) i++;
+            if (i >= json.length()) break;
+            
+            // Valor (string ou literal até a próxima vírgula)
+            String value;
+            if (json.charAt(i) == '"') {
+                StringBuilder sb = new StringBuilder();
+                i = readJsonString(json, i, sb);
+                value = sb.toString();
+            } else {
+                int comma = json.indexOf(',', i);
+                int valueEnd = comma < 0 ? json.length() : comma;
+                value = json.substring(i, valueEnd).trim();
+                i = valueEnd;
+            }
+            
+            Matcher number = DIGITS_PATTERN.matcher(key);
+            if (number.find()) {
+                result.put(Integer.parseInt(number.group()), value);
+            }
+            
+            int comma = json.indexOf(',', i);
+            if (comma < 0) break;
+            i = comma + 1;
+        }
+        return result;
+    }
+    
+    /**
+     * Lê uma string JSON a partir da aspa de abertura, tratando escapes.
+     * 
+     * @return Posição logo após a aspa de fechamento
+     */
+    private int readJsonString(String json, int openingQuote, StringBuilder out) {
+        int i = openingQuote + 1;
+        while (i < json.length()) {
+            char c = json.charAt(i);
+            if (c == '\\' && i + 1 < json.length()) {
+                char next = json.charAt(i + 1);
+                switch (next) {
+                    case 'n' -> out.append('\n');
+                    case 't' -> out.append('\t');
+                    case 'r' -> out.append('\r');
+                    case 'u' -> {
+                        if (i + 5 < json.length()) {
+                            out.append((char) Integer.parseInt(json.substring(i + 2, i + 6), 16));
+                            i += 4;
+                        }
+                    }
+                    default -> out.append(next);
+                }
+                i += 2;
+            } else if (c == '"') {
+                return i + 1;
+            } else {
+                out.append(c);
+                i++;
+            }
         }
+        return i;
     }
     
     /**
@@ -116,12 +696,16 @@ public class QuestionProcessor {
     }
     
     /**
-     * Constrói contexto a partir dos chunks recuperados.
+     * Constrói contexto a partir dos chunks recuperados, limitado ao orçamento de tokens
+     * (sem sobreposições entre chunks vizinhos e sem a cauda de score baixo).
      */
-    private String buildContext(List<EmbeddingMatch<TextSegment>> matches) {
-        return matches.stream()
-                .map(match -> match.embedded().text())
-                .collect(Collectors.joining("\n\n---\n\n"));
+    private String buildContext(List<EmbeddingMatch<TextSegment>> matches, int tokenBudget) {
+        ContextBuilder builder = new ContextBuilder(tokenBudget, Config.CONTEXT_SCORE_MARGIN);
+        String context = builder.build(matches);
+        System.out.println("   📦 Contexto: " + builder.getIncludedChunks() + "/" + matches.size() + " chunks, ~"
+                + RateLimiter.estimateTokens(context) + " de " + tokenBudget + " tokens ("
+                + builder.getTrimmedChars() + " caracteres repetidos removidos)");
+        return context;
     }
     
     /**
@@ -231,52 +815,7 @@ public class QuestionProcessor {
             DOCUMENTOS:
             %s
             
-            ═══════════════════════════════════════════════════════════════
-            REGRA ABSOLUTA - Identificar membros corretamente:
-            ═══════════════════════════════════════════════════════════════
-            
-            CONSELHEIRO = SOMENTE se tiver esta estrutura:
-               Nome: [NOME COMPLETO]
-               CPF: [###.###.###-##]
-               Órgãos da Administração:
-                  Órgão da Administração: "Conselho de Administração"
-            
-            NÃO É CONSELHEIRO se:
-               • Órgão da Administração = "Diretoria" (mesmo que seja diretor)
-               • Só aparece em seção "Comitês:" (sem tabela "Órgãos da Administração")
-               • Não tem a coluna "Órgão da Administração" = "Conselho de Administração"
-            
-            ═══════════════════════════════════════════════════════════════
-            TIPOS DE CONSELHEIROS (veja coluna "Cargo eletivo ocupado"):
-            ═══════════════════════════════════════════════════════════════
-            
-            INDEPENDENTE:
-               "Cargo eletivo ocupado" contém "Independente"
-               Exemplos: "Conselho de Adm. Independente (Efetivo)"
-               DEVE ter "Órgão da Administração" = "Conselho de Administração"
-
-            EXTERNO:
-               "Cargo eletivo ocupado" = "Conselho de Administração (Efetivo)"
-               SEM palavra "Independente" E SEM palavra "Diretor"
-               DEVE ter "Órgão da Administração" = "Conselho de Administração"
-
-            EXECUTIVO:
-               Aparece em DUAS linhas: uma com Diretoria E outra com Conselho
-               OU "Cargo eletivo ocupado" contém "Diretor" E "Conselheiro"
-               Exemplo: "Conselheiro(Efetivo) e Dir. Presidente"
-
-            ═══════════════════════════════════════════════════════════════
-            📋 MEMBROS DE COMITÊS (seção 7.4):
-            ═══════════════════════════════════════════════════════════════
-            
-            Procure seção "Comitês:" após os dados da pessoa
-            Tabela tem: "Tipo comitê", "Cargo ocupado", "Data posse"
-            ATENÇÃO: Pessoa pode estar em Comitê E ser Conselheiro (se tiver ambas as seções)
-            Se pergunta sobre "membros do Comitê que são conselheiros":
-               → Conte APENAS quem aparece em "Comitês:" E tem "Órgão da Administração" = "Conselho de Administração"
-            
-            ═══════════════════════════════════════════════════════════════
-            
+            %s
             INSTRUÇÕES: %s
             OBSERVAÇÕES: %s
             
@@ -288,6 +827,7 @@ public class QuestionProcessor {
             """,
             q.getQuestao(),
             context,
+            COUNTING_RULES,
             q.getComoPreencher() != null ? q.getComoPreencher() : "",
             q.getObservacoes() != null ? q.getObservacoes() : ""
         );
@@ -412,326 +952,36 @@ public class QuestionProcessor {
     }
     
     /**
-     * Pós-processa resposta aplicando regras específicas por tipo.
+     * Entrega uma resposta obtida com sucesso ao answerSink.
      * 
-     * ESTRATÉGIA:
-     * - Extrai apenas o valor relevante
-     * - Remove textos explicativos indesejados
-     * - Aplica formatação padronizada
+     * @return A própria resposta
      */
-    private String postProcessAnswer(String rawAnswer, Question q) {
-        if (rawAnswer == null || rawAnswer.trim().isEmpty()) {
-            return "INFORMAÇÃO NÃO ENCONTRADA";
-        }
-        
-        String processed = rawAnswer.trim();
-        
-        // Aplicar pós-processamento específico por tipo
-        switch (q.getTipo()) {
-            case MONETARIA:
-                processed = postProcessMonetary(processed);
-                break;
-            case SIM_NAO:
-                processed = postProcessYesNo(processed);
-                break;
-            case CONTAGEM:
-                processed = postProcessCounting(processed);
-                break;
-            case TEXTO_ESPECIFICO:
-                processed = postProcessText(processed);
-                break;
-            case MULTIPLA_ESCOLHA:
-                processed = postProcessMultipleChoice(processed, q);
-                break;
-            default:
-                processed = cleanGenericAnswer(processed);
+    private String recordAnswer(Question q, String answer) {
+        if (answerSink != null) {
+            answerSink.accept(q.getNumero(), answer);
         }
-        
-        return processed;
-    }
-    
-    /**
-     * Pós-processa respostas monetárias.
-     * Extrai número + unidade, aplica multiplicação se necessário.
-     */
-    private String postProcessMonetary(String answer) {
-        // Sempre delegar para applyMonetaryRules, que agora preserva o sinal negativo
-        // e aplica formatação consistente. Isso evita casos em que o '-' é perdido
-        // quando o sinal aparece antes ou depois do símbolo monetário.
-        return applyMonetaryRules(answer);
-    }
-    
-    /**
-     * Pós-processa respostas SIM/NÃO.
-     * Extrai APENAS "SIM", "NÃO", "NÃO DIVULGADO" ou "NÃO APLICADO".
-     */
-    private String postProcessYesNo(String answer) {
-        String upperAnswer = answer.toUpperCase();
-        
-        // Remover pontuação
-        upperAnswer = upperAnswer.replaceAll("[.!?;,]", "").trim();
-        
-        // Extrair resposta pura (remover texto explicativo)
-        // Padrões comuns: "SIM = ...", "NÃO - ...", "SIM, pois...", etc.
-        if (upperAnswer.matches("SIM[\\s=\\-:,].*")) {
-            return "SIM";
-        }
-        if (upperAnswer.matches("NÃO[\\s=\\-:,].*")) {
-            return "NÃO";
-        }
-        if (upperAnswer.contains("NÃO DIVULGADO") || upperAnswer.contains("NAO DIVULGADO")) {
-            return "NÃO DIVULGADO";
-        }
-        if (upperAnswer.contains("NÃO APLICADO") || upperAnswer.contains("NAO APLICADO") || 
-            upperAnswer.contains("NÃO SE APLICA") || upperAnswer.contains("NAO SE APLICA")) {
-            return "NÃO APLICADO";
-        }
-        
-        // Se resposta é apenas "SIM" ou "NÃO" (sem texto adicional)
-        if (upperAnswer.equals("SIM")) {
-            return "SIM";
-        }
-        if (upperAnswer.equals("NÃO") || upperAnswer.equals("NAO")) {
-            return "NÃO";
-        }
-        
-        // Se começar com SIM ou NÃO, extrair
-        if (upperAnswer.startsWith("SIM")) {
-            return "SIM";
-        }
-        if (upperAnswer.startsWith("NÃO") || upperAnswer.startsWith("NAO")) {
-            return "NÃO";
-        }
-        
-        // Fallback: se contém afirmação
-        if (upperAnswer.contains("POSSUI") || upperAnswer.contains("DIVULGA") || 
-            upperAnswer.contains("INSTALADO") || upperAnswer.contains("ADEQUADO")) {
-            return "SIM";
-        }
-        if (upperAnswer.contains("NÃO POSSUI") || upperAnswer.contains("NÃO DIVULGA") || 
-            upperAnswer.contains("NÃO INSTALADO") || upperAnswer.contains("NÃO ADEQUADO")) {
-            return "NÃO";
-        }
-        
-        return "INFORMAÇÃO NÃO ENCONTRADA";
-    }
-    
-    /**
-     * Pós-processa respostas de contagem.
-     * Extrai número e preserva nomes se presentes.
-     * Formato esperado: "NÚMERO (Nome 1, Nome 2, ...)"
-     */
-    private String postProcessCounting(String answer) {
-        // Se é "INFORMAÇÃO NÃO ENCONTRADA", manter
-        if (answer.toUpperCase().contains("INFORMAÇÃO NÃO ENCONTRADA") || 
-            answer.toUpperCase().contains("INFORMACAO NAO ENCONTRADA")) {
-            return "INFORMAÇÃO NÃO ENCONTRADA";
-        }
-        
-        // Remover pontos finais e espaços extras
-        answer = answer.trim().replaceAll("\\.$", "");
-        
-        // Verificar se já está no formato "NÚMERO (Nomes...)"
-        Pattern formatPattern = Pattern.compile("^(\\d+)\\s*\\(([^)]+)\\)");
-        Matcher formatMatcher = formatPattern.matcher(answer);
-        
-        if (formatMatcher.find()) {
-            // Já está no formato correto
-            String numero = formatMatcher.group(1);
-            String nomes = formatMatcher.group(2).trim();
-            return numero + " (" + nomes + ")";
-        }
-        
-        // Se é apenas um número puro, retornar
-        if (answer.matches("^\\d+$")) {
-            return answer;
-        }
-        
-        // Extrair primeiro número da resposta (fallback para formato antigo)
-        Pattern pattern = Pattern.compile("\\d+");
-        Matcher matcher = pattern.matcher(answer);
-        
-        if (matcher.find()) {
-            return matcher.group();
-        }
-        
-        // Se não encontrou número, verificar se há indicação de zero
-        String upperAnswer = answer.toUpperCase();
-        if (upperAnswer.contains("NENHUM") || upperAnswer.contains("ZERO") || 
-            upperAnswer.contains("NÃO HÁ") || upperAnswer.contains("NAO HA")) {
-            return "0";
-        }
-        
-        return "INFORMAÇÃO NÃO ENCONTRADA";
-    }
-    
-    /**
-     * Pós-processa respostas de texto específico.
-     * Limpa formatação mas preserva conteúdo.
-     */
-    private String postProcessText(String answer) {
-        // Remover aspas desnecessárias
-        answer = answer.replaceAll("^\"|\"$", "");
-        
-        // Remover múltiplos espaços
-        answer = answer.replaceAll("\\s+", " ");
-        
-        // Se contém "Política de", extrair apenas o nome da política
-        if (answer.toLowerCase().contains("política de")) {
-            // Procurar padrão "Política de [nome]"
-            int start = answer.toLowerCase().indexOf("política de");
-            if (start != -1) {
-                String politica = answer.substring(start);
-                // Extrair até o primeiro ponto, vírgula ou até 150 chars
-                int endPeriod = politica.indexOf(".");
-                int endComma = politica.indexOf(",");
-                int end = politica.length();
-                
-                if (endPeriod != -1 && endPeriod < end) end = endPeriod;
-                if (endComma != -1 && endComma < end) end = endComma;
-                if (end > 150) end = 150;
-                
-                answer = politica.substring(0, end).trim();
-            }
-        }
-        
-        // Limpar se for muito longo (> 200 chars = texto explicativo indesejado)
-        if (answer.length() > 200) {
-            // Tentar extrair apenas primeira linha ou primeira frase
-            String[] lines = answer.split("\n");
-            if (lines.length > 0 && lines[0].length() < 150) {
-                answer = lines[0];
-            } else {
-                String[] sentences = answer.split("\\.");
-                if (sentences.length > 0 && sentences[0].length() < 150) {
-                    answer = sentences[0];
-                }
-            }
-        }
-        
-        return answer.trim();
-    }
-    
-    /**
-     * Pós-processa respostas de múltipla escolha.
-     * Valida se resposta está entre as opções do guia.
-     */
-    private String postProcessMultipleChoice(String answer, Question q) {
-        // Extrair opções do campo "Como Preencher"
-        String comoPreencher = q.getComoPreencher();
-        if (comoPreencher == null) {
-            return answer.trim();
-        }
-        
-        // Normalizar resposta
-        String normalizedAnswer = answer.trim();
-        
-        // Para Q47 (Seguro D&O): validar opções específicas
-        if (q.getNumero() == 47) {
-            String upperAnswer = answer.toUpperCase();
-            if (upperAnswer.contains("SEGURO D&O") || upperAnswer.contains("D&O")) {
-                return "Seguro D&O";
-            }
-            if (upperAnswer.contains("OUTRA FORMA") || upperAnswer.contains("REEMBOLSO")) {
-                return "Outra forma de reembolso";
-            }
-            if (upperAnswer.contains("NÃO DIVULGADO") || upperAnswer.contains("NAO DIVULGADO")) {
-                return "Não Divulgado";
-            }
-            if (upperAnswer.equals("NÃO") || upperAnswer.equals("NAO")) {
-                return "Não";
-            }
-        }
-        
-        return normalizedAnswer;
-    }
-    
-    /**
-     * Limpeza genérica de respostas.
-     */
-    private String cleanGenericAnswer(String answer) {
-        // Remover múltiplos espaços e quebras de linha
-        answer = answer.replaceAll("\\s+", " ").trim();
-        
-        // Remover ponto final se único
-        if (answer.endsWith(".") && !answer.contains(". ")) {
-            answer = answer.substring(0, answer.length() - 1);
-        }
-        
         return answer;
     }
     
-    /**
-     * Aplica regras monetárias (multiplicação por mil/milhão).
-     * 
-     * Detecta padrões como:
-     * - "1.234.567 (em R$ mil)"
-     * - "1.234 (em milhão)"
-     * - "R$ 1.234.567 mil"
-     */
-    private String applyMonetaryRules(String value) {
-        // Padrão para capturar: número + unidade (mil/milhão)
-        Pattern pattern = Pattern.compile("([\\d.,]+)\\s*(?:\\()?(?:em)?\\s*R?\\$?\\s*(mil|milh\\u00e3o|milh\\u00f5es|thousand|million)?(?:\\))?", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = pattern.matcher(value);
-
-        if (matcher.find()) {
-            String numberStr = matcher.group(1);
-            String unit = matcher.group(2);
-
-            try {
-                // Detectar se há sinal negativo imediatamente antes do número (ex: "-1.234", "R$ -1.234", "-R$ 1.234")
-                boolean negative = false;
-                int numStart = matcher.start(1);
-                // Procurar para trás até o primeiro caractere não espaço para ver se é '-' ou unicode minus
-                int idx = numStart - 1;
-                while (idx >= 0 && Character.isWhitespace(value.charAt(idx))) idx--;
-                if (idx >= 0) {
-                    char c = value.charAt(idx);
-                    if (c == '-' || c == '−') {
-                        negative = true;
-                    }
-                }
-
-                // Remover pontos de milhar e trocar vírgula por ponto
-                String cleanNumber = numberStr.replace(".", "").replace(",", ".");
-                double number = Double.parseDouble(cleanNumber);
-
-                // Aplicar multiplicação conforme unidade
-                if (unit != null) {
-                    if (unit.toLowerCase().contains("mil") || unit.equalsIgnoreCase("thousand")) {
-                        number *= 1000;
-                    } else if (unit.toLowerCase().contains("milh") || unit.equalsIgnoreCase("million")) {
-                        number *= 1000000;
-                    }
-                }
-
-                long rounded = Math.round(number);
-                String formatted = formatCurrency(rounded);
-                // Reinserir sinal negativo se detectado
-                if (negative) {
-                    return "-" + formatted;
-                }
-                return formatted;
-
-            } catch (NumberFormatException e) {
-                System.err.println("⚠️ Erro ao converter número: " + numberStr);
-                return value;
-            }
+    private void recordTrace(Question q, String rawAnswer, double retrievalScore, long startNanos) {
+        if (traceSink != null) {
+            long latencyMs = (System.nanoTime() - startNanos) / 1_000_000;
+            traceSink.accept(new AnswerTrace(q.getNumero(), rawAnswer, retrievalScore, latencyMs));
         }
-
-        return value;
     }
     
     /**
-     * Formata valor como moeda brasileira.
+     * Pós-processa resposta aplicando regras específicas por tipo (ver AnswerNormalizer).
+     * 
+     * ESTRATÉGIA:
+     * - Extrai apenas o valor relevante
+     * - Remove textos explicativos indesejados
+     * - Aplica formatação padronizada
      * 
-     * @param value Valor numérico
-     * @return String formatada (ex: R$ 1.234.567.000)
+     * Visível no pacote para os benchmarks (src/jmh).
      */
-    private String formatCurrency(long value) {
-        // Formatar com separadores de milhar (ponto)
-        String formatted = String.format("%,d", value).replace(',', '.');
-        return "R$ " + formatted;
+    String postProcessAnswer(String rawAnswer, Question q) {
+        return AnswerNormalizer.normalize(rawAnswer, q);
     }
     
     /**
@@ -0,0 +1,170 @@
+package com.example.rag.automation.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Colunas de respostas: quais questões, em que ordem, e com que rótulo no CSV.
+ *
+ * PROBLEMA:
+ * As questões estavam fixas no código (um campo por questão em CompanyResponse, um
+ * case no switch de setResposta, um trecho no cabeçalho e um índice nas respostas
+ * manuais). Incluir uma questão no guia exigia alterar quatro lugares.
+ *
+ * SOLUÇÃO:
+ * O layout é montado a partir do guia de coleta carregado (fromQuestions):
+ * - numeros[slot]: número da questão em cada coluna (ordem do guia)
+ * - slots[numero]: coluna da questão (array denso indexado pelo número, -1 se ausente)
+ * A busca número → coluna é um acesso a array, sem switch nem Map<Integer, ...>.
+ *
+ * Os rótulos das questões atuais são mantidos (compatibilidade com o CSV de análise
+ * manual); questões novas usam o texto do guia.
+ */
+public final class AnswerLayout {
+
+    // Rótulos do cabeçalho do CSV das questões já existentes no guia
+    private static final Map<Integer, String> LABELS = Map.ofEntries(
+            Map.entry(2, "Receita Líquida"),
+            Map.entry(3, "Lucro Líquido"),
+            Map.entry(5, "Empresa Auditoria"),
+            Map.entry(6, "Gastos Auditoria"),
+            Map.entry(8, "Gastos Auditoria Adicionais"),
+            Map.entry(10, "Possui Política de Riscos"),
+            Map.entry(14, "Divulga Auditoria Interna"),
+            Map.entry(15, "Controles Internos Adequados"),
+            Map.entry(16, "Deficiências Auditoria"),
+            Map.entry(18, "Divulgação ASG"),
+            Map.entry(19, "Conselho Fiscal Instalado"),
+            Map.entry(23, "Qtd Comitês CA"),
+            Map.entry(27, "Possui Regras de Conflitos"),
+            Map.entry(30, "Qtd Membros CA"),
+            Map.entry(31, "Qtd Mulheres CA"),
+            Map.entry(32, "Qtd Conselheiros Externos"),
+            Map.entry(33, "Qtd Conselheiros Independentes"),
+            Map.entry(34, "Qtd Conselheiros Executivos"),
+            Map.entry(38, "Qtd Membros Comitê Auditoria"),
+            Map.entry(39, "Qtd Membros Comitê Auditoria são Conselheiros"),
+            Map.entry(40, "Qtd Membros Comitê são Conselheiros Independentes"),
+            Map.entry(41, "Comitê Coordenado por Independente"),
+            Map.entry(47, "Contrata Seguro D&O"),
+            Map.entry(63, "Identificou Casos de Desvios/Fraudes")
+    );
+
+    /**
+     * Layout das 24 questões do guia atual (usado quando o guia não é informado).
+     */
+    public static final AnswerLayout DEFAULT = of(
+            2, 3, 5, 6, 8, 10, 14, 15, 16, 18, 19, 23, 27, 30, 31, 32, 33, 34, 38, 39, 40, 41, 47, 63);
+
+    private final int[] numeros;
+    private final String[] labels;
+    private final int[] slots;
+
+    private AnswerLayout(int[] numeros, String[] labels) {
+        this.numeros = numeros;
+        this.labels = labels;
+        int maxNumero = Arrays.stream(numeros).max().orElse(0);
+        this.slots = new int[maxNumero + 1];
+        Arrays.fill(slots, -1);
+        for (int slot = 0; slot < numeros.length; slot++) {
+            if (numeros[slot] < 0 || slots[numeros[slot]] != -1) {
+                throw new IllegalArgumentException("Questão inválida ou repetida no guia: " + numeros[slot]);
+            }
+            slots[numeros[slot]] = slot;
+        }
+    }
+
+    /**
+     * Layout a partir das questões do guia de coleta, na ordem do guia.
+     *
+     * @param questions Questões lidas do "Guia de Coleta.csv"
+     * @return Layout com uma coluna por questão
+     */
+    public static AnswerLayout fromQuestions(List<Question> questions) {
+        int[] numeros = new int[questions.size()];
+        String[] labels = new String[questions.size()];
+        for (int slot = 0; slot < numeros.length; slot++) {
+            Question question = questions.get(slot);
+            numeros[slot] = question.getNumero();
+            labels[slot] = LABELS.getOrDefault(question.getNumero(), labelFromText(question.getQuestao()));
+        }
+        return new AnswerLayout(numeros, labels);
+    }
+
+    /**
+     * Layout a partir dos números das questões (rótulos conhecidos ou apenas "QN").
+     */
+    public static AnswerLayout of(int... numeros) {
+        String[] labels = new String[numeros.length];
+        for (int slot = 0; slot < numeros.length; slot++) {
+            labels[slot] = LABELS.get(numeros[slot]);
+        }
+        return new AnswerLayout(numeros.clone(), labels);
+    }
+
+    // "Qual é a receita líquida da empresa? " → "Qual é a receita líquida da empresa"
+    private static String labelFromText(String questao) {
+        if (questao == null || questao.isBlank()) {
+            return null;
+        }
+        return questao.strip().replaceAll("\\?+$", "").replace(';', ',').replaceAll("\\s+", " ");
+    }
+
+    /**
+     * @return Quantidade de questões (colunas)
+     */
+    public int size() {
+        return numeros.length;
+    }
+
+    /**
+     * @return Número da questão na coluna informada
+     */
+    public int numero(int slot) {
+        return numeros[slot];
+    }
+
+    /**
+     * @return Números das questões, na ordem das colunas (cópia)
+     */
+    public int[] numeros() {
+        return numeros.clone();
+    }
+
+    /**
+     * @param numero Número da questão no guia
+     * @return Coluna da questão, ou -1 se a questão não faz parte do layout
+     */
+    public int slotOf(int numero) {
+        return numero >= 0 && numero < slots.length ? slots[numero] : -1;
+    }
+
+    public boolean contains(int numero) {
+        return slotOf(numero) >= 0;
+    }
+
+    /**
+     * Cabeçalho do CSV
+     *
+     * Formato: Empresa;Q2 - Receita Líquida;Q2 - Manual;Q3 - Lucro Líquido;Q3 - Manual;...
+     *
+     * Cada questão tem duas colunas:
+     * - Resposta gerada automaticamente pelo sistema
+     * - _Manual: Coluna vazia para preenchimento manual e conferência
+     *
+     * @return String com nomes das colunas
+     */
+    public String csvHeader() {
+        StringBuilder sb = new StringBuilder(64 * numeros.length);
+        sb.append("Empresa");
+        for (int slot = 0; slot < numeros.length; slot++) {
+            sb.append(";Q").append(numeros[slot]);
+            if (labels[slot] != null) {
+                sb.append(" - ").append(labels[slot]);
+            }
+            sb.append(";Q").append(numeros[slot]).append(" - Manual");
+        }
+        return sb.toString();
+    }
+}
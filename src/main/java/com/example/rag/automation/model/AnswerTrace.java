@@ -0,0 +1,22 @@
+package com.example.rag.automation.model;
+
+/**
+ * Resposta bruta do Gemini para uma questão, com métricas da execução.
+ *
+ * Registrada antes do pós-processamento: permite reaplicar as regras de
+ * normalização (--renormalize) e analisar a qualidade do retrieval por questão.
+ *
+ * @param numero Número da questão no guia
+ * @param rawAnswer Resposta bruta do Gemini
+ * @param retrievalScore Maior similaridade entre os chunks recuperados (NaN se desconhecido, ex: resposta recarregada do diário)
+ * @param latencyMs Tempo da questão, do retrieval à resposta (-1 se desconhecido)
+ */
+public record AnswerTrace(int numero, String rawAnswer, double retrievalScore, long latencyMs) {
+
+    /**
+     * Resposta bruta sem métricas (ex: lida do diário de checkpoint).
+     */
+    public static AnswerTrace rawOnly(int numero, String rawAnswer) {
+        return new AnswerTrace(numero, rawAnswer, Double.NaN, -1);
+    }
+}
@@ -5,6 +5,8 @@ import java.io.FileReader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Classe de configuração centralizada para o projeto RAG (Retrieval-Augmented Generation).
@@ -61,19 +63,50 @@ public class Config {
      * - Nível 1 (pago): 100ms ou menos
      * 
      * Padrão: 6000ms (adequado para Free Tier do Flash)
+     * 
+     * Nota: o espaçamento agora é feito pelo RateLimiter (token bucket); este valor
+     * define o padrão de GEMINI_REQUESTS_PER_MINUTE quando ele não é informado.
      */
     public static final long REQUEST_DELAY_MS;
     
     /**
      * Intervalo para salvar checkpoint do processamento.
      * 
-     * A cada N questões processadas, o sistema salva o progresso em arquivo CSV.
-     * Útil para retomar o processamento em caso de erro ou interrupção.
+     * A cada N questões respondidas, o progresso é gravado (com fsync) no diário
+     * CHECKPOINT_FILE. Com o argumento --resume, as questões já registradas no
+     * diário não são processadas novamente.
      * 
      * Padrão: 5 questões
      */
     public static final int CHECKPOINT_INTERVAL;
     
+    /**
+     * Limite de requisições por minuto ao Gemini (token bucket compartilhado).
+     * 
+     * Todas as chamadas ao Gemini passam pelo RateLimiter, que libera uma requisição
+     * assim que houver saldo, descontando o tempo já gasto na chamada anterior.
+     * 
+     * Padrão: 60000 / REQUEST_DELAY_MS (10 RPM com o delay padrão de 6s)
+     * Configurável via .env: GEMINI_REQUESTS_PER_MINUTE
+     */
+    public static final double GEMINI_REQUESTS_PER_MINUTE;
+    
+    /**
+     * Quantidade de requisições que podem ser disparadas em rajada.
+     * 
+     * Padrão: 1 (requisições uniformemente espaçadas)
+     * Configurável via .env: GEMINI_REQUEST_BURST
+     */
+    public static final int GEMINI_REQUEST_BURST;
+    
+    /**
+     * Limite de tokens por minuto ao Gemini (estimados a partir do tamanho do prompt).
+     * 
+     * Padrão: 250000 (Free Tier do Gemini 2.5 Flash)
+     * Configurável via .env: GEMINI_TOKENS_PER_MINUTE
+     */
+    public static final long GEMINI_TOKENS_PER_MINUTE;
+    
     // Bloco estático que executa ao carregar a classe
     static {
         // Primeiro, tenta carregar o arquivo .env
@@ -94,6 +127,20 @@ public class Config {
                               System.getenv().getOrDefault("CHECKPOINT_INTERVAL", "5"));
         CHECKPOINT_INTERVAL = Integer.parseInt(checkpointStr);
         
+        // Token bucket (padrão de RPM derivado de REQUEST_DELAY_MS para manter compatibilidade)
+        String rpmStr = System.getProperty("GEMINI_REQUESTS_PER_MINUTE",
+                       System.getenv().getOrDefault("GEMINI_REQUESTS_PER_MINUTE",
+                       String.valueOf(60000.0 / Math.max(1, REQUEST_DELAY_MS))));
+        GEMINI_REQUESTS_PER_MINUTE = Double.parseDouble(rpmStr);
+        
+        String burstStr = System.getProperty("GEMINI_REQUEST_BURST",
+                         System.getenv().getOrDefault("GEMINI_REQUEST_BURST", "1"));
+        GEMINI_REQUEST_BURST = Integer.parseInt(burstStr);
+        
+        String tpmStr = System.getProperty("GEMINI_TOKENS_PER_MINUTE",
+                       System.getenv().getOrDefault("GEMINI_TOKENS_PER_MINUTE", "250000"));
+        GEMINI_TOKENS_PER_MINUTE = Long.parseLong(tpmStr);
+        
         // RAG configurations (chunking and retrieval)
         String segmentSizeStr = System.getProperty("MAX_SEGMENT_SIZE_IN_TOKENS",
                                System.getenv().getOrDefault("MAX_SEGMENT_SIZE_IN_TOKENS", "1200"));
@@ -103,6 +150,22 @@ public class Config {
                            System.getenv().getOrDefault("SEGMENT_OVERLAP_IN_TOKENS", "200"));
         SEGMENT_OVERLAP_IN_TOKENS = Integer.parseInt(overlapStr);
         
+        String windowPagesStr = System.getProperty("INGESTION_WINDOW_PAGES",
+                               System.getenv().getOrDefault("INGESTION_WINDOW_PAGES", "20"));
+        INGESTION_WINDOW_PAGES = Integer.parseInt(windowPagesStr);
+        
+        String sectionChunkingStr = System.getProperty("SECTION_AWARE_CHUNKING",
+                                   System.getenv().getOrDefault("SECTION_AWARE_CHUNKING", "true"));
+        SECTION_AWARE_CHUNKING = Boolean.parseBoolean(sectionChunkingStr);
+        
+        String embeddingBatchStr = System.getProperty("EMBEDDING_BATCH_SIZE",
+                                  System.getenv().getOrDefault("EMBEDDING_BATCH_SIZE", "32"));
+        EMBEDDING_BATCH_SIZE = Integer.parseInt(embeddingBatchStr);
+        
+        String embeddingParallelismStr = System.getProperty("EMBEDDING_PARALLELISM",
+                                        System.getenv().getOrDefault("EMBEDDING_PARALLELISM", "1"));
+        EMBEDDING_PARALLELISM = Integer.parseInt(embeddingParallelismStr);
+        
         String maxResultsStr = System.getProperty("MAX_RESULTS_FOR_RETRIEVAL",
                               System.getenv().getOrDefault("MAX_RESULTS_FOR_RETRIEVAL", "15"));
         MAX_RESULTS_FOR_RETRIEVAL = Integer.parseInt(maxResultsStr);
@@ -110,6 +173,102 @@ public class Config {
         String minScoreStr = System.getProperty("MIN_SCORE_FOR_RETRIEVAL",
                             System.getenv().getOrDefault("MIN_SCORE_FOR_RETRIEVAL", "0.60"));
         MIN_SCORE_FOR_RETRIEVAL = Double.parseDouble(minScoreStr);
+        
+        // Hybrid retrieval (BM25 + vector, reciprocal rank fusion)
+        String hybridEnabledStr = System.getProperty("HYBRID_RETRIEVAL_ENABLED",
+                                 System.getenv().getOrDefault("HYBRID_RETRIEVAL_ENABLED", "true"));
+        HYBRID_RETRIEVAL_ENABLED = Boolean.parseBoolean(hybridEnabledStr);
+        
+        String vectorWeightStr = System.getProperty("HYBRID_VECTOR_WEIGHT",
+                                System.getenv().getOrDefault("HYBRID_VECTOR_WEIGHT", "1.0"));
+        HYBRID_VECTOR_WEIGHT = Double.parseDouble(vectorWeightStr);
+        
+        String lexicalWeightStr = System.getProperty("HYBRID_LEXICAL_WEIGHT",
+                                 System.getenv().getOrDefault("HYBRID_LEXICAL_WEIGHT", "1.0"));
+        HYBRID_LEXICAL_WEIGHT = Double.parseDouble(lexicalWeightStr);
+        
+        String rrfKStr = System.getProperty("HYBRID_RRF_K",
+                        System.getenv().getOrDefault("HYBRID_RRF_K", "60"));
+        HYBRID_RRF_K = Integer.parseInt(rrfKStr);
+        
+        // Context assembly (token budget per question type)
+        String contextBudgetStr = System.getProperty("CONTEXT_TOKEN_BUDGET",
+                                 System.getenv().getOrDefault("CONTEXT_TOKEN_BUDGET", "3000"));
+        CONTEXT_TOKEN_BUDGET = Integer.parseInt(contextBudgetStr);
+        
+        String budgetsByTypeStr = System.getProperty("CONTEXT_TOKEN_BUDGET_BY_TYPE",
+                                 System.getenv().getOrDefault("CONTEXT_TOKEN_BUDGET_BY_TYPE",
+                                         "MONETARIA=2500,SIM_NAO=2000,CONTAGEM=3500,TEXTO_ESPECIFICO=2000,MULTIPLA_ESCOLHA=2000"));
+        Map<String, Integer> budgetsByType = new HashMap<>();
+        for (String entry : budgetsByTypeStr.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length == 2 && !parts[0].isBlank()) {
+                budgetsByType.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+            }
+        }
+        CONTEXT_TOKEN_BUDGET_BY_TYPE = Map.copyOf(budgetsByType);
+        
+        String scoreMarginStr = System.getProperty("CONTEXT_SCORE_MARGIN",
+                               System.getenv().getOrDefault("CONTEXT_SCORE_MARGIN", "0.10"));
+        CONTEXT_SCORE_MARGIN = Double.parseDouble(scoreMarginStr);
+        
+        // Index cache configurations
+        String indexCacheEnabledStr = System.getProperty("INDEX_CACHE_ENABLED",
+                                     System.getenv().getOrDefault("INDEX_CACHE_ENABLED", "true"));
+        INDEX_CACHE_ENABLED = Boolean.parseBoolean(indexCacheEnabledStr);
+        
+        INDEX_CACHE_FOLDER = System.getProperty("INDEX_CACHE_FOLDER",
+                            System.getenv().getOrDefault("INDEX_CACHE_FOLDER", "data/index"));
+        
+        // LLM response cache configurations
+        String llmCacheEnabledStr = System.getProperty("LLM_CACHE_ENABLED",
+                                   System.getenv().getOrDefault("LLM_CACHE_ENABLED", "true"));
+        LLM_CACHE_ENABLED = Boolean.parseBoolean(llmCacheEnabledStr);
+        
+        LLM_CACHE_FOLDER = System.getProperty("LLM_CACHE_FOLDER",
+                          System.getenv().getOrDefault("LLM_CACHE_FOLDER", "data/llm-cache"));
+        
+        String llmCacheMaxStr = System.getProperty("LLM_CACHE_MAX_MB",
+                               System.getenv().getOrDefault("LLM_CACHE_MAX_MB", "256"));
+        LLM_CACHE_MAX_MB = Long.parseLong(llmCacheMaxStr);
+        
+        // Batch pipeline configurations
+        String batchParallelStr = System.getProperty("BATCH_PARALLEL_ENABLED",
+                                 System.getenv().getOrDefault("BATCH_PARALLEL_ENABLED", "false"));
+        BATCH_PARALLEL_ENABLED = Boolean.parseBoolean(batchParallelStr);
+        
+        String indexingThreadsStr = System.getProperty("INDEXING_THREADS",
+                                   System.getenv().getOrDefault("INDEXING_THREADS",
+                                   String.valueOf(Runtime.getRuntime().availableProcessors())));
+        INDEXING_THREADS = Integer.parseInt(indexingThreadsStr);
+        
+        String answeringThreadsStr = System.getProperty("ANSWERING_THREADS",
+                                    System.getenv().getOrDefault("ANSWERING_THREADS", "1"));
+        ANSWERING_THREADS = Integer.parseInt(answeringThreadsStr);
+        
+        String queueCapacityStr = System.getProperty("PIPELINE_QUEUE_CAPACITY",
+                                 System.getenv().getOrDefault("PIPELINE_QUEUE_CAPACITY", "2"));
+        PIPELINE_QUEUE_CAPACITY = Integer.parseInt(queueCapacityStr);
+        
+        String batchQuestionsStr = System.getProperty("BATCH_QUESTIONS_ENABLED",
+                                  System.getenv().getOrDefault("BATCH_QUESTIONS_ENABLED", "false"));
+        BATCH_QUESTIONS_ENABLED = Boolean.parseBoolean(batchQuestionsStr);
+        
+        String asyncQuestionsStr = System.getProperty("ASYNC_QUESTIONS_ENABLED",
+                                  System.getenv().getOrDefault("ASYNC_QUESTIONS_ENABLED", "false"));
+        ASYNC_QUESTIONS_ENABLED = Boolean.parseBoolean(asyncQuestionsStr);
+        
+        String virtualThreadsStr = System.getProperty("VIRTUAL_THREADS_ENABLED",
+                                  System.getenv().getOrDefault("VIRTUAL_THREADS_ENABLED", "false"));
+        VIRTUAL_THREADS_ENABLED = Boolean.parseBoolean(virtualThreadsStr);
+        
+        String columnarOutputStr = System.getProperty("COLUMNAR_OUTPUT_ENABLED",
+                                  System.getenv().getOrDefault("COLUMNAR_OUTPUT_ENABLED", "false"));
+        COLUMNAR_OUTPUT_ENABLED = Boolean.parseBoolean(columnarOutputStr);
+        
+        String maxQuestionsStr = System.getProperty("MAX_QUESTIONS_PER_PROMPT",
+                                System.getenv().getOrDefault("MAX_QUESTIONS_PER_PROMPT", "6"));
+        MAX_QUESTIONS_PER_PROMPT = Integer.parseInt(maxQuestionsStr);
     }
     
     // ========================================
@@ -141,6 +300,56 @@ public class Config {
      */
     public static final int SEGMENT_OVERLAP_IN_TOKENS;
     
+    /**
+     * Quantidade de páginas do PDF mantidas em memória durante a indexação.
+     * 
+     * O PDF é lido página a página; a cada janela de N páginas o texto é dividido
+     * em chunks, vetorizado e gravado no store antes de a próxima janela ser lida.
+     * Janelas menores = menos memória por documento (mais FRs em paralelo).
+     * 
+     * Padrão: 20 páginas
+     * Configurável via .env: INGESTION_WINDOW_PAGES
+     */
+    public static final int INGESTION_WINDOW_PAGES;
+    
+    /**
+     * Divide o texto respeitando os itens do FR (2.1, 7.3, subitens "h)").
+     * 
+     * true: cada chunk pertence a uma única seção, recebe os metadados section/item
+     * e o título de um item nunca é separado da tabela logo abaixo dele (FrSectionSplitter).
+     * false: divisão apenas por tamanho (DocumentSplitter recursivo).
+     * 
+     * Padrão: true
+     * Configurável via .env: SECTION_AWARE_CHUNKING
+     */
+    public static final boolean SECTION_AWARE_CHUNKING;
+    
+    /**
+     * Quantidade de chunks enviados ao modelo de embeddings por chamada (embedAll).
+     * 
+     * Lotes maiores aproveitam melhor a sessão ONNX, mas ocupam mais memória
+     * por chamada. O tempo de cada lote é exibido durante a indexação.
+     * 
+     * Padrão: 32 chunks
+     * Configurável via .env: EMBEDDING_BATCH_SIZE
+     */
+    public static final int EMBEDDING_BATCH_SIZE;
+    
+    /**
+     * Quantidade de lotes de embeddings vetorizados em paralelo dentro de um documento.
+     * 
+     * Com valor maior que 1, os lotes de cada janela são distribuídos em um
+     * ForkJoinPool compartilhado, ocupando vários núcleos na indexação de um único
+     * FR grande. A ordem dos chunks e seus IDs no store são preservados.
+     * 
+     * O valor é limitado a núcleos / indexadores simultâneos (INDEXING_THREADS no
+     * pipeline paralelo), para não disputar núcleos com a extração dos outros PDFs.
+     * 
+     * Padrão: 1 (sequencial)
+     * Configurável via .env: EMBEDDING_PARALLELISM
+     */
+    public static final int EMBEDDING_PARALLELISM;
+    
     /**
      * Quantidade máxima de chunks a serem recuperados na busca por similaridade.
      * 
@@ -163,6 +372,231 @@ public class Config {
      */
     public static final double MIN_SCORE_FOR_RETRIEVAL;
     
+    /**
+     * Combina a busca vetorial com a busca lexical (BM25) no retrieval.
+     * 
+     * Durante a indexação, os chunks também são gravados em um índice invertido
+     * em memória (Bm25Index). Na busca, os dois rankings são unidos por
+     * Reciprocal Rank Fusion: chunks que contêm os termos exatos da questão
+     * (ex: "Conselho Fiscal", "D&O") sobem no ranking mesmo com similaridade menor.
+     * 
+     * Padrão: true
+     * Configurável via .env: HYBRID_RETRIEVAL_ENABLED
+     */
+    public static final boolean HYBRID_RETRIEVAL_ENABLED;
+    
+    /**
+     * Peso do ranking vetorial na fusão: score += peso / (HYBRID_RRF_K + posição).
+     * 
+     * Padrão: 1.0
+     * Configurável via .env: HYBRID_VECTOR_WEIGHT
+     */
+    public static final double HYBRID_VECTOR_WEIGHT;
+    
+    /**
+     * Peso do ranking lexical (BM25) na fusão. 0 desativa a contribuição lexical.
+     * 
+     * Padrão: 1.0
+     * Configurável via .env: HYBRID_LEXICAL_WEIGHT
+     */
+    public static final double HYBRID_LEXICAL_WEIGHT;
+    
+    /**
+     * Constante k do Reciprocal Rank Fusion.
+     * 
+     * Valores maiores suavizam a diferença entre as primeiras posições de cada ranking.
+     * 
+     * Padrão: 60
+     * Configurável via .env: HYBRID_RRF_K
+     */
+    public static final int HYBRID_RRF_K;
+    
+    /**
+     * Orçamento de tokens (estimados) do contexto enviado ao Gemini.
+     * 
+     * Usado pelas consultas livres (RagQueryEngine.query) e pelos prompts com
+     * várias questões; questões individuais usam CONTEXT_TOKEN_BUDGET_BY_TYPE.
+     * 
+     * Padrão: 3000 tokens
+     * Configurável via .env: CONTEXT_TOKEN_BUDGET
+     */
+    public static final int CONTEXT_TOKEN_BUDGET;
+    
+    /**
+     * Orçamento de tokens do contexto por tipo de questão (TipoQuestao).
+     * 
+     * Contagens (membros de conselhos e comitês) precisam de mais tabelas;
+     * SIM/NÃO e textos específicos costumam estar em um único trecho.
+     * Tipos ausentes usam CONTEXT_TOKEN_BUDGET.
+     * 
+     * Padrão: MONETARIA=2500,SIM_NAO=2000,CONTAGEM=3500,TEXTO_ESPECIFICO=2000,MULTIPLA_ESCOLHA=2000
+     * Configurável via .env: CONTEXT_TOKEN_BUDGET_BY_TYPE
+     */
+    public static final Map<String, Integer> CONTEXT_TOKEN_BUDGET_BY_TYPE;
+    
+    /**
+     * Margem de score para manter um chunk fora do topo do ranking no contexto.
+     * 
+     * Chunks com score abaixo de (melhor score - margem) são descartados,
+     * exceto os 3 primeiros do ranking.
+     * 
+     * Padrão: 0.10
+     * Configurável via .env: CONTEXT_SCORE_MARGIN
+     */
+    public static final double CONTEXT_SCORE_MARGIN;
+    
+    // ========================================
+    // CACHES (Índices de embeddings e respostas do Gemini)
+    // ========================================
+    
+    /**
+     * Habilita o cache persistente de índices vetoriais.
+     * 
+     * Quando habilitado, os chunks e embeddings de cada PDF são gravados em disco
+     * e reutilizados nas execuções seguintes, desde que o PDF, o modelo de embeddings
+     * e os parâmetros de chunking não tenham mudado.
+     * 
+     * Padrão: true
+     * Configurável via .env: INDEX_CACHE_ENABLED
+     */
+    public static final boolean INDEX_CACHE_ENABLED;
+    
+    /**
+     * Pasta onde os índices vetoriais persistidos são armazenados.
+     * 
+     * Padrão: data/index
+     * Configurável via .env: INDEX_CACHE_FOLDER
+     */
+    public static final String INDEX_CACHE_FOLDER;
+    
+    /**
+     * Habilita o cache persistente de respostas do Gemini.
+     * 
+     * Com temperature 0.0 o mesmo prompt gera a mesma resposta; reexecutar o lote
+     * (ex: após corrigir o pós-processamento) não consome cota da API.
+     * 
+     * Padrão: true
+     * Configurável via .env: LLM_CACHE_ENABLED
+     */
+    public static final boolean LLM_CACHE_ENABLED;
+    
+    /**
+     * Pasta onde as respostas do Gemini são armazenadas.
+     * 
+     * Padrão: data/llm-cache
+     * Configurável via .env: LLM_CACHE_FOLDER
+     */
+    public static final String LLM_CACHE_FOLDER;
+    
+    /**
+     * Tamanho máximo do cache de respostas em MB.
+     * 
+     * Ao ultrapassar o limite, as respostas usadas há mais tempo são removidas (LRU).
+     * 
+     * Padrão: 256 MB
+     * Configurável via .env: LLM_CACHE_MAX_MB
+     */
+    public static final long LLM_CACHE_MAX_MB;
+    
+    // ========================================
+    // PROCESSAMENTO EM LOTE (Pipeline paralelo)
+    // ========================================
+    
+    /**
+     * Habilita o pipeline paralelo de processamento em lote.
+     * 
+     * Quando habilitado, a indexação de PDFs roda em um pool de threads (CPU-bound)
+     * enquanto outro pool responde as questões de empresas já indexadas (LLM-bound),
+     * com uma fila limitada entre os dois estágios.
+     * 
+     * Padrão: false (processamento sequencial, um PDF por vez)
+     * Configurável via .env: BATCH_PARALLEL_ENABLED
+     */
+    public static final boolean BATCH_PARALLEL_ENABLED;
+    
+    /**
+     * Quantidade de threads de indexação no pipeline paralelo.
+     * 
+     * Padrão: número de núcleos da máquina
+     * Configurável via .env: INDEXING_THREADS
+     */
+    public static final int INDEXING_THREADS;
+    
+    /**
+     * Quantidade de threads que respondem questões (chamadas ao Gemini) no pipeline paralelo.
+     * 
+     * Padrão: 1 (adequado ao Free Tier)
+     * Configurável via .env: ANSWERING_THREADS
+     */
+    public static final int ANSWERING_THREADS;
+    
+    /**
+     * Capacidade da fila entre indexação e respostas.
+     * 
+     * Limita quantos documentos indexados podem aguardar o estágio de respostas,
+     * mantendo o consumo de memória constante em lotes grandes.
+     * 
+     * Padrão: 2
+     * Configurável via .env: PIPELINE_QUEUE_CAPACITY
+     */
+    public static final int PIPELINE_QUEUE_CAPACITY;
+    
+    /**
+     * Habilita o agrupamento de questões da mesma seção do FR em um único prompt.
+     * 
+     * Questões que apontam para a mesma seção em "Onde?" (ex: 7.3) usam os mesmos
+     * chunks; agrupá-las reduz o número de chamadas ao Gemini e o contexto repetido.
+     * As respostas são pedidas em JSON e pós-processadas individualmente.
+     * 
+     * Padrão: false (uma chamada por questão)
+     * Configurável via .env: BATCH_QUESTIONS_ENABLED
+     */
+    public static final boolean BATCH_QUESTIONS_ENABLED;
+    
+    /**
+     * Habilita o processamento assíncrono das questões de uma empresa.
+     * 
+     * Todas as questões são disparadas como CompletableFuture: o retrieval roda no
+     * pool comum e a geração usa o modelo de streaming do Gemini, sem bloquear threads
+     * durante a chamada nem durante a espera do rate limiter. A cota continua
+     * respeitada pelo RateLimiter compartilhado.
+     * 
+     * Padrão: false (uma questão por vez)
+     * Configurável via .env: ASYNC_QUESTIONS_ENABLED
+     */
+    public static final boolean ASYNC_QUESTIONS_ENABLED;
+    
+    /**
+     * Habilita o processamento das questões de cada empresa em virtual threads (Java 21).
+     * 
+     * Cada questão roda em sua própria virtual thread, com o código bloqueante de sempre
+     * (processQuestion); a espera pelo Gemini e pelo rate limiter não ocupa threads de
+     * plataforma. Uma falha cancela apenas as questões da mesma empresa.
+     * 
+     * Padrão: false (uma questão por vez)
+     * Configurável via .env: VIRTUAL_THREADS_ENABLED
+     */
+    public static final boolean VIRTUAL_THREADS_ENABLED;
+    
+    /**
+     * Grava também as respostas em formato colunar (Apache Arrow IPC: output/respostas.arrow).
+     * 
+     * Uma coluna por questão, mais a resposta bruta do Gemini, o score do retrieval e
+     * a latência de cada questão. O CSV continua sendo gravado normalmente.
+     * 
+     * Padrão: false (apenas CSV)
+     * Configurável via .env: COLUMNAR_OUTPUT_ENABLED
+     */
+    public static final boolean COLUMNAR_OUTPUT_ENABLED;
+    
+    /**
+     * Quantidade máxima de questões em um mesmo prompt agrupado.
+     * 
+     * Padrão: 6
+     * Configurável via .env: MAX_QUESTIONS_PER_PROMPT
+     */
+    public static final int MAX_QUESTIONS_PER_PROMPT;
+    
     // ========================================
     // CAMINHOS DE ARQUIVOS
     // ========================================
@@ -173,6 +607,11 @@ public class Config {
      */
     public static final String DATA_FOLDER = "data/report";
     
+    /**
+     * Diário de progresso (append-only) usado para checkpoint e retomada (--resume).
+     */
+    public static final String CHECKPOINT_FILE = "output/checkpoint.log";
+    
     /**
      * Nome do arquivo PDF a ser indexado.
      * Deve estar localizado dentro de DATA_FOLDER.
@@ -185,6 +624,16 @@ public class Config {
     // MÉTODOS UTILITÁRIOS
     // ========================================
     
+    /**
+     * Orçamento de tokens do contexto para um tipo de questão.
+     * 
+     * @param tipo Nome do TipoQuestao (ex: "MONETARIA")
+     * @return Orçamento configurado para o tipo, ou CONTEXT_TOKEN_BUDGET
+     */
+    public static int contextTokenBudget(String tipo) {
+        return CONTEXT_TOKEN_BUDGET_BY_TYPE.getOrDefault(tipo, CONTEXT_TOKEN_BUDGET);
+    }
+    
     /**
      * Verifica se o Google Gemini está configurado e pronto para uso.
      * 
@@ -219,18 +668,41 @@ public class Config {
         System.out.println("   Embedding Model: AllMiniLmL6V2 (local, offline)");
         System.out.println("   Max Segment Size: " + MAX_SEGMENT_SIZE_IN_TOKENS + " tokens");
         System.out.println("   Segment Overlap: " + SEGMENT_OVERLAP_IN_TOKENS + " tokens");
+        System.out.println("   Janela de Ingestão: " + INGESTION_WINDOW_PAGES + " páginas");
+        System.out.println("   Chunking por Seção do FR: " + (SECTION_AWARE_CHUNKING ? "Ativado" : "Desativado"));
+        System.out.println("   Lote de Embeddings: " + EMBEDDING_BATCH_SIZE + " chunks"
+                + (EMBEDDING_PARALLELISM > 1 ? " (" + EMBEDDING_PARALLELISM + " lotes em paralelo)" : ""));
         System.out.println("   Max Results: " + MAX_RESULTS_FOR_RETRIEVAL);
         System.out.println("   Min Score: " + MIN_SCORE_FOR_RETRIEVAL);
+        System.out.println("   Orçamento de Contexto: " + CONTEXT_TOKEN_BUDGET + " tokens " + CONTEXT_TOKEN_BUDGET_BY_TYPE
+                + " | margem de score " + CONTEXT_SCORE_MARGIN);
+        System.out.println("   Busca Híbrida (BM25 + vetorial): " + (HYBRID_RETRIEVAL_ENABLED
+                ? "Ativada (pesos " + HYBRID_VECTOR_WEIGHT + "/" + HYBRID_LEXICAL_WEIGHT + ", k=" + HYBRID_RRF_K + ")"
+                : "Desativada"));
+        System.out.println("   Cache de Índices: " + (INDEX_CACHE_ENABLED ? "✅ " + INDEX_CACHE_FOLDER : "desabilitado"));
+        System.out.println("   Cache de Respostas: " + (LLM_CACHE_ENABLED
+                ? "✅ " + LLM_CACHE_FOLDER + " (máx. " + LLM_CACHE_MAX_MB + " MB)" : "desabilitado"));
+        if (BATCH_PARALLEL_ENABLED) {
+            System.out.println("   Pipeline Paralelo: ✅ " + INDEXING_THREADS + " indexador(es), "
+                    + ANSWERING_THREADS + " worker(s) de respostas, fila " + PIPELINE_QUEUE_CAPACITY);
+        } else {
+            System.out.println("   Pipeline Paralelo: desabilitado (sequencial)");
+        }
+        System.out.println("   Questões Agrupadas: " + (BATCH_QUESTIONS_ENABLED
+                ? "✅ até " + MAX_QUESTIONS_PER_PROMPT + " por prompt (por seção do FR)" : "desabilitado"));
+        System.out.println("   Questões Assíncronas: " + (ASYNC_QUESTIONS_ENABLED
+                ? "✅ CompletableFuture + streaming do Gemini" : "desabilitado"));
+        System.out.println("   Virtual Threads: " + (VIRTUAL_THREADS_ENABLED
+                ? "✅ uma por questão (escopo por empresa)" : "desabilitado"));
+        System.out.println("   Saída Colunar: " + (COLUMNAR_OUTPUT_ENABLED
+                ? "✅ Arrow IPC (respostas + brutas + métricas)" : "desabilitado (apenas CSV)"));
         
         if (isGeminiConfigured()) {
             System.out.println("   Gemini: ✅ Configurado (" + GEMINI_MODEL + ")");
             System.out.println("   Rate Limiting:");
-            System.out.println("      • Delay entre requests: " + REQUEST_DELAY_MS + "ms (" + (REQUEST_DELAY_MS/1000.0) + "s)");
+            System.out.println("      • Token bucket: " + String.format("%.1f", GEMINI_REQUESTS_PER_MINUTE) + " requests/min (rajada "
+                    + GEMINI_REQUEST_BURST + "), " + GEMINI_TOKENS_PER_MINUTE + " tokens/min");
             System.out.println("      • Checkpoint a cada: " + CHECKPOINT_INTERVAL + " questões");
-            
-            // Calcular e mostrar taxa máxima
-            double maxRequestsPerMinute = 60000.0 / REQUEST_DELAY_MS;
-            System.out.println("      • Taxa máxima: ~" + String.format("%.1f", maxRequestsPerMinute) + " requests/min");
         } else {
             System.out.println("   Gemini: ⚠️  Não configurado (apenas retrieval)");
             System.out.println("   💡 Para habilitar Gemini: configure GEMINI_API_KEY no arquivo .env");
@@ -1,21 +1,24 @@
 package com.example.rag.indexer;
 
 import com.example.rag.config.Config;
+import com.example.rag.store.Bm25Index;
+import com.example.rag.store.MappedEmbeddingStore;
 import dev.langchain4j.data.document.Document;
 import dev.langchain4j.data.document.DocumentSplitter;
-import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
 import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
-import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.EmbeddingStoreIngestor;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 
-import java.io.FileInputStream;
-import java.io.InputStream;
+import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 /**
  * Responsável pela indexação de documentos PDF no sistema RAG.
@@ -27,26 +30,41 @@ import java.nio.file.Paths;
  * PIPELINE DE INDEXAÇÃO (5 ETAPAS):
  * 
  * 1. CARREGAMENTO
- *    - Lê o arquivo PDF do disco
- *    - Converte para objeto Document do LangChain4j
+ *    - Lê o arquivo PDF do disco em streaming (PdfPageReader)
  * 
  * 2. PARSING (Análise)
- *    - Extrai o texto do PDF usando Apache Tika
+ *    - Extrai o texto do PDF página a página usando Apache Tika (SAX)
  *    - Remove formatação, mantém apenas conteúdo textual
  * 
  * 3. CHUNKING (Divisão)
- *    - Divide o texto em pedaços menores (chunks/segments)
- *    - Usa DocumentSplitter recursivo com overlap
- *    - Cada chunk tem ~2000 tokens com 600 tokens de sobreposição
+ *    - O texto chega em janelas de INGESTION_WINDOW_PAGES páginas (StreamingSegmenter),
+ *      cortadas em um trecho por página na primeira quebra de parágrafo; o trecho da
+ *      última página passa para a janela seguinte
+ *    - Cada trecho é dividido pelo FrSectionSplitter (SECTION_AWARE_CHUNKING, padrão):
+ *      chunks por item do FR, com o título da seção repetido nas continuações e
+ *      metadados section/item/section_title
+ *    - Ou, com SECTION_AWARE_CHUNKING=false, pelo DocumentSplitter recursivo
+ *    - Tamanho máximo MAX_SEGMENT_SIZE_IN_TOKENS (padrão 1200) e sobreposição
+ *      SEGMENT_OVERLAP_IN_TOKENS (padrão 200) ao dividir blocos grandes
+ *    - Cada chunk guarda também a página onde começa (metadado page)
  * 
  * 4. EMBEDDING (Vetorização)
  *    - Converte cada chunk em um vetor numérico (embedding)
+ *    - Chamadas explícitas a embedAll em lotes de EMBEDDING_BATCH_SIZE chunks
+ *    - Opcionalmente, lotes vetorizados em paralelo (EMBEDDING_PARALLELISM)
  *    - Usa modelo AllMiniLmL6V2 (local, offline, 384 dimensões)
  *    - Embeddings capturam o significado semântico do texto
  * 
  * 5. ARMAZENAMENTO
- *    - Salva os embeddings no EmbeddingStore (banco de vetores em memória)
+ *    - Salva os embeddings no MappedEmbeddingStore (vetores float32 contíguos
+ *      em arquivo mapeado em memória, fora do heap da JVM)
  *    - Permite buscas posteriores por similaridade
+ *    - Os mesmos chunks alimentam o índice lexical em memória (Bm25Index),
+ *      usado na busca híbrida
+ * 
+ * As etapas 2 a 5 acontecem em fluxo: cada janela de páginas é dividida, vetorizada
+ * e gravada antes da próxima ser lida, então o pico de memória depende do tamanho
+ * da janela e não do tamanho do documento.
  * 
  * MODELO DE EMBEDDINGS:
  * - Nome: AllMiniLmL6V2
@@ -57,27 +75,38 @@ import java.nio.file.Paths;
  * - Qualidade: Excelente para busca semântica em português
  * 
  * USO:
- * DocumentIndexer indexer = new DocumentIndexer();
+ * DocumentIndexer indexer = new DocumentIndexer(EmbeddingModelProvider.get());
  * indexer.indexDocument(caminhoArquivo);
  * EmbeddingStore store = indexer.getEmbeddingStore();
+ * // ... consultas
+ * indexer.release(); // apaga o índice temporário (cache desabilitado)
  */
 public class DocumentIndexer {
     
     /**
-     * Armazena os embeddings (vetores) dos chunks de texto na memória.
+     * Armazena os embeddings (vetores) dos chunks de texto.
+     * 
+     * O MappedEmbeddingStore é um banco de dados vetorial simples que:
+     * - Armazena os vetores em um arquivo float32 contíguo (384 floats por chunk)
+     * - Armazena o texto dos chunks em arquivo separado, indexado por offset
+     * - Permite busca por similaridade (produto escalar sobre o buffer mapeado)
+     * - Mantém os dados no page cache do sistema, sem pressão no heap da JVM
      * 
-     * O InMemoryEmbeddingStore é um banco de dados vetorial simples que:
-     * - Armazena pares de (TextSegment, Embedding)
-     * - Permite busca por similaridade usando distância cosseno
-     * - Roda em memória RAM (rápido, mas perde dados ao fechar)
+     * Persistência entre execuções é feita pelo EmbeddingIndexCache, que grava
+     * cada índice em sua própria pasta em Config.INDEX_CACHE_FOLDER.
+     * Com o cache desabilitado, o índice fica em pasta temporária, apagada por release().
      * 
-     * Para produção, considere usar stores persistentes como:
-     * - Pinecone
-     * - Weaviate
-     * - Chroma
-     * - Milvus
+     * Fica null até a primeira chamada de indexDocument.
      */
-    private final InMemoryEmbeddingStore<TextSegment> embeddingStore;
+    private MappedEmbeddingStore embeddingStore;
+    
+    /**
+     * Índice lexical (BM25) com os mesmos chunks do embeddingStore, na mesma ordem.
+     * 
+     * Preenchido junto com o store durante a indexação (ou reconstruído a partir do
+     * store recarregado do cache). null se HYBRID_RETRIEVAL_ENABLED=false.
+     */
+    private Bm25Index lexicalIndex;
     
     /**
      * Modelo que converte texto em embeddings (vetores numéricos).
@@ -93,22 +122,52 @@ public class DocumentIndexer {
      */
     private final EmbeddingModel embeddingModel;
     
+    /**
+     * Cache persistente de índices (null se desabilitado via INDEX_CACHE_ENABLED).
+     */
+    private final EmbeddingIndexCache indexCache;
+    
+    /**
+     * Estatísticas dos lotes de embeddings da última indexação.
+     */
+    private int embeddingBatches;
+    private long embeddingMillis;
+    
+    /**
+     * Pool de vetorização paralela (criado sob demanda, ver embeddingPool()).
+     */
+    private static volatile ForkJoinPool embeddingPool;
+    
     /**
      * Construtor da classe DocumentIndexer.
      * 
+     * Usa o modelo de embeddings compartilhado (EmbeddingModelProvider),
+     * carregado uma única vez por JVM.
+     */
+    public DocumentIndexer() {
+        this(EmbeddingModelProvider.get());
+    }
+    
+    /**
+     * Construtor da classe DocumentIndexer com modelo de embeddings injetado.
+     * 
      * Inicializa os componentes necessários:
-     * 1. InMemoryEmbeddingStore - Banco de vetores em memória
-     * 2. AllMiniLmL6V2EmbeddingModel - Modelo de embeddings local
+     * 1. EmbeddingModel - Modelo de embeddings (normalmente AllMiniLmL6V2 compartilhado)
+     * 2. EmbeddingIndexCache - Cache de índices em disco (se habilitado)
      * 
-     * Nota: O modelo é baixado automaticamente na primeira execução
-     * e fica em cache para usos futuros (~80 MB).
+     * O EmbeddingStore é criado em indexDocument (novo ou recarregado do cache).
+     * 
+     * Nota: Reutilizar a mesma instância do modelo entre PDFs evita recarregar
+     * o modelo ONNX (~80 MB) a cada documento.
+     * 
+     * @param embeddingModel Modelo de embeddings a ser usado na indexação
      */
-    public DocumentIndexer() {
-        this.embeddingStore = new InMemoryEmbeddingStore<>();
-        this.embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+    public DocumentIndexer(EmbeddingModel embeddingModel) {
+        this.embeddingModel = embeddingModel;
+        this.indexCache = Config.INDEX_CACHE_ENABLED ? new EmbeddingIndexCache() : null;
         
         System.out.println("✅ DocumentIndexer inicializado");
-        System.out.println("   Embedding Model: AllMiniLmL6V2 (384 dimensões, local)");
+        System.out.println("   Embedding Model: AllMiniLmL6V2 (384 dimensões, local, compartilhado)");
     }
     
     /**
@@ -116,16 +175,21 @@ public class DocumentIndexer {
      * 
      * PROCESSO COMPLETO:
      * 
+     * 0. Se houver índice em cache para o PDF (mesmo conteúdo e mesmos parâmetros),
+     *    recarrega o store do disco e encerra sem parsing nem embeddings
      * 1. Valida se o arquivo existe
-     * 2. Carrega o PDF usando Apache Tika
-     * 3. Divide o documento em chunks usando DocumentSplitter recursivo
-     * 4. Gera embeddings para cada chunk usando AllMiniLmL6V2
-     * 5. Armazena os embeddings no InMemoryEmbeddingStore
+     * 2. Lê o PDF página a página usando Apache Tika (SAX)
+     * 3. A cada janela de páginas, divide o texto em chunks (por seção do FR ou recursivo)
+     * 4. Gera embeddings para os chunks da janela usando AllMiniLmL6V2
+     * 5. Armazena os embeddings no MappedEmbeddingStore e descarta a janela
+     * 6. Grava o índice no cache para as próximas execuções
      * 
      * PARÂMETROS DE CHUNKING (definidos em Config.java):
-     * - Tamanho máximo: 500 tokens (~375 palavras)
-     * - Overlap: 50 tokens (~37 palavras)
-     * - Estratégia: Recursiva (tenta manter parágrafos inteiros)
+     * - Janela: INGESTION_WINDOW_PAGES páginas (padrão 20), cortada por página
+     *   na primeira quebra de parágrafo
+     * - Tamanho máximo: MAX_SEGMENT_SIZE_IN_TOKENS (padrão 1200)
+     * - Overlap: SEGMENT_OVERLAP_IN_TOKENS (padrão 200), usado ao dividir blocos grandes
+     * - Estratégia: por item do FR (FrSectionSplitter) ou recursiva (SECTION_AWARE_CHUNKING=false)
      * 
      * PERFORMANCE:
      * - PDF pequeno (100 páginas): ~30 segundos
@@ -139,55 +203,74 @@ public class DocumentIndexer {
     public void indexDocument(String pdfFilePath) {
         try {
             System.out.println("📄 Iniciando indexação do documento: " + pdfFilePath);
+            long startTime = System.currentTimeMillis();
             
             // ETAPA 1: Carregar o arquivo PDF
             Path path = Paths.get(pdfFilePath);
-            System.out.println("   [1/5] Carregando arquivo PDF...");
             
-            // ETAPA 2: Parse do PDF com Apache Tika
-            // Apache Tika é uma biblioteca universal de parsing que suporta:
-            // - PDF, DOCX, PPTX, XLSX
-            // - HTML, XML, TXT
-            // - Imagens com OCR (se configurado)
-            ApacheTikaDocumentParser parser = new ApacheTikaDocumentParser();
-            Document document;
-            try (InputStream inputStream = new FileInputStream(path.toFile())) {
-                document = parser.parse(inputStream);
+            // Verificar cache de índices antes do parsing
+            String cacheKey = null;
+            if (indexCache != null) {
+                cacheKey = indexCache.computeKey(path);
+                MappedEmbeddingStore cached = indexCache.load(cacheKey);
+                if (cached != null) {
+                    this.embeddingStore = cached;
+                    this.lexicalIndex = Config.HYBRID_RETRIEVAL_ENABLED ? Bm25Index.build(cached) : null;
+                    System.out.println("   ⚡ Índice carregado do cache (" + cacheKey.substring(0, 12) + ")");
+                    System.out.println("   ✅ Parsing e embeddings ignorados (PDF inalterado) em "
+                            + (System.currentTimeMillis() - startTime) + "ms");
+                    return;
+                }
             }
-            System.out.println("   [2/5] Parsing concluído: " + document.text().length() + " caracteres");
             
-            // ETAPA 3: Dividir documento em chunks
-            // DocumentSplitter recursivo tenta manter a estrutura do texto:
-            // - Primeiro tenta dividir por parágrafos duplos (\n\n)
-            // - Se o chunk for muito grande, divide por parágrafos simples (\n)
-            // - Se ainda for grande, divide por sentenças (.)
-            // - Como último recurso, divide por palavras
-            System.out.println("   [3/5] Dividindo em chunks...");
-            DocumentSplitter splitter = DocumentSplitters.recursive(
-                Config.MAX_SEGMENT_SIZE_IN_TOKENS,
-                Config.SEGMENT_OVERLAP_IN_TOKENS
-            );
-
-            // ETAPA 4: Criar o Ingestor (processador de ingestão)
-            // EmbeddingStoreIngestor coordena o processo de:
-            // 1. Pegar cada chunk do DocumentSplitter
-            // 2. Enviar para o EmbeddingModel gerar o embedding
-            // 3. Armazenar o par (chunk, embedding) no EmbeddingStore
-            System.out.println("   [4/5] Gerando embeddings (pode demorar alguns minutos)...");
-            EmbeddingStoreIngestor ingestor = EmbeddingStoreIngestor.builder()
-                .documentSplitter(splitter)
-                .embeddingModel(embeddingModel)
-                .embeddingStore(embeddingStore)
-                .build();
+            System.out.println("   [1/5] Carregando arquivo PDF (streaming, "
+                    + Config.INGESTION_WINDOW_PAGES + " páginas por janela)...");
+            MappedEmbeddingStore store = indexCache != null
+                    ? indexCache.create(cacheKey)
+                    : MappedEmbeddingStore.createTemporary();
             
-            // ETAPA 5: Executar a ingestão completa
-            // Este método bloqueia até processar todo o documento
-            ingestor.ingest(document);
+            boolean stored = false;
+            try {
+                // ETAPAS 2-5: Parsing página a página com Apache Tika (SAX), chunking por
+                // janela de páginas, embeddings e armazenamento à medida que os chunks surgem.
+                // O texto completo do documento nunca fica em memória.
+                embeddingBatches = 0;
+                embeddingMillis = 0;
+                lexicalIndex = Config.HYBRID_RETRIEVAL_ENABLED ? new Bm25Index() : null;
+                StreamingSegmenter segmenter = newSegmenter(store);
+                int pages = new PdfPageReader().read(path, segmenter::addPage);
+                segmenter.finish();
+                System.out.println("   [2/5] Parsing concluído: " + pages + " páginas, "
+                        + segmenter.getTotalCharacters() + " caracteres");
             
-            // Exibe estatísticas finais
-            System.out.println("   [5/5] Indexação concluída!");
-            System.out.println("   ✅ Documento indexado com sucesso");
-            System.out.println("   ✅ Embeddings armazenados em memória");
+                // Exibe estatísticas finais
+                System.out.println("   [5/5] Indexação concluída!");
+                System.out.println("   ✅ Documento indexado com sucesso");
+            
+                // ETAPA 6: Persistir índice para as próximas execuções
+                if (indexCache != null) {
+                    this.embeddingStore = indexCache.commit(cacheKey, store);
+                    System.out.println("   💾 Índice gravado em cache (" + cacheKey.substring(0, 12) + ")");
+                } else {
+                    store.close();
+                    this.embeddingStore = store;
+                }
+                stored = true;
+            } finally {
+                if (!stored) {
+                    // Falha no meio da indexação: libera os arquivos e a pasta temporária
+                    if (indexCache != null) {
+                        indexCache.discard(store);
+                    } else {
+                        store.release();
+                    }
+                }
+            }
+            System.out.println("   ✅ " + embeddingStore.size() + " chunks armazenados (arquivo mapeado em memória)");
+            System.out.println("   ⏱️ Embeddings: " + embeddingBatches + " lote(s) de até " + Config.EMBEDDING_BATCH_SIZE
+                    + " chunks em " + embeddingMillis + "ms"
+                    + (embeddingBatches > 0 ? " (média " + (embeddingMillis / embeddingBatches) + "ms/lote)" : ""));
+            System.out.println("   ⏱️ Tempo de indexação: " + (System.currentTimeMillis() - startTime) + "ms");
             
         } catch (Exception e) {
             System.err.println("❌ Erro ao indexar documento: " + e.getMessage());
@@ -196,6 +279,197 @@ public class DocumentIndexer {
         }
     }
     
+    /**
+     * Indexa um documento já carregado em memória (sem parsing de PDF nem cache).
+     * 
+     * Útil para textos que não vêm de arquivo, como os documentos sintéticos
+     * usados nos benchmarks (src/jmh).
+     * 
+     * @param document Documento com o texto completo
+     * @throws RuntimeException Se houver erro no processamento
+     */
+    public void indexDocument(Document document) {
+        try {
+            long startTime = System.currentTimeMillis();
+            MappedEmbeddingStore store = MappedEmbeddingStore.createTemporary();
+            embeddingBatches = 0;
+            embeddingMillis = 0;
+            lexicalIndex = Config.HYBRID_RETRIEVAL_ENABLED ? new Bm25Index() : null;
+            try {
+                ingest(document, store);
+                store.close();
+            } catch (Exception e) {
+                store.release();
+                throw e;
+            }
+            this.embeddingStore = store;
+            System.out.println("   ✅ " + embeddingStore.size() + " chunks armazenados em "
+                    + (System.currentTimeMillis() - startTime) + "ms");
+        } catch (Exception e) {
+            System.err.println("❌ Erro ao indexar documento: " + e.getMessage());
+            throw new RuntimeException("Falha na indexação", e);
+        }
+    }
+    
+    /**
+     * Divide o documento em chunks, gera os embeddings e grava no store (etapas 3 a 5).
+     * 
+     * O documento inteiro é tratado como uma única página.
+     */
+    private void ingest(Document document, MappedEmbeddingStore store) throws Exception {
+        StreamingSegmenter segmenter = newSegmenter(store);
+        segmenter.addPage(1, document.text());
+        segmenter.finish();
+    }
+    
+    /**
+     * Cria o segmentador que alimenta o store janela a janela.
+     * 
+     * ETAPA 3: DocumentSplitter aplicado a cada janela de páginas:
+     * - SECTION_AWARE_CHUNKING: FrSectionSplitter divide pelos itens do FR
+     *   (uma instância por documento, pois guarda a seção corrente entre janelas)
+     * - Caso contrário, splitter recursivo:
+     *   - Primeiro tenta dividir por parágrafos duplos (\n\n)
+     *   - Se o chunk for muito grande, divide por parágrafos simples (\n)
+     *   - Se ainda for grande, divide por sentenças (.)
+     *   - Como último recurso, divide por palavras
+     * 
+     * ETAPAS 4-5: os chunks de cada janela são vetorizados e gravados no store
+     * assim que são produzidos, e então descartados da memória.
+     */
+    private StreamingSegmenter newSegmenter(MappedEmbeddingStore store) {
+        DocumentSplitter splitter = Config.SECTION_AWARE_CHUNKING
+            ? new FrSectionSplitter(Config.MAX_SEGMENT_SIZE_IN_TOKENS, Config.SEGMENT_OVERLAP_IN_TOKENS)
+            : DocumentSplitters.recursive(
+                Config.MAX_SEGMENT_SIZE_IN_TOKENS,
+                Config.SEGMENT_OVERLAP_IN_TOKENS
+            );
+        return new StreamingSegmenter(splitter, Config.INGESTION_WINDOW_PAGES,
+                segments -> embedInBatches(segments, store));
+    }
+    
+    /**
+     * Gera os embeddings dos chunks em lotes de EMBEDDING_BATCH_SIZE e grava no store.
+     * 
+     * Cada lote é uma chamada a embedAll no modelo ONNX; o tempo de cada lote é
+     * exibido para permitir ajustar o tamanho (vazão da sessão ONNX x memória).
+     * 
+     * Com EMBEDDING_PARALLELISM > 1 (limitado por embeddingParallelism()), os lotes da
+     * janela são vetorizados em paralelo no pool compartilhado. Os IDs são atribuídos antes do envio e os lotes são
+     * gravados na ordem original, então o store fica idêntico ao da execução
+     * sequencial (mesma ordem de chunks e mesmos IDs por chunk).
+     * 
+     * @param segments Chunks de uma janela, na ordem do documento
+     * @param store Store de destino
+     */
+    private void embedInBatches(List<TextSegment> segments, MappedEmbeddingStore store) {
+        int batchSize = Math.max(1, Config.EMBEDDING_BATCH_SIZE);
+        ForkJoinPool pool = embeddingPool();
+        
+        List<String> ids = new ArrayList<>(segments.size());
+        for (int i = 0; i < segments.size(); i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        
+        List<ForkJoinTask<EmbeddedBatch>> pending = new ArrayList<>();
+        for (int start = 0; start < segments.size(); start += batchSize) {
+            int end = Math.min(start + batchSize, segments.size());
+            List<TextSegment> batch = segments.subList(start, end);
+            List<String> batchIds = ids.subList(start, end);
+            if (pool == null) {
+                storeBatch(embedBatch(batchIds, batch), store);
+            } else {
+                pending.add(pool.submit(() -> embedBatch(batchIds, batch)));
+            }
+        }
+        
+        // Gravação na ordem do documento, independentemente da ordem de conclusão
+        for (ForkJoinTask<EmbeddedBatch> task : pending) {
+            storeBatch(task.join(), store);
+        }
+    }
+    
+    /**
+     * Lote de chunks já vetorizado, com o tempo gasto no embedAll.
+     */
+    private record EmbeddedBatch(List<String> ids, List<TextSegment> segments,
+                                 List<Embedding> embeddings, long millis) {
+    }
+    
+    private EmbeddedBatch embedBatch(List<String> ids, List<TextSegment> batch) {
+        long batchStart = System.nanoTime();
+        List<Embedding> embeddings = embeddingModel.embedAll(batch).content();
+        return new EmbeddedBatch(ids, batch, embeddings, (System.nanoTime() - batchStart) / 1_000_000);
+    }
+    
+    private void storeBatch(EmbeddedBatch batch, MappedEmbeddingStore store) {
+        store.addAll(batch.ids(), batch.embeddings(), batch.segments());
+        // Mesma ordem do store: a linha N do índice lexical é o chunk N do store
+        if (lexicalIndex != null) {
+            for (TextSegment segment : batch.segments()) {
+                lexicalIndex.add(segment.text());
+            }
+        }
+        
+        embeddingBatches++;
+        embeddingMillis += batch.millis();
+        System.out.printf("   [4/5] Lote %d: %d chunks em %dms (%.1f chunks/s) | total: %d chunks%n",
+                embeddingBatches, batch.segments().size(), batch.millis(),
+                batch.millis() == 0 ? 0.0 : batch.segments().size() * 1000.0 / batch.millis(), store.size());
+    }
+    
+    /**
+     * Pool compartilhado para vetorização paralela, ou null se o paralelismo efetivo for 1.
+     * 
+     * É único na JVM: com o pipeline paralelo (vários PDFs indexados ao mesmo tempo),
+     * o total de lotes vetorizados simultaneamente continua limitado pelo paralelismo.
+     */
+    private static ForkJoinPool embeddingPool() {
+        int parallelism = embeddingParallelism();
+        if (parallelism <= 1) {
+            return null;
+        }
+        ForkJoinPool pool = embeddingPool;
+        if (pool == null) {
+            synchronized (DocumentIndexer.class) {
+                pool = embeddingPool;
+                if (pool == null) {
+                    pool = new ForkJoinPool(parallelism);
+                    embeddingPool = pool;
+                    System.out.println("   🧵 Pool de embeddings: " + parallelism + " thread(s)"
+                            + (parallelism < Config.EMBEDDING_PARALLELISM
+                                    ? " (EMBEDDING_PARALLELISM=" + Config.EMBEDDING_PARALLELISM + " limitado aos núcleos livres)"
+                                    : ""));
+                }
+            }
+        }
+        return pool;
+    }
+    
+    /**
+     * Paralelismo efetivo da vetorização: EMBEDDING_PARALLELISM limitado aos núcleos
+     * que sobram para cada indexador.
+     * 
+     * PROBLEMA:
+     * No pipeline paralelo, INDEXING_THREADS PDFs são extraídos (Tika) e vetorizados ao
+     * mesmo tempo, e o próprio embedAll do modelo local pode distribuir os chunks de um
+     * lote entre núcleos. Um pool de EMBEDDING_PARALLELISM threads por cima disso
+     * disputa os mesmos núcleos (mais trocas de contexto, sem ganho de vazão).
+     * 
+     * LIMITE:
+     * núcleos / indexadores simultâneos (INDEXING_THREADS no pipeline, 1 no modo
+     * sequencial), no mínimo 1. Com o padrão INDEXING_THREADS = núcleos, o pipeline
+     * vetoriza sem pool extra; a vazão de cada combinação pode ser medida com
+     * DocumentIndexerBenchmark.concurrentIndexing.
+     * 
+     * @return Quantidade de lotes vetorizados em paralelo (1 = sequencial)
+     */
+    static int embeddingParallelism() {
+        int indexers = Config.BATCH_PARALLEL_ENABLED ? Math.max(1, Config.INDEXING_THREADS) : 1;
+        int coresPerIndexer = Math.max(1, Runtime.getRuntime().availableProcessors() / indexers);
+        return Math.max(1, Math.min(Config.EMBEDDING_PARALLELISM, coresPerIndexer));
+    }
+    
     /**
      * Retorna o EmbeddingStore contendo todos os embeddings indexados.
      * 
@@ -207,10 +481,10 @@ public class DocumentIndexer {
      * // Passar store para RagQueryEngine
      * 
      * ESTRUTURA DO STORE:
-     * O InMemoryEmbeddingStore contém:
-     * - Lista de TextSegments (chunks de texto)
-     * - Lista de Embeddings (vetores de 384 dimensões)
-     * - Índice interno para busca eficiente por similaridade
+     * O MappedEmbeddingStore contém:
+     * - Arquivo de TextSegments (chunks de texto + metadados)
+     * - Arquivo contíguo de Embeddings (vetores de 384 dimensões, normalizados)
+     * - Busca por força bruta sobre o buffer mapeado
      * 
      * @return EmbeddingStore contendo todos os chunks e seus embeddings
      */
@@ -218,6 +492,34 @@ public class DocumentIndexer {
         return embeddingStore;
     }
     
+    /**
+     * Apaga o índice temporário criado quando o cache está desabilitado
+     * (INDEX_CACHE_ENABLED=false). Índices do cache continuam em disco.
+     * 
+     * Deve ser chamado quando as questões da empresa terminarem: em lotes com
+     * centenas de FRs, cada índice temporário ocuparia o disco até o fim da JVM.
+     * O store e o RagQueryEngine criado sobre ele não podem mais ser usados.
+     */
+    public void release() {
+        if (embeddingStore == null) {
+            return;
+        }
+        try {
+            embeddingStore.release();
+        } catch (IOException e) {
+            System.err.println("⚠️ Falha ao apagar índice temporário " + embeddingStore.folder() + ": " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Retorna o índice lexical (BM25) dos chunks, usado na busca híbrida do RagQueryEngine.
+     * 
+     * @return Índice com os mesmos chunks do store, ou null se HYBRID_RETRIEVAL_ENABLED=false
+     */
+    public Bm25Index getLexicalIndex() {
+        return lexicalIndex;
+    }
+    
     /**
      * Retorna o modelo de embeddings utilizado na indexação.
      * 
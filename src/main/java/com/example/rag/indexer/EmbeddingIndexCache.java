@@ -0,0 +1,304 @@
+package com.example.rag.indexer;
+
+import com.example.rag.config.Config;
+import com.example.rag.store.MappedEmbeddingStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Cache persistente (em disco) dos índices vetoriais gerados pelo DocumentIndexer.
+ *
+ * PROBLEMA:
+ * Cada execução re-extrai e re-vetoriza todos os PDFs, o que custa minutos por
+ * Formulário de Referência antes mesmo da primeira questão ser processada.
+ *
+ * SOLUÇÃO:
+ * Cada índice é um MappedEmbeddingStore gravado em uma pasta própria. Nas execuções
+ * seguintes a pasta é reaberta e mapeada em memória diretamente, sem parsing
+ * nem vetorização.
+ *
+ * CHAVE DO CACHE (SHA-256 de):
+ * - Conteúdo binário do PDF (qualquer alteração no arquivo invalida o cache)
+ * - Nome do modelo de embeddings
+ * - MAX_SEGMENT_SIZE_IN_TOKENS
+ * - SEGMENT_OVERLAP_IN_TOKENS
+ * - INGESTION_WINDOW_PAGES (as bordas das janelas afetam os chunks)
+ * - SECTION_AWARE_CHUNKING (estratégia de divisão e metadados de seção)
+ * - MappedEmbeddingStore.FORMAT_VERSION (formato dos arquivos do índice)
+ *
+ * Alterar qualquer um desses parâmetros gera uma nova chave, de modo que um índice
+ * antigo nunca é reutilizado com configurações de chunking ou formato diferentes,
+ * e uma pasta publicada nunca precisa ser substituída.
+ *
+ * ARQUIVOS:
+ * - Pasta: Config.INDEX_CACHE_FOLDER (padrão: data/index)
+ * - Uma subpasta por índice: [chave]/ (arquivos do MappedEmbeddingStore)
+ * - Durante a indexação: [chave]-[sufixo aleatório]/, uma por escritor, renomeada ao
+ *   final (nunca fica índice pela metade)
+ * - Pastas temporárias sem alteração há mais de STALE_TEMP_AGE (escritor que caiu no
+ *   meio da indexação) são removidas na primeira abertura do cache em cada execução
+ *
+ * CONCORRÊNCIA:
+ * Várias threads (pool de indexação) ou processos podem indexar o mesmo PDF ao mesmo
+ * tempo. Cada escritor tem sua própria pasta temporária; no commit, se outro escritor
+ * já publicou o índice da chave, ele é reaproveitado e a cópia local é descartada.
+ * Um índice publicado que não abre (arquivos danificados) é tirado do lugar e
+ * substituído pelo deste escritor.
+ */
+public class EmbeddingIndexCache {
+
+    /**
+     * Nome do modelo de embeddings usado na composição da chave.
+     * Deve mudar sempre que o modelo usado pelo DocumentIndexer mudar.
+     */
+    public static final String EMBEDDING_MODEL_NAME = "AllMiniLmL6V2";
+
+    /**
+     * Idade (última alteração) a partir da qual uma pasta temporária é considerada
+     * abandonada. Bem acima do tempo de indexação de um FR, para não remover a pasta
+     * de um escritor ativo (outra thread ou outro processo).
+     */
+    static final Duration STALE_TEMP_AGE = Duration.ofHours(6);
+
+    // Tentativas de publicar o índice quando a pasta de destino está danificada
+    private static final int MAX_COMMIT_ATTEMPTS = 3;
+
+    // Pasta temporária de escritor ou índice danificado tirado do lugar: [chave]-[sufixo]
+    private static final Pattern TEMP_FOLDER = Pattern.compile("[0-9a-f]{64}-.+");
+
+    // Pastas de cache já varridas nesta JVM (um DocumentIndexer por PDF abre o cache)
+    private static final Set<Path> SWEPT_FOLDERS = ConcurrentHashMap.newKeySet();
+
+    private final Path cacheFolder;
+
+    public EmbeddingIndexCache() {
+        this(Paths.get(Config.INDEX_CACHE_FOLDER));
+    }
+
+    public EmbeddingIndexCache(Path cacheFolder) {
+        this.cacheFolder = cacheFolder;
+        if (SWEPT_FOLDERS.add(cacheFolder.toAbsolutePath().normalize())) {
+            sweepStaleTempFolders(Instant.now().minus(STALE_TEMP_AGE));
+        }
+    }
+
+    /**
+     * Calcula a chave do cache para um PDF com as configurações atuais de chunking.
+     *
+     * @param pdfPath Caminho do PDF
+     * @return Hash SHA-256 em hexadecimal
+     * @throws IOException Se houver erro ao ler o arquivo
+     */
+    public String computeKey(Path pdfPath) throws IOException {
+        MessageDigest digest = newDigest();
+
+        // Conteúdo do PDF (lido em blocos para não materializar o arquivo inteiro)
+        try (InputStream in = Files.newInputStream(pdfPath)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        // Parâmetros que alteram o resultado da indexação
+        String params = "|" + EMBEDDING_MODEL_NAME
+                + "|" + Config.MAX_SEGMENT_SIZE_IN_TOKENS
+                + "|" + Config.SEGMENT_OVERLAP_IN_TOKENS
+                + "|" + Config.INGESTION_WINDOW_PAGES
+                + "|" + Config.SECTION_AWARE_CHUNKING
+                + "|" + MappedEmbeddingStore.FORMAT_VERSION;
+        digest.update(params.getBytes(StandardCharsets.UTF_8));
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Abre um índice previamente gravado.
+     *
+     * @param key Chave calculada por computeKey
+     * @return Store mapeado ou null se não houver índice para a chave
+     */
+    public MappedEmbeddingStore load(String key) {
+        Path folder = cacheFolder.resolve(key);
+        if (!MappedEmbeddingStore.exists(folder)) {
+            return null;
+        }
+        try {
+            return MappedEmbeddingStore.open(folder);
+        } catch (Exception e) {
+            // Arquivos corrompidos ou de versão incompatível: reindexar
+            System.err.println("⚠️ Índice em cache inválido (" + key.substring(0, 12) + "): " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Cria um store vazio em uma pasta temporária exclusiva deste escritor.
+     *
+     * O store deve terminar em commit() ou, em caso de falha, em discard().
+     *
+     * @param key Chave calculada por computeKey
+     * @return Store pronto para receber chunks
+     * @throws IOException Se houver erro ao criar os arquivos
+     */
+    public MappedEmbeddingStore create(String key) throws IOException {
+        Files.createDirectories(cacheFolder);
+        return MappedEmbeddingStore.create(Files.createTempDirectory(cacheFolder, key + "-"));
+    }
+
+    /**
+     * Finaliza um store criado por create(): grava os arquivos, move a pasta
+     * temporária para o nome definitivo e reabre o índice mapeado.
+     *
+     * Se outro escritor publicou a mesma chave antes, o índice dele é usado (mesmo PDF,
+     * mesmos parâmetros) e a pasta temporária deste escritor é removida. Se o índice
+     * publicado estiver danificado, ele é renomeado para [chave]-stale-[sufixo] (removido
+     * em seguida) e o deste escritor assume o lugar.
+     *
+     * Se a publicação falhar, a pasta temporária continua com o chamador, que deve
+     * descartá-la com discard().
+     *
+     * @param key Chave calculada por computeKey
+     * @param store Store populado pela indexação
+     * @return Store definitivo (somente leitura)
+     * @throws IOException Se houver erro de escrita ou o índice não puder ser publicado
+     */
+    public MappedEmbeddingStore commit(String key, MappedEmbeddingStore store) throws IOException {
+        store.close();
+        Path target = cacheFolder.resolve(key);
+        IOException failure = null;
+        for (int attempt = 0; attempt < MAX_COMMIT_ATTEMPTS; attempt++) {
+            try {
+                Files.move(store.folder(), target, StandardCopyOption.ATOMIC_MOVE);
+                return MappedEmbeddingStore.open(target);
+            } catch (IOException e) {
+                // Pasta de destino já existe: o rename falha com um erro que varia por sistema
+                // (FileAlreadyExists, DirectoryNotEmpty ou FileSystemException genérica)
+                failure = e;
+            }
+            MappedEmbeddingStore published = load(key);
+            if (published != null) {
+                System.out.println("   ♻️ Índice já publicado por outro escritor (" + key.substring(0, 12) + ")");
+                deleteRecursively(store.folder());
+                return published;
+            }
+            if (Files.exists(target)) {
+                // Índice publicado danificado: tirá-lo do lugar e tentar de novo
+                Path stale = cacheFolder.resolve(key + "-stale-" + Long.toHexString(System.nanoTime()));
+                try {
+                    Files.move(target, stale, StandardCopyOption.ATOMIC_MOVE);
+                    System.err.println("⚠️ Índice danificado substituído (" + key.substring(0, 12) + ")");
+                    deleteQuietly(stale);
+                } catch (IOException e) {
+                    // Outro escritor pode ter movido a pasta antes; a próxima tentativa decide
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        throw new IOException("Não foi possível publicar o índice " + key.substring(0, 12), failure);
+    }
+
+    /**
+     * Descarta um store criado por create() cuja indexação falhou: fecha os arquivos
+     * e remove a pasta temporária. Erros são apenas registrados (o chamador já está
+     * tratando a falha original).
+     *
+     * @param store Store criado por create()
+     */
+    public void discard(MappedEmbeddingStore store) {
+        if (!Files.exists(store.folder())) {
+            return; // já movida por commit()
+        }
+        try {
+            store.close();
+            deleteRecursively(store.folder());
+        } catch (IOException e) {
+            System.err.println("⚠️ Falha ao remover índice temporário " + store.folder() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Remove pastas temporárias abandonadas (escritores que caíram no meio da indexação
+     * e índices danificados que não puderam ser apagados).
+     *
+     * @param olderThan Só remove pastas sem alteração desde este instante
+     */
+    void sweepStaleTempFolders(Instant olderThan) {
+        if (!Files.isDirectory(cacheFolder)) {
+            return;
+        }
+        try (Stream<Path> entries = Files.list(cacheFolder)) {
+            for (Path folder : entries.toList()) {
+                if (TEMP_FOLDER.matcher(folder.getFileName().toString()).matches()
+                        && Files.isDirectory(folder)
+                        && lastModified(folder).toInstant().isBefore(olderThan)) {
+                    System.out.println("   🧹 Removendo índice temporário abandonado: " + folder.getFileName());
+                    deleteQuietly(folder);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Falha ao varrer " + cacheFolder + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return Alteração mais recente da pasta ou de qualquer arquivo dentro dela
+     */
+    private static FileTime lastModified(Path folder) throws IOException {
+        try (Stream<Path> paths = Files.walk(folder)) {
+            FileTime latest = Files.getLastModifiedTime(folder);
+            for (Path path : paths.toList()) {
+                FileTime modified = Files.getLastModifiedTime(path);
+                if (modified.compareTo(latest) > 0) {
+                    latest = modified;
+                }
+            }
+            return latest;
+        }
+    }
+
+    private static void deleteQuietly(Path folder) {
+        try {
+            deleteRecursively(folder);
+        } catch (IOException e) {
+            System.err.println("⚠️ Falha ao remover " + folder + ": " + e.getMessage());
+        }
+    }
+
+    private static void deleteRecursively(Path folder) throws IOException {
+        if (!Files.exists(folder)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(folder)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+    }
+}
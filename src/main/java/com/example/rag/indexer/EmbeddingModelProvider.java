@@ -0,0 +1,59 @@
+package com.example.rag.indexer;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+
+/**
+ * Fornece uma única instância do modelo de embeddings por JVM.
+ *
+ * PROBLEMA:
+ * Cada instância de AllMiniLmL6V2EmbeddingModel carrega o modelo ONNX (~80 MB)
+ * e cria uma nova sessão do ONNX Runtime. Criar um modelo por PDF repete esse
+ * custo (tempo + pico de memória) para cada Formulário de Referência do lote.
+ *
+ * SOLUÇÃO:
+ * O modelo é carregado uma única vez, na primeira chamada de get(), e a mesma
+ * instância é injetada no DocumentIndexer e no RagQueryEngine de todos os PDFs.
+ * A sessão ONNX é thread-safe, então a instância pode ser compartilhada entre threads.
+ *
+ * USO:
+ * EmbeddingModel model = EmbeddingModelProvider.get();
+ * DocumentIndexer indexer = new DocumentIndexer(model);
+ */
+public final class EmbeddingModelProvider {
+
+    private static volatile EmbeddingModel instance;
+    private static volatile long loadTimeMs = -1;
+
+    private EmbeddingModelProvider() {
+    }
+
+    /**
+     * Retorna o modelo de embeddings compartilhado, carregando-o na primeira chamada.
+     *
+     * @return Instância única do AllMiniLmL6V2EmbeddingModel
+     */
+    public static EmbeddingModel get() {
+        EmbeddingModel model = instance;
+        if (model == null) {
+            synchronized (EmbeddingModelProvider.class) {
+                model = instance;
+                if (model == null) {
+                    long start = System.currentTimeMillis();
+                    model = new AllMiniLmL6V2EmbeddingModel();
+                    loadTimeMs = System.currentTimeMillis() - start;
+                    instance = model;
+                    System.out.println("✅ Modelo de embeddings carregado em " + loadTimeMs + "ms (AllMiniLmL6V2, compartilhado)");
+                }
+            }
+        }
+        return model;
+    }
+
+    /**
+     * @return Tempo de carregamento do modelo em milissegundos, ou -1 se ainda não carregado
+     */
+    public static long getLoadTimeMs() {
+        return loadTimeMs;
+    }
+}
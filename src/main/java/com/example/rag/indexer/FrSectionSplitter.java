@@ -0,0 +1,247 @@
+package com.example.rag.indexer;
+
+import com.example.rag.store.MappedEmbeddingStore;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * DocumentSplitter que respeita a estrutura do Formulário de Referência.
+ *
+ * PROBLEMA:
+ * O splitter recursivo corta o texto por tamanho, sem saber onde começa cada item
+ * do FR. Um chunk pode misturar o fim do item 2.1 com o início do 2.2, e o título
+ * de um item pode ficar em um chunk enquanto a tabela dele vai para o seguinte.
+ *
+ * ESTRUTURA RECONHECIDA:
+ * - Seção: linha iniciada por número de item seguido de título
+ *   (ex: "2.1 Condições financeiras e patrimoniais gerais", "7.3. Composição...")
+ * - Subitem: linha iniciada por letra e parêntese dentro de uma seção (ex: "h) ...")
+ * - Linhas de sumário (título terminando em número de página) são ignoradas
+ *
+ * REGRAS DE DIVISÃO:
+ * 1. O texto é dividido em blocos, um por seção/subitem
+ * 2. Blocos consecutivos da mesma seção são agrupados enquanto couberem no tamanho máximo
+ * 3. Um bloco maior que o máximo é dividido pelo splitter recursivo, mas o título
+ *    fica sempre no mesmo chunk que o conteúdo logo abaixo dele (tabela ou parágrafo)
+ * 4. Todo chunk começa pelo título da seção (e do subitem), inclusive as continuações,
+ *    para que o embedding de um trecho do meio de uma tabela ainda "saiba" de qual item é
+ *
+ * METADADOS DE CADA CHUNK:
+ * - section: número da seção (ex: "2.1", "7.3")
+ * - item: letra(s) do subitem (ex: "h", ou "a,b" quando agrupados)
+ * - section_title: título da seção
+ *
+ * O splitter guarda a seção corrente entre chamadas de split(), pois o
+ * StreamingSegmenter entrega o documento em janelas de páginas: texto no início
+ * de uma janela pertence à última seção da janela anterior. Use uma instância por documento.
+ */
+public class FrSectionSplitter implements DocumentSplitter {
+
+    // Mesmo nome da coluna de seções do MappedEmbeddingStore (filtro sem decodificar os chunks)
+    public static final String SECTION_KEY = MappedEmbeddingStore.SECTION_KEY;
+    public static final String ITEM_KEY = "item";
+    public static final String SECTION_TITLE_KEY = "section_title";
+
+    // "2.1 Condições financeiras", "7.3. Composição", "2.2 - Resultados" (título com maiúscula)
+    private static final Pattern SECTION_HEADING =
+            Pattern.compile("^\\s*(\\d{1,2}\\.\\d{1,2})(?:\\.\\d{1,2})*\\.?\\s+(?:[-–—]\\s+)?(\\p{Lu}.*)$");
+    // "h) comentários dos diretores"
+    private static final Pattern ITEM_HEADING = Pattern.compile("^\\s*([a-z])\\)\\s+\\S.*$");
+    // Sumário: "2.1 Condições financeiras ........ 45" ou "... gerais 45" (anos como "2024" não contam)
+    private static final Pattern TOC_LINE = Pattern.compile("(\\.{2,}\\s*|\\s)\\d{1,3}\\s*$");
+
+    private final int maxSegmentSize;
+    private final int maxOverlapSize;
+
+    // Estado entre janelas do mesmo documento
+    private String currentSection = "";
+    private String currentTitle = "";
+    private String currentSectionHeading = "";
+    private String currentItem = "";
+    private String currentItemHeading = "";
+
+    /**
+     * @param maxSegmentSize Tamanho máximo de cada chunk (mesma unidade do splitter recursivo)
+     * @param maxOverlapSize Sobreposição usada ao dividir blocos grandes
+     */
+    public FrSectionSplitter(int maxSegmentSize, int maxOverlapSize) {
+        this.maxSegmentSize = maxSegmentSize;
+        this.maxOverlapSize = maxOverlapSize;
+    }
+
+    /**
+     * Texto de uma seção/subitem. O texto é copiado da janela sem alterações
+     * (inclusive a linha de título, quando o bloco começa nela).
+     */
+    private static final class Block {
+        final String section;
+        final String title;
+        final String sectionHeading;
+        final String item;
+        final String itemHeading;
+        final StringBuilder text = new StringBuilder();
+
+        Block(String section, String title, String sectionHeading, String item, String itemHeading) {
+            this.section = section;
+            this.title = title;
+            this.sectionHeading = sectionHeading;
+            this.item = item;
+            this.itemHeading = itemHeading;
+        }
+
+        /**
+         * Linhas de título que faltam no início do conteúdo: um chunk sempre começa
+         * pelo título da seção (e do subitem), mesmo quando é uma continuação.
+         */
+        String prefixFor(String content) {
+            StringBuilder prefix = new StringBuilder();
+            if (!sectionHeading.isEmpty() && !content.startsWith(sectionHeading)) {
+                prefix.append(sectionHeading).append('\n');
+                if (!itemHeading.isEmpty() && !content.startsWith(itemHeading)) {
+                    prefix.append(itemHeading).append('\n');
+                }
+            }
+            return prefix.toString();
+        }
+    }
+
+    @Override
+    public List<TextSegment> split(Document document) {
+        List<Block> blocks = parseBlocks(document.text());
+
+        List<TextSegment> segments = new ArrayList<>();
+        List<Block> pending = new ArrayList<>();
+        int pendingLength = 0;
+
+        for (Block block : blocks) {
+            String text = block.text.toString().strip();
+            if (text.isEmpty()) {
+                continue;
+            }
+            boolean sameSection = !pending.isEmpty() && pending.get(0).section.equals(block.section);
+            if (!pending.isEmpty() && (!sameSection || pendingLength + 1 + text.length() > maxSegmentSize)) {
+                addPacked(pending, document, segments);
+                pending.clear();
+                pendingLength = 0;
+            }
+            int budget = maxSegmentSize - block.prefixFor(text).length();
+            if (pending.isEmpty() && text.length() > budget) {
+                splitLargeBlock(block, text, document, segments);
+            } else {
+                if (pending.isEmpty()) {
+                    pendingLength = maxSegmentSize - budget;
+                } else {
+                    pendingLength++;
+                }
+                pending.add(block);
+                pendingLength += text.length();
+            }
+        }
+        if (!pending.isEmpty()) {
+            addPacked(pending, document, segments);
+        }
+        return segments;
+    }
+
+    /**
+     * Separa o texto em blocos a cada título de seção ou subitem.
+     */
+    private List<Block> parseBlocks(String text) {
+        List<Block> blocks = new ArrayList<>();
+        // Início da janela: continua a seção/subitem da janela anterior
+        Block current = new Block(currentSection, currentTitle, currentSectionHeading, currentItem, currentItemHeading);
+        blocks.add(current);
+
+        boolean firstLine = true;
+        for (String line : text.split("\n", -1)) {
+            Matcher section = SECTION_HEADING.matcher(line);
+            Matcher item = ITEM_HEADING.matcher(line);
+            if (section.matches() && !TOC_LINE.matcher(line).find()) {
+                currentSection = section.group(1);
+                currentTitle = section.group(2).strip();
+                currentSectionHeading = line.strip();
+                currentItem = "";
+                currentItemHeading = "";
+                current = new Block(currentSection, currentTitle, currentSectionHeading, "", "");
+                blocks.add(current);
+            } else if (item.matches() && !currentSection.isEmpty()) {
+                currentItem = item.group(1);
+                currentItemHeading = line.strip();
+                current = new Block(currentSection, currentTitle, currentSectionHeading, currentItem, currentItemHeading);
+                blocks.add(current);
+            } else if (!firstLine) {
+                current.text.append('\n');
+            }
+            current.text.append(line);
+            firstLine = false;
+        }
+        return blocks;
+    }
+
+    /**
+     * Junta blocos consecutivos da mesma seção em um único chunk.
+     */
+    private void addPacked(List<Block> pending, Document document, List<TextSegment> segments) {
+        StringBuilder text = new StringBuilder();
+        List<String> items = new ArrayList<>();
+        for (Block block : pending) {
+            if (!text.isEmpty()) {
+                text.append('\n');
+            }
+            text.append(block.text);
+            if (!block.item.isEmpty() && !items.contains(block.item)) {
+                items.add(block.item);
+            }
+        }
+        Block first = pending.get(0);
+        String content = text.toString().strip();
+        segments.add(segment(first.prefixFor(content) + content, first, String.join(",", items),
+                document, segments.size()));
+    }
+
+    /**
+     * Divide um bloco maior que o tamanho máximo sem separar o título do conteúdo logo abaixo.
+     *
+     * O corpo (sem a linha de título) é dividido pelo splitter recursivo e cada pedaço
+     * recebe os títulos no início. Assim o primeiro pedaço do corpo, normalmente a tabela
+     * do item, fica sempre no mesmo chunk que o título.
+     */
+    private void splitLargeBlock(Block block, String text, Document document, List<TextSegment> segments) {
+        String headings = block.prefixFor("");
+        String ownHeading = block.itemHeading.isEmpty() ? block.sectionHeading : block.itemHeading;
+        String body = !ownHeading.isEmpty() && text.startsWith(ownHeading)
+                ? text.substring(ownHeading.length()).strip()
+                : text;
+        if (body.isEmpty()) {
+            segments.add(segment(block.prefixFor(text) + text, block, block.item, document, segments.size()));
+            return;
+        }
+
+        int pieceSize = Math.max(maxSegmentSize / 2, maxSegmentSize - headings.length());
+        DocumentSplitter recursive = DocumentSplitters.recursive(pieceSize, Math.min(maxOverlapSize, pieceSize / 2));
+        for (TextSegment piece : recursive.split(Document.from(body))) {
+            segments.add(segment(headings + piece.text(), block, block.item, document, segments.size()));
+        }
+    }
+
+    private static TextSegment segment(String text, Block block, String item, Document document, int index) {
+        Metadata metadata = document.metadata().copy().put("index", String.valueOf(index));
+        if (!block.section.isEmpty()) {
+            metadata.put(SECTION_KEY, block.section);
+            metadata.put(SECTION_TITLE_KEY, block.title);
+        }
+        if (!item.isEmpty()) {
+            metadata.put(ITEM_KEY, item);
+        }
+        return TextSegment.from(text, metadata);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.rag.indexer;
+
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Extrai o texto de um PDF página a página, sem materializar o documento inteiro.
+ *
+ * PROBLEMA:
+ * ApacheTikaDocumentParser.parse devolve um Document com o texto completo do PDF
+ * em uma única String. Em um FR de 1.000 páginas isso ocupa dezenas de MB de heap,
+ * somados a todos os segmentos gerados a partir dele.
+ *
+ * SOLUÇÃO:
+ * O Apache Tika é usado diretamente com um ContentHandler SAX. O parser de PDF emite
+ * cada página como um elemento div class="page"; ao final de cada um, o texto da página
+ * é entregue ao PageListener e descartado. Só uma página fica em memória por vez.
+ *
+ * Formatos sem marcação de página (ex: DOCX, TXT) são entregues como uma única página
+ * ao final do documento.
+ */
+public class PdfPageReader {
+
+    /**
+     * Recebe o texto de cada página, na ordem do documento.
+     */
+    @FunctionalInterface
+    public interface PageListener {
+        void onPage(int pageNumber, String text) throws Exception;
+    }
+
+    /**
+     * Lê o arquivo e entrega o texto de cada página ao listener.
+     *
+     * @param path Caminho do PDF
+     * @param listener Consumidor das páginas
+     * @return Quantidade de páginas lidas
+     * @throws Exception Se houver erro de leitura, parsing ou no próprio listener
+     */
+    public int read(Path path, PageListener listener) throws Exception {
+        PageHandler handler = new PageHandler(listener);
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            new AutoDetectParser().parse(inputStream, handler, new Metadata(), new ParseContext());
+        } catch (SAXException e) {
+            // Exceções do listener chegam embrulhadas pelo SAX
+            if (e.getException() != null) {
+                throw e.getException();
+            }
+            throw e;
+        }
+        return handler.pages;
+    }
+
+    /**
+     * ContentHandler que acumula o texto da página corrente.
+     *
+     * Texto fora de div class="page" (ex: antes da primeira página) é
+     * incorporado à página seguinte.
+     */
+    private static class PageHandler extends DefaultHandler {
+
+        private final PageListener listener;
+        private final StringBuilder page = new StringBuilder();
+        private int pages;
+
+        // Dentro de div class="page" e profundidade de divs aninhadas nela
+        private boolean inPage;
+        private int nestedDivs;
+
+        PageHandler(PageListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (!elementName(localName, qName).equals("div")) {
+                return;
+            }
+            if (inPage) {
+                nestedDivs++;
+            } else if ("page".equals(attributes.getValue("class"))) {
+                inPage = true;
+                nestedDivs = 0;
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) throws SAXException {
+            String name = elementName(localName, qName);
+            // Elementos de bloco terminam em quebra de linha (como no texto do ApacheTikaDocumentParser)
+            if (name.equals("p") || name.equals("div") || name.equals("tr") || name.equals("li")) {
+                page.append('\n');
+            }
+            if (name.equals("div") && inPage) {
+                if (nestedDivs > 0) {
+                    nestedDivs--;
+                } else {
+                    inPage = false;
+                    emitPage();
+                }
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            page.append(ch, start, length);
+        }
+
+        @Override
+        public void ignorableWhitespace(char[] ch, int start, int length) {
+            page.append(ch, start, length);
+        }
+
+        @Override
+        public void endDocument() throws SAXException {
+            // Conteúdo sem marcação de página (ou após a última página)
+            if (!page.toString().isBlank()) {
+                emitPage();
+            }
+        }
+
+        private void emitPage() throws SAXException {
+            pages++;
+            try {
+                listener.onPage(pages, page.toString());
+            } catch (Exception e) {
+                throw new SAXException(e);
+            }
+            page.setLength(0);
+        }
+
+        private static String elementName(String localName, String qName) {
+            return localName == null || localName.isEmpty() ? qName : localName;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.rag.indexer;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Divide em chunks um texto recebido aos poucos (página a página).
+ *
+ * FUNCIONAMENTO (janela deslizante):
+ * 1. As páginas são acumuladas até formar uma janela de N páginas (e ao menos duas
+ *    páginas na janela, contando a que veio da janela anterior: com N = 1, o
+ *    parágrafo entre duas páginas também fica inteiro)
+ * 2. A janela é cortada em trechos, um por página: cada trecho começa na primeira
+ *    quebra de parágrafo (linha em branco) da página, ou no início da página se ela
+ *    não tiver nenhuma. Assim o parágrafo que continua de uma página para a outra
+ *    fica inteiro no trecho anterior
+ * 3. Cada trecho é dividido pelo DocumentSplitter (o mesmo usado no documento inteiro)
+ * 4. O trecho da última página da janela não é dividido: pode continuar na próxima
+ *    página, então é levado para o início da próxima janela
+ * 5. Ao final do documento, a última janela é dividida por completo
+ *
+ * Os cortes são feitos pelo segmentador, em offsets conhecidos da janela: não é
+ * preciso localizar o texto dos segmentos na janela (o splitter normaliza
+ * separadores e pode acrescentar títulos, então o texto nem sempre existe literalmente).
+ *
+ * Assim a memória fica limitada a uma janela de páginas (mais os segmentos dela),
+ * independentemente do tamanho do documento.
+ *
+ * METADADOS DE CADA SEGMENTO:
+ * - index: posição do segmento no documento inteiro (contínua entre janelas)
+ * - page: página onde começa o trecho do segmento
+ */
+public class StreamingSegmenter {
+
+    /**
+     * Recebe os segmentos de cada janela, na ordem do documento.
+     */
+    @FunctionalInterface
+    public interface SegmentConsumer {
+        void accept(List<TextSegment> segments) throws Exception;
+    }
+
+    // Quebra de parágrafo: linha em branco (pode conter espaços)
+    private static final Pattern PARAGRAPH_BREAK = Pattern.compile("\n[ \t]*\n");
+
+    private final DocumentSplitter splitter;
+    private final int windowPages;
+    private final SegmentConsumer consumer;
+
+    // Janela corrente: texto e offset (no texto) onde cada página começa
+    private final StringBuilder window = new StringBuilder();
+    private final List<int[]> pageStarts = new ArrayList<>();
+    private int pagesInWindow;
+
+    private int segmentIndex;
+    private long totalCharacters;
+
+    /**
+     * @param splitter Splitter aplicado a cada janela
+     * @param windowPages Quantidade de páginas por janela
+     * @param consumer Destino dos segmentos (ex: embeddings + store)
+     */
+    public StreamingSegmenter(DocumentSplitter splitter, int windowPages, SegmentConsumer consumer) {
+        this.splitter = splitter;
+        this.windowPages = Math.max(1, windowPages);
+        this.consumer = consumer;
+    }
+
+    /**
+     * Adiciona o texto de uma página; divide e emite a janela quando ela estiver cheia.
+     *
+     * @param pageNumber Número da página (1-based)
+     * @param text Texto da página
+     * @throws Exception Se o consumidor falhar
+     */
+    public void addPage(int pageNumber, String text) throws Exception {
+        pageStarts.add(new int[]{window.length(), pageNumber});
+        window.append(text);
+        if (!text.endsWith("\n")) {
+            window.append('\n');
+        }
+        totalCharacters += text.length();
+        // Com uma única página, não há onde cortar antes do trecho que pode continuar
+        if (++pagesInWindow >= windowPages && pageStarts.size() > 1) {
+            flushWindow(false);
+        }
+    }
+
+    /**
+     * Emite os segmentos restantes (fim do documento).
+     *
+     * @throws Exception Se o consumidor falhar
+     */
+    public void finish() throws Exception {
+        flushWindow(true);
+    }
+
+    /**
+     * @return Quantidade de segmentos emitidos até agora
+     */
+    public int getSegmentCount() {
+        return segmentIndex;
+    }
+
+    /**
+     * @return Quantidade de caracteres recebidos
+     */
+    public long getTotalCharacters() {
+        return totalCharacters;
+    }
+
+    private void flushWindow(boolean last) throws Exception {
+        if (window.toString().isBlank()) {
+            return;
+        }
+        String text = window.toString();
+        List<int[]> runs = pageRuns(text);
+
+        // O trecho da última página pode continuar na próxima: volta para a próxima janela
+        int carryStart = -1;
+        if (!last && runs.size() > 1) {
+            carryStart = runs.remove(runs.size() - 1)[0];
+        }
+        int emitEnd = carryStart >= 0 ? carryStart : text.length();
+
+        List<TextSegment> segments = new ArrayList<>();
+        for (int r = 0; r < runs.size(); r++) {
+            int start = runs.get(r)[0];
+            int end = r + 1 < runs.size() ? runs.get(r + 1)[0] : emitEnd;
+            String runText = text.substring(start, end);
+            if (runText.isBlank()) {
+                continue;
+            }
+            String page = String.valueOf(runs.get(r)[1]);
+            for (TextSegment piece : splitter.split(Document.from(runText))) {
+                Metadata metadata = piece.metadata().copy()
+                        .put("index", String.valueOf(segmentIndex++))
+                        .put("page", page);
+                segments.add(TextSegment.from(piece.text(), metadata));
+            }
+        }
+
+        // Janela seguinte começa no trecho não emitido (com suas páginas)
+        List<int[]> carriedPages = new ArrayList<>();
+        if (carryStart >= 0) {
+            carriedPages.add(new int[]{0, pageAt(carryStart)});
+            for (int[] start : pageStarts) {
+                if (start[0] > carryStart) {
+                    carriedPages.add(new int[]{start[0] - carryStart, start[1]});
+                }
+            }
+        }
+        window.setLength(0);
+        pageStarts.clear();
+        pageStarts.addAll(carriedPages);
+        pagesInWindow = 0;
+        if (carryStart >= 0) {
+            window.append(text, carryStart, text.length());
+        }
+
+        if (!segments.isEmpty()) {
+            consumer.accept(segments);
+        }
+    }
+
+    /**
+     * Corta a janela em trechos, um por página (offsets crescentes).
+     *
+     * O primeiro trecho começa no início da janela; os demais, na primeira quebra de
+     * parágrafo da sua página (ou no início da página, se ela não tiver nenhuma).
+     *
+     * @return Pares {offset de início, página}
+     */
+    private List<int[]> pageRuns(String text) {
+        List<int[]> runs = new ArrayList<>();
+        if (pageStarts.isEmpty()) {
+            runs.add(new int[]{0, 0});
+            return runs;
+        }
+        Matcher paragraphBreak = PARAGRAPH_BREAK.matcher(text);
+        for (int p = 0; p < pageStarts.size(); p++) {
+            int pageStart = pageStarts.get(p)[0];
+            int pageEnd = p + 1 < pageStarts.size() ? pageStarts.get(p + 1)[0] : text.length();
+            int start = pageStart;
+            if (p == 0) {
+                start = 0;
+            } else if (paragraphBreak.region(pageStart, pageEnd).find()) {
+                start = paragraphBreak.end();
+            }
+            runs.add(new int[]{start, pageStarts.get(p)[1]});
+        }
+        return runs;
+    }
+
+    /**
+     * @return Página que contém o offset informado da janela corrente
+     */
+    private int pageAt(int offset) {
+        int page = pageStarts.isEmpty() ? 0 : pageStarts.get(0)[1];
+        for (int[] start : pageStarts) {
+            if (start[0] > offset) {
+                break;
+            }
+            page = start[1];
+        }
+        return page;
+    }
+}
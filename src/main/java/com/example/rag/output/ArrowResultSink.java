@@ -0,0 +1,185 @@
+package com.example.rag.output;
+
+import com.example.rag.automation.model.AnswerTrace;
+import com.example.rag.automation.model.CompanyResponse;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.FieldType;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Respostas em formato colunar tipado (Apache Arrow IPC, arquivo .arrow).
+ *
+ * PROBLEMA:
+ * O CSV de respostas usa ";" e colunas _Manual vazias; cada análise precisa de um
+ * parser próprio, e não há onde guardar a resposta bruta nem métricas por questão.
+ *
+ * ESQUEMA (uma linha por empresa):
+ * - empresa (utf8)
+ * - para cada questão N do guia:
+ *   q{N} (utf8)              → resposta final (pós-processada)
+ *   q{N}_raw (utf8)          → resposta bruta do Gemini
+ *   q{N}_score (float64)     → maior similaridade entre os chunks recuperados
+ *   q{N}_latency_ms (int64)  → tempo da questão (retrieval + Gemini)
+ * Valores desconhecidos são nulos (ex: respostas manuais, empresas recarregadas do diário).
+ *
+ * GRAVAÇÃO:
+ * As linhas são acumuladas em vetores Arrow e gravadas em lotes (record batches) de
+ * BATCH_ROWS empresas, em um arquivo parcial publicado com rename atômico em close()
+ * (como o CsvResultSink; abort() finaliza o parcial sem publicá-lo). Leitura direta
+ * com pyarrow/pandas/DuckDB/Polars.
+ *
+ * REQUISITO:
+ * A memória do Arrow exige --add-opens=java.base/java.nio=ALL-UNNAMED na JVM
+ * (já configurado em build.gradle para run/runApp).
+ */
+public class ArrowResultSink implements ResultSink {
+
+    // Empresas por record batch
+    private static final int BATCH_ROWS = 256;
+
+    private final Path path;
+    private final Path partialPath;
+    private final int[] questionNumbers;
+    private final BufferAllocator allocator;
+    private final VectorSchemaRoot root;
+    private final ArrowFileWriter writer;
+
+    private int batchRows;
+    private int rows;
+    private boolean closed;
+
+    /**
+     * @param path Arquivo .arrow de saída (substituído em close())
+     * @param questionNumbers Questões, na ordem das colunas
+     * @throws IOException Se houver erro ao criar o arquivo parcial
+     */
+    public ArrowResultSink(Path path, int[] questionNumbers) throws IOException {
+        this.path = path.toAbsolutePath();
+        this.partialPath = this.path.resolveSibling(
+                this.path.getFileName() + "." + ProcessHandle.current().pid() + ".partial");
+        this.questionNumbers = questionNumbers.clone();
+        Files.createDirectories(this.path.getParent());
+
+        this.allocator = new RootAllocator();
+        this.root = VectorSchemaRoot.create(schema(this.questionNumbers), allocator);
+        FileChannel channel = FileChannel.open(partialPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.writer = new ArrowFileWriter(root, null, channel);
+        writer.start();
+        root.allocateNew();
+    }
+
+    private static Schema schema(int[] questionNumbers) {
+        FieldType text = FieldType.nullable(ArrowType.Utf8.INSTANCE);
+        FieldType float64 = FieldType.nullable(new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE));
+        FieldType int64 = FieldType.nullable(new ArrowType.Int(64, true));
+
+        List<Field> fields = new ArrayList<>(1 + questionNumbers.length * 4);
+        fields.add(new Field("empresa", text, null));
+        for (int numero : questionNumbers) {
+            fields.add(new Field("q" + numero, text, null));
+            fields.add(new Field("q" + numero + "_raw", text, null));
+            fields.add(new Field("q" + numero + "_score", float64, null));
+            fields.add(new Field("q" + numero + "_latency_ms", int64, null));
+        }
+        return new Schema(fields);
+    }
+
+    @Override
+    public synchronized void write(CompanyResponse response) throws IOException {
+        if (closed) {
+            throw new IOException("Arquivo Arrow já fechado: " + path);
+        }
+        int row = batchRows;
+        setText(0, row, response.getNomeEmpresa());
+        int column = 1;
+        for (int numero : questionNumbers) {
+            setText(column, row, response.getResposta(numero));
+            AnswerTrace trace = response.getTrace(numero);
+            if (trace != null) {
+                setText(column + 1, row, trace.rawAnswer());
+                if (!Double.isNaN(trace.retrievalScore())) {
+                    ((Float8Vector) root.getVector(column + 2)).setSafe(row, trace.retrievalScore());
+                }
+                if (trace.latencyMs() >= 0) {
+                    ((BigIntVector) root.getVector(column + 3)).setSafe(row, trace.latencyMs());
+                }
+            }
+            column += 4;
+        }
+        batchRows++;
+        rows++;
+        if (batchRows == BATCH_ROWS) {
+            flushBatch();
+        }
+    }
+
+    // Posições não preenchidas ficam nulas (bit de validade zerado por allocateNew)
+    private void setText(int column, int row, String value) {
+        if (value != null) {
+            ((VarCharVector) root.getVector(column)).setSafe(row, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void flushBatch() throws IOException {
+        root.setRowCount(batchRows);
+        writer.writeBatch();
+        root.clear();
+        root.allocateNew();
+        batchRows = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        finish();
+        Files.move(partialPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("✅ " + rows + " empresa(s) gravada(s) em " + path.getFileName());
+    }
+
+    @Override
+    public synchronized void abort() throws IOException {
+        if (closed) {
+            return;
+        }
+        finish();
+        System.err.println("⚠️ " + path.getFileName() + " não substituído; " + rows
+                + " empresa(s) em " + partialPath.getFileName());
+    }
+
+    // Grava o lote pendente e o rodapé (o parcial fica legível) e libera a memória do Arrow
+    private void finish() throws IOException {
+        closed = true;
+        try {
+            if (batchRows > 0) {
+                flushBatch();
+            }
+            writer.end();
+        } finally {
+            writer.close();
+            root.close();
+            allocator.close();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.rag.output;
+
+import com.example.rag.automation.model.CompanyResponse;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Grava as respostas em vários destinos ao mesmo tempo (ex: CSV + Arrow).
+ *
+ * close() e abort() alcançam todos os destinos, mesmo se algum falhar; a primeira
+ * falha é relançada com as demais como suppressed.
+ */
+public class CompositeResultSink implements ResultSink {
+
+    private final List<ResultSink> sinks;
+
+    public CompositeResultSink(List<ResultSink> sinks) {
+        this.sinks = List.copyOf(sinks);
+    }
+
+    @Override
+    public void write(CompanyResponse response) throws IOException {
+        for (ResultSink sink : sinks) {
+            sink.write(response);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        forEachSink(ResultSink::close);
+    }
+
+    @Override
+    public void abort() throws IOException {
+        forEachSink(ResultSink::abort);
+    }
+
+    @FunctionalInterface
+    private interface SinkAction {
+        void apply(ResultSink sink) throws IOException;
+    }
+
+    private void forEachSink(SinkAction action) throws IOException {
+        IOException failure = null;
+        for (ResultSink sink : sinks) {
+            try {
+                action.apply(sink);
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
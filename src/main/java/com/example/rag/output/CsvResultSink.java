@@ -0,0 +1,99 @@
+package com.example.rag.output;
+
+import com.example.rag.automation.model.AnswerLayout;
+import com.example.rag.automation.model.CompanyResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * CSV de respostas (output/respostas.csv) gravado de forma incremental e segura.
+ *
+ * PROBLEMA:
+ * O CSV era recriado (truncado) no início de cada execução e preenchido por um
+ * PrintWriter. Uma queda no meio do lote, ou uma segunda execução ao mesmo tempo,
+ * deixava o arquivo com o resultado anterior perdido e linhas pela metade.
+ *
+ * SOLUÇÃO:
+ * 1. As linhas são gravadas em um arquivo parcial ao lado do CSV
+ *    (respostas.csv.[pid].partial, um por processo)
+ * 2. Cada linha é gravada de uma vez (um único write, sob lock) seguida de fsync:
+ *    o parcial nunca tem linha incompleta, mesmo com várias threads gravando
+ * 3. close() troca o CSV pelo parcial com rename atômico
+ *
+ * Enquanto o lote roda, o respostas.csv anterior continua intacto. Se o processo
+ * cair ou o lote falhar (abort()), o parcial fica com as empresas concluídas até ali
+ * (e o diário de checkpoint permite refazer o CSV completo com --resume).
+ */
+public class CsvResultSink implements ResultSink {
+
+    private final Path path;
+    private final Path partialPath;
+    private final FileChannel channel;
+    private int rows;
+    private boolean closed;
+
+    /**
+     * Cria o arquivo parcial e grava o cabeçalho.
+     *
+     * @param path CSV de saída (substituído em close())
+     * @param layout Questões (colunas) do guia de coleta
+     * @throws IOException Se houver erro ao criar o arquivo parcial
+     */
+    public CsvResultSink(Path path, AnswerLayout layout) throws IOException {
+        this.path = path.toAbsolutePath();
+        this.partialPath = this.path.resolveSibling(
+                this.path.getFileName() + "." + ProcessHandle.current().pid() + ".partial");
+        Files.createDirectories(this.path.getParent());
+        this.channel = FileChannel.open(partialPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        append(layout.csvHeader());
+        System.out.println("📝 Respostas em " + partialPath.getFileName() + " (publicado como "
+                + this.path.getFileName() + " ao final)");
+    }
+
+    @Override
+    public void write(CompanyResponse response) throws IOException {
+        append(response.toCsvLine());
+    }
+
+    private synchronized void append(String line) throws IOException {
+        if (closed) {
+            throw new IOException("CSV de respostas já fechado: " + path);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap((line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        rows++;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        channel.close();
+        Files.move(partialPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        System.out.println("✅ " + (rows - 1) + " empresa(s) gravada(s) em " + path.getFileName());
+    }
+
+    @Override
+    public synchronized void abort() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        channel.close();
+        System.err.println("⚠️ " + path.getFileName() + " não substituído; " + (rows - 1)
+                + " empresa(s) em " + partialPath.getFileName());
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.rag.output;
+
+import com.example.rag.automation.model.CompanyResponse;
+
+import java.io.IOException;
+
+/**
+ * Destino das respostas de cada empresa (uma linha/registro por empresa).
+ *
+ * Implementações devem aceitar chamadas concorrentes de write(): no pipeline
+ * paralelo (BatchPipeline) várias threads de respostas concluem empresas ao mesmo tempo.
+ *
+ * Uma execução que falha chama abort() em vez de publicar o resultado parcial:
+ * o arquivo da execução anterior continua intacto.
+ *
+ * USO:
+ * try (ResultSink sink = new CsvResultSink(Path.of("output/respostas.csv"), layout)) {
+ *     try {
+ *         sink.write(response);
+ *     } catch (Exception e) {
+ *         sink.abort();
+ *         throw e;
+ *     }
+ * }
+ */
+public interface ResultSink extends AutoCloseable {
+
+    /**
+     * Grava as respostas de uma empresa.
+     *
+     * @param response Respostas da empresa (já com as respostas manuais, se houver)
+     * @throws IOException Se houver erro de gravação
+     */
+    void write(CompanyResponse response) throws IOException;
+
+    /**
+     * Conclui a gravação (ex: publica o arquivo final).
+     *
+     * @throws IOException Se houver erro de gravação
+     */
+    @Override
+    void close() throws IOException;
+
+    /**
+     * Encerra sem publicar: libera os recursos e mantém o arquivo final anterior.
+     * O arquivo parcial permanece em disco para conferência. close() depois de
+     * abort() não tem efeito.
+     *
+     * @throws IOException Se houver erro ao liberar os recursos
+     */
+    void abort() throws IOException;
+}
@@ -0,0 +1,217 @@
+package com.example.rag.pipeline;
+
+import com.example.rag.indexer.DocumentIndexer;
+import com.example.rag.retrieval.RagQueryEngine;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pipeline de processamento em lote com dois estágios concorrentes.
+ *
+ * PROBLEMA:
+ * No modo sequencial a CPU fica ociosa durante toda a espera do Gemini
+ * (chamada + delay de rate limiting), e a indexação do próximo PDF só começa
+ * depois que todas as questões do PDF atual foram respondidas.
+ *
+ * ESTÁGIOS:
+ *
+ * 1. INDEXAÇÃO (CPU-bound)
+ *    - Pool de threads dimensionado pelos núcleos (Config.INDEXING_THREADS)
+ *    - Cada tarefa indexa um PDF e publica o RagQueryEngine pronto na fila
+ *
+ * 2. RESPOSTAS (LLM-bound)
+ *    - Pool separado (Config.ANSWERING_THREADS) consome a fila e responde
+ *      as questões de empresas já indexadas
+ *
+ * FILA LIMITADA:
+ * Entre os estágios há uma ArrayBlockingQueue de capacidade fixa
+ * (Config.PIPELINE_QUEUE_CAPACITY). Quando o estágio de respostas está atrasado,
+ * os indexadores bloqueiam no put(), então no máximo
+ * INDEXING_THREADS + PIPELINE_QUEUE_CAPACITY documentos indexados aguardam
+ * ao mesmo tempo — o consumo de memória não cresce com o tamanho do lote.
+ * Pelo mesmo motivo o índice temporário de cada documento (cache desabilitado)
+ * é apagado assim que as questões da empresa terminam (DocumentIndexer.release()).
+ *
+ * FALHAS:
+ * Falhas ao indexar um documento são registradas e não interrompem o lote. Uma exceção
+ * do CompanyHandler interrompe o lote: as indexações pendentes são canceladas, os
+ * documentos já na fila são descartados e run() relança a exceção. Falhas que devem
+ * afetar só uma empresa (ex: cota do Gemini) são tratadas pelo próprio handler.
+ */
+public class BatchPipeline {
+
+    /**
+     * Processa as questões de uma empresa já indexada (estágio 2).
+     * Uma exceção interrompe o lote (ex: diário de progresso que não pôde ser gravado).
+     */
+    @FunctionalInterface
+    public interface CompanyHandler {
+        void handle(String companyName, RagQueryEngine queryEngine) throws Exception;
+    }
+
+    /**
+     * Documento indexado aguardando o estágio de respostas.
+     */
+    private record IndexedDocument(String companyName, DocumentIndexer indexer, RagQueryEngine queryEngine) {
+    }
+
+    // Marcador de fim da fila (um por thread de respostas)
+    private static final IndexedDocument END_OF_QUEUE = new IndexedDocument(null, null, null);
+
+    private final EmbeddingModel embeddingModel;
+    private final int indexingThreads;
+    private final int answeringThreads;
+    private final int queueCapacity;
+
+    public BatchPipeline(EmbeddingModel embeddingModel, int indexingThreads, int answeringThreads, int queueCapacity) {
+        this.embeddingModel = embeddingModel;
+        this.indexingThreads = Math.max(1, indexingThreads);
+        this.answeringThreads = Math.max(1, answeringThreads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    /**
+     * Executa o pipeline para todos os PDFs e aguarda a conclusão.
+     *
+     * @param pdfFiles PDFs a processar
+     * @param handler Processamento das questões de cada empresa indexada
+     * @throws InterruptedException Se a thread principal for interrompida
+     * @throws Exception Primeira exceção do handler (o lote foi interrompido)
+     */
+    public void run(List<File> pdfFiles, CompanyHandler handler) throws Exception {
+        System.out.println("🚀 Pipeline paralelo: " + indexingThreads + " indexador(es), "
+                + answeringThreads + " worker(s) de respostas, fila de " + queueCapacity);
+
+        BlockingQueue<IndexedDocument> queue = new ArrayBlockingQueue<>(queueCapacity);
+        ExecutorService indexingPool = Executors.newFixedThreadPool(indexingThreads, namedThreads("indexer"));
+        ExecutorService answeringPool = Executors.newFixedThreadPool(answeringThreads, namedThreads("answerer"));
+        AtomicReference<Exception> failure = new AtomicReference<>();
+
+        try {
+            // ESTÁGIO 2: consumidores iniciados antes para começar assim que o primeiro PDF estiver pronto
+            for (int i = 0; i < answeringThreads; i++) {
+                answeringPool.submit(() -> consume(queue, handler, failure, indexingPool));
+            }
+
+            // ESTÁGIO 1: uma tarefa de indexação por PDF
+            List<Future<?>> indexingTasks = new ArrayList<>();
+            for (File pdfFile : pdfFiles) {
+                indexingTasks.add(indexingPool.submit(() -> {
+                    index(pdfFile, queue);
+                    return null;
+                }));
+            }
+
+            for (Future<?> task : indexingTasks) {
+                try {
+                    task.get();
+                } catch (ExecutionException | CancellationException e) {
+                    // Já registrado em index(), ou cancelada porque o lote foi interrompido
+                }
+            }
+
+            // Sinaliza fim para cada consumidor e aguarda o esvaziamento da fila
+            for (int i = 0; i < answeringThreads; i++) {
+                queue.put(END_OF_QUEUE);
+            }
+            answeringPool.shutdown();
+            answeringPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } finally {
+            indexingPool.shutdownNow();
+            answeringPool.shutdownNow();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private void index(File pdfFile, BlockingQueue<IndexedDocument> queue) throws InterruptedException {
+        String companyName = pdfFile.getName().replaceFirst("\\.pdf$", "");
+        try {
+            long start = System.currentTimeMillis();
+            DocumentIndexer indexer = new DocumentIndexer(embeddingModel);
+            indexer.indexDocument(pdfFile.getAbsolutePath());
+            RagQueryEngine queryEngine = new RagQueryEngine(indexer.getEmbeddingStore(), indexer.getEmbeddingModel(),
+                    indexer.getLexicalIndex());
+            System.out.println("⏱️ " + companyName + ": indexação " + (System.currentTimeMillis() - start) + "ms");
+
+            // Bloqueia se a fila estiver cheia (backpressure do estágio de respostas)
+            queue.put(new IndexedDocument(companyName, indexer, queryEngine));
+        } catch (InterruptedException e) {
+            throw e;
+        } catch (Exception e) {
+            System.err.println("❌ Falha ao indexar " + pdfFile.getName() + ": " + e.getMessage());
+            throw e;
+        }
+    }
+
+    /**
+     * Consome a fila até o marcador de fim. Depois de uma falha do handler, os
+     * documentos restantes são apenas retirados da fila (o produtor nunca fica bloqueado).
+     */
+    private void consume(BlockingQueue<IndexedDocument> queue, CompanyHandler handler,
+                         AtomicReference<Exception> failure, ExecutorService indexingPool) {
+        try {
+            while (true) {
+                IndexedDocument document = queue.take();
+                if (document == END_OF_QUEUE) {
+                    return;
+                }
+                if (failure.get() != null) {
+                    document.indexer().release();
+                    continue;
+                }
+                long start = System.currentTimeMillis();
+                try {
+                    handler.handle(document.companyName(), document.queryEngine());
+                    System.out.println("⏱️ " + document.companyName() + ": questões "
+                            + (System.currentTimeMillis() - start) + "ms");
+                } catch (Exception e) {
+                    System.err.println("❌ Falha ao processar questões de " + document.companyName()
+                            + ": " + e.getMessage() + " (lote interrompido)");
+                    if (failure.compareAndSet(null, e)) {
+                        cancelIndexing(indexingPool);
+                    }
+                } finally {
+                    document.indexer().release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Interrompe as indexações em andamento e cancela as que ainda não começaram.
+     */
+    private static void cancelIndexing(ExecutorService indexingPool) {
+        for (Runnable pending : indexingPool.shutdownNow()) {
+            if (pending instanceof Future<?> task) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.rag.retrieval;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Monta o contexto do prompt a partir dos chunks recuperados, dentro de um orçamento de tokens.
+ *
+ * PROBLEMA:
+ * Concatenar todos os MAX_RESULTS_FOR_RETRIEVAL chunks (15 x 1.200 tokens) gera até
+ * ~18 mil tokens de contexto por questão. O tamanho do prompt define a latência do
+ * Gemini e o consumo da cota de tokens por minuto, e boa parte desse texto é repetido
+ * (sobreposição entre chunks vizinhos) ou pouco relevante (fim do ranking).
+ *
+ * REGRAS (aplicadas na ordem do ranking):
+ * 1. Cauda de score baixo: depois dos MIN_CHUNKS primeiros, chunks com score abaixo
+ *    de (melhor score - margem) são descartados
+ * 2. Duplicatas: chunk contido em outro já incluído é descartado
+ * 3. Sobreposição: o trecho repetido entre chunks vizinhos (SEGMENT_OVERLAP_IN_TOKENS)
+ *    é removido do chunk que entra depois (títulos repetidos no início são mantidos)
+ * 4. Orçamento: chunks que não cabem no orçamento restante são pulados; o primeiro
+ *    chunk é truncado se sozinho exceder o orçamento
+ *
+ * Tokens estimados como em RateLimiter.estimateTokens (~4 caracteres por token).
+ *
+ * USO:
+ * String context = new ContextBuilder(4000, 0.10).build(matches);
+ */
+public class ContextBuilder {
+
+    public static final String SEPARATOR = "\n\n---\n\n";
+
+    // Chunks do topo do ranking mantidos independentemente do score (busca híbrida
+    // pode trazer, entre os primeiros, chunks lexicais com similaridade menor)
+    private static final int MIN_CHUNKS = 3;
+
+    // Tamanho mínimo (caracteres) de um trecho para ser tratado como sobreposição
+    private static final int MIN_OVERLAP_CHARS = 40;
+
+    // Linhas de título que o splitter pode repetir no início de um chunk
+    private static final int MAX_PREFIX_LINES = 2;
+
+    private final int tokenBudget;
+    private final double scoreMargin;
+
+    // Estatísticas da última montagem
+    private int includedChunks;
+    private int droppedChunks;
+    private int trimmedChars;
+
+    /**
+     * @param tokenBudget Máximo de tokens (estimados) do contexto
+     * @param scoreMargin Distância máxima do melhor score para um chunk fora do topo
+     */
+    public ContextBuilder(int tokenBudget, double scoreMargin) {
+        this.tokenBudget = Math.max(1, tokenBudget);
+        this.scoreMargin = scoreMargin;
+    }
+
+    /**
+     * @param matches Chunks recuperados, na ordem do ranking
+     * @return Contexto com os chunks separados por "---" (vazio se não houver matches)
+     */
+    public String build(List<EmbeddingMatch<TextSegment>> matches) {
+        includedChunks = 0;
+        droppedChunks = 0;
+        trimmedChars = 0;
+
+        double bestScore = 0.0;
+        for (EmbeddingMatch<TextSegment> match : matches) {
+            bestScore = Math.max(bestScore, match.score());
+        }
+
+        int budgetChars = tokenBudget * RateLimiter.CHARS_PER_TOKEN;
+        List<String> included = new ArrayList<>();
+        int usedChars = 0;
+
+        for (int rank = 0; rank < matches.size(); rank++) {
+            EmbeddingMatch<TextSegment> match = matches.get(rank);
+            if (rank >= MIN_CHUNKS && match.score() < bestScore - scoreMargin) {
+                droppedChunks++;
+                continue;
+            }
+
+            String text = removeOverlap(match.embedded().text().strip(), included);
+            if (text.isEmpty()) {
+                droppedChunks++;
+                continue;
+            }
+
+            int cost = text.length() + (included.isEmpty() ? 0 : SEPARATOR.length());
+            if (usedChars + cost > budgetChars) {
+                if (!included.isEmpty()) {
+                    droppedChunks++;
+                    continue;
+                }
+                trimmedChars += text.length() - budgetChars;
+                text = text.substring(0, budgetChars);
+                cost = budgetChars;
+            }
+            included.add(text);
+            usedChars += cost;
+        }
+
+        includedChunks = included.size();
+        return String.join(SEPARATOR, included);
+    }
+
+    /**
+     * Remove do texto o que já está nos chunks incluídos.
+     *
+     * @return Texto sem a parte repetida, ou vazio se estiver inteiro em outro chunk
+     */
+    private String removeOverlap(String text, List<String> included) {
+        for (String other : included) {
+            if (other.contains(text)) {
+                trimmedChars += text.length();
+                return "";
+            }
+        }
+        for (String other : included) {
+            // Início deste chunk = fim de um chunk já incluído (chunk seguinte no documento)
+            int start = 0;
+            for (int line = 0; line <= MAX_PREFIX_LINES && start < text.length(); line++) {
+                int overlap = suffixPrefixOverlap(other, text, start);
+                if (overlap >= MIN_OVERLAP_CHARS) {
+                    trimmedChars += overlap;
+                    return (text.substring(0, start) + text.substring(start + overlap).strip()).strip();
+                }
+                int lineEnd = text.indexOf('\n', start);
+                if (lineEnd < 0) {
+                    break;
+                }
+                start = lineEnd + 1;
+            }
+            // Fim deste chunk = início de um chunk já incluído (chunk anterior no documento)
+            int overlap = suffixPrefixOverlap(text, other, 0);
+            if (overlap >= MIN_OVERLAP_CHARS) {
+                trimmedChars += overlap;
+                text = text.substring(0, text.length() - overlap).strip();
+            }
+        }
+        return text;
+    }
+
+    /**
+     * @return Tamanho do maior sufixo de "before" que aparece em "after" a partir de "start"
+     */
+    private static int suffixPrefixOverlap(String before, String after, int start) {
+        int probeLength = Math.min(MIN_OVERLAP_CHARS, after.length() - start);
+        if (probeLength < MIN_OVERLAP_CHARS) {
+            return 0;
+        }
+        String probe = after.substring(start, start + probeLength);
+        int from = before.length();
+        while (true) {
+            int position = before.lastIndexOf(probe, from);
+            if (position < 0) {
+                return 0;
+            }
+            int length = before.length() - position;
+            if (after.startsWith(before.substring(position), start)) {
+                return length;
+            }
+            from = position - 1;
+        }
+    }
+
+    /**
+     * @return Chunks incluídos na última montagem
+     */
+    public int getIncludedChunks() {
+        return includedChunks;
+    }
+
+    /**
+     * @return Chunks descartados na última montagem (score, duplicata ou orçamento)
+     */
+    public int getDroppedChunks() {
+        return droppedChunks;
+    }
+
+    /**
+     * @return Caracteres removidos por sobreposição, duplicata ou truncamento
+     */
+    public int getTrimmedChars() {
+        return trimmedChars;
+    }
+}
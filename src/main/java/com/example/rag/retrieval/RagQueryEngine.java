@@ -1,18 +1,32 @@
 package com.example.rag.retrieval;
 
 import com.example.rag.config.Config;
+import com.example.rag.store.Bm25Index;
+import com.example.rag.store.MappedEmbeddingStore;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
+import dev.langchain4j.model.googleai.GoogleAiGeminiStreamingChatModel;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
 import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
 import dev.langchain4j.store.embedding.EmbeddingSearchResult;
 import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Motor de consulta RAG (Retrieval-Augmented Generation).
@@ -43,6 +57,13 @@ import java.util.stream.Collectors;
  * - 0.7-0.8 = Similar (pode ser relevante)
  * - Abaixo de 0.7 = Menos similar (configurável)
  * 
+ * BUSCA HÍBRIDA (HYBRID_RETRIEVAL_ENABLED + Bm25Index do DocumentIndexer):
+ * O ranking vetorial e o ranking lexical (BM25 sobre os termos da query, incluindo
+ * as palavras-chave do guia) são unidos por Reciprocal Rank Fusion:
+ *   score(chunk) = HYBRID_VECTOR_WEIGHT / (k + posição vetorial)
+ *                + HYBRID_LEXICAL_WEIGHT / (k + posição lexical)
+ * A fusão define a ORDEM dos chunks; o score exibido continua sendo a similaridade.
+ * 
  * MODOS DE OPERAÇÃO:
  * 
  * 1. Modo Completo (com Gemini configurado):
@@ -51,12 +72,25 @@ import java.util.stream.Collectors;
  * 2. Modo Somente Retrieval (sem Gemini):
  *    query("pergunta") → retorna contexto recuperado (sem geração)
  *    retrieveOnly("pergunta") → retorna lista de matches
+ *    retrieveOnly("pergunta", filtro) → busca só nos chunks que passam no filtro
+ *    (ex: SectionFilter.fromOnde(question.getOnde())), com fallback para o documento inteiro
+ * 
+ * 3. Modo Somente Geração:
+ *    generate("prompt pronto") → envia o prompt ao Gemini sem embedding nem busca
+ *    (usado quando o chamador já fez o retrieval e montou o prompt)
+ * 
+ * 4. Modo Assíncrono:
+ *    queryAsync("pergunta") / generateAsync("prompt") → CompletableFuture<String>
+ *    A chamada usa o modelo de streaming do Gemini e a espera do rate limiter é
+ *    agendada (sem Thread.sleep): nenhuma thread fica bloqueada por requisição em andamento.
  * 
  * CONFIGURAÇÃO DO GEMINI:
  * - Model: gemini-2.5-flash (configurável via .env)
  * - Temperature: 0.7 (equilíbrio entre criatividade e consistência)
- * - Max Retries: 3 tentativas em caso de erro
+ * - Max Retries: 3 tentativas em caso de erro (generate e generateAsync)
  * - Timeout: 30 segundos por chamada
+ * - Rate limiting: RateLimiter compartilhado (requests/min + tokens/min)
+ * - Cache: respostas reutilizadas entre execuções (ResponseCache), sem consumir cota
  * 
  * USO BÁSICO:
  * EmbeddingStore store = indexer.getEmbeddingStore();
@@ -66,6 +100,27 @@ import java.util.stream.Collectors;
  */
 public class RagQueryEngine {
     
+    /**
+     * Temperature do Gemini (determinístico, o que permite reutilizar respostas em cache).
+     */
+    private static final double TEMPERATURE = 0.0;
+    
+    /**
+     * Tentativas extras de uma chamada ao Gemini que falhou (mesmo valor do maxRetries
+     * do modelo síncrono; o modelo de streaming não repete chamadas sozinho).
+     */
+    private static final int MAX_RETRIES = 3;
+    
+    /**
+     * Espera antes da primeira nova tentativa assíncrona (dobra a cada tentativa).
+     */
+    private static final long RETRY_BACKOFF_MS = 1000;
+    
+    /**
+     * Candidatos de cada ranking na busca híbrida, em múltiplos de MAX_RESULTS_FOR_RETRIEVAL.
+     */
+    private static final int HYBRID_CANDIDATE_FACTOR = 3;
+    
     /**
      * Armazena os embeddings (vetores) indexados na fase de indexação.
      * 
@@ -90,6 +145,15 @@ public class RagQueryEngine {
      */
     private final EmbeddingModel embeddingModel;
     
+    /**
+     * Índice lexical (BM25) com os chunks do store, na mesma ordem de linhas.
+     * 
+     * null = somente busca vetorial. A busca híbrida exige também que o store seja
+     * um MappedEmbeddingStore (para recuperar os chunks encontrados só pelo BM25).
+     */
+    private final Bm25Index lexicalIndex;
+    private final MappedEmbeddingStore mappedStore;
+    
     /**
      * Modelo de linguagem (LLM) usado para gerar respostas.
      * 
@@ -105,6 +169,64 @@ public class RagQueryEngine {
      */
     private final ChatModel chatModel;
     
+    /**
+     * Modelo de streaming do Gemini, usado pelas chamadas assíncronas (generateAsync).
+     * 
+     * A resposta chega por callbacks (StreamingChatResponseHandler), sem uma thread
+     * do chamador bloqueada durante a geração. null se o Gemini não estiver configurado.
+     */
+    private final StreamingChatModel streamingChatModel;
+    
+    /**
+     * Rate limiter (token bucket) aplicado a toda chamada ao Gemini.
+     * 
+     * Por padrão é o limiter compartilhado da JVM (RateLimiter.shared()), para que
+     * vários motores (várias empresas em paralelo) respeitem a mesma cota.
+     */
+    private final RateLimiter rateLimiter;
+    
+    /**
+     * Cache persistente de respostas (null se desabilitado).
+     * 
+     * Consultado antes do rate limiter: um acerto não consome cota da API.
+     */
+    private final ResponseCache responseCache;
+    
+    /**
+     * Contadores de operações (para diagnóstico de desempenho).
+     * 
+     * Permitem verificar quantas vezes o modelo de embeddings e o
+     * EmbeddingStore foram acionados (ex: 1 embedding + 1 busca por questão).
+     */
+    private final AtomicLong embeddingCalls = new AtomicLong();
+    private final AtomicLong searchCalls = new AtomicLong();
+    private final AtomicLong generationCalls = new AtomicLong();
+    private final AtomicLong filterFallbacks = new AtomicLong();
+    
+    /**
+     * Resultado de um retrieval, com as operações feitas por ESTA chamada.
+     * 
+     * Os contadores do motor são compartilhados entre threads (modos assíncrono e
+     * virtual threads); a diferença entre duas leituras deles mistura questões diferentes.
+     * 
+     * @param matches Matches em ordem de relevância (ver retrieveOnly)
+     * @param embeddingCalls Embeddings de query gerados (1)
+     * @param searchCalls Buscas no EmbeddingStore (2 quando há fallback do filtro)
+     */
+    public record Retrieval(List<EmbeddingMatch<TextSegment>> matches, int embeddingCalls, int searchCalls) {
+        
+        /**
+         * Maior similaridade entre os matches. Na busca híbrida o primeiro da lista
+         * é o melhor na fusão RRF, não necessariamente o mais similar (pode ser um
+         * acerto só do BM25, abaixo de MIN_SCORE).
+         * 
+         * @return Maior score, ou NaN se não houver matches
+         */
+        public double bestScore() {
+            return matches.stream().mapToDouble(EmbeddingMatch::score).max().orElse(Double.NaN);
+        }
+    }
+    
     /**
      * Construtor do motor de consulta RAG.
      * 
@@ -130,21 +252,74 @@ public class RagQueryEngine {
      */
     public RagQueryEngine(EmbeddingStore<TextSegment> embeddingStore, 
                           EmbeddingModel embeddingModel) {
+        this(embeddingStore, embeddingModel, null, RateLimiter.shared());
+    }
+    
+    /**
+     * Construtor com índice lexical para a busca híbrida (BM25 + vetorial).
+     * 
+     * @param embeddingStore Store contendo todos os chunks indexados
+     * @param embeddingModel Modelo de embeddings (deve ser o mesmo da indexação)
+     * @param lexicalIndex Índice BM25 dos mesmos chunks (DocumentIndexer.getLexicalIndex), ou null
+     */
+    public RagQueryEngine(EmbeddingStore<TextSegment> embeddingStore, 
+                          EmbeddingModel embeddingModel,
+                          Bm25Index lexicalIndex) {
+        this(embeddingStore, embeddingModel, lexicalIndex, RateLimiter.shared());
+    }
+    
+    /**
+     * Construtor com rate limiter explícito.
+     * 
+     * @param embeddingStore Store contendo todos os chunks indexados
+     * @param embeddingModel Modelo de embeddings (deve ser o mesmo da indexação)
+     * @param rateLimiter Limiter aplicado a cada chamada ao Gemini
+     */
+    public RagQueryEngine(EmbeddingStore<TextSegment> embeddingStore, 
+                          EmbeddingModel embeddingModel,
+                          RateLimiter rateLimiter) {
+        this(embeddingStore, embeddingModel, null, rateLimiter);
+    }
+    
+    /**
+     * Construtor completo.
+     * 
+     * @param embeddingStore Store contendo todos os chunks indexados
+     * @param embeddingModel Modelo de embeddings (deve ser o mesmo da indexação)
+     * @param lexicalIndex Índice BM25 dos mesmos chunks, ou null para somente busca vetorial
+     * @param rateLimiter Limiter aplicado a cada chamada ao Gemini
+     */
+    public RagQueryEngine(EmbeddingStore<TextSegment> embeddingStore, 
+                          EmbeddingModel embeddingModel,
+                          Bm25Index lexicalIndex,
+                          RateLimiter rateLimiter) {
         this.embeddingStore = embeddingStore;
         this.embeddingModel = embeddingModel;
+        this.mappedStore = embeddingStore instanceof MappedEmbeddingStore mapped ? mapped : null;
+        this.lexicalIndex = Config.HYBRID_RETRIEVAL_ENABLED && mappedStore != null ? lexicalIndex : null;
+        this.rateLimiter = rateLimiter;
+        this.responseCache = ResponseCache.shared();
         
         // Inicializa Gemini se estiver configurado
         if (Config.isGeminiConfigured()) {
             this.chatModel = GoogleAiGeminiChatModel.builder()
                     .apiKey(Config.GEMINI_API_KEY)
                     .modelName(Config.GEMINI_MODEL)
-                    .temperature(0.0) // Determinístico
-                    .maxRetries(3)
+                    .temperature(TEMPERATURE) // Determinístico
+                    .maxRetries(MAX_RETRIES)
+                    .timeout(Duration.ofSeconds(30))
+                    .build();
+            this.streamingChatModel = GoogleAiGeminiStreamingChatModel.builder()
+                    .apiKey(Config.GEMINI_API_KEY)
+                    .modelName(Config.GEMINI_MODEL)
+                    .temperature(TEMPERATURE)
                     .timeout(Duration.ofSeconds(30))
                     .build();
-            System.out.println("✅ RagQueryEngine inicializado com Gemini (" + Config.GEMINI_MODEL + ", temperature=0.0)");
+            System.out.println("✅ RagQueryEngine inicializado com Gemini (" + Config.GEMINI_MODEL + ", temperature=" + TEMPERATURE + ")"
+                    + (this.lexicalIndex != null ? " | busca híbrida BM25 + vetorial" : ""));
         } else {
             this.chatModel = null;
+            this.streamingChatModel = null;
             System.out.println("✅ RagQueryEngine inicializado (somente retrieval - sem Gemini)");
         }
     }
@@ -199,22 +374,32 @@ public class RagQueryEngine {
      * @return Resposta gerada (com Gemini) ou prompt aumentado (sem Gemini)
      */
     public String query(String userQuestion) {
+        // 6. Se Gemini estiver configurado, gerar resposta
+        return generate(buildQueryPrompt(userQuestion));
+    }
+    
+    /**
+     * Versão assíncrona de query(): retrieval em uma thread do pool comum e geração
+     * não bloqueante (generateAsync).
+     * 
+     * @param userQuestion Pergunta do usuário em linguagem natural
+     * @return Future com a resposta gerada (com Gemini), o prompt aumentado (sem Gemini)
+     *         ou null em caso de erro na chamada ao modelo
+     */
+    public CompletableFuture<String> queryAsync(String userQuestion) {
+        return CompletableFuture.supplyAsync(() -> buildQueryPrompt(userQuestion))
+                .thenCompose(this::generateAsync);
+    }
+    
+    /**
+     * Etapas 1 a 5 de query(): retrieval e montagem do prompt aumentado.
+     */
+    private String buildQueryPrompt(String userQuestion) {
         System.out.println("\n🔍 Processando query: \"" + userQuestion + "\"");
         
-        // 1. Converter a pergunta em embedding
-        System.out.println("   🔄 Gerando embedding da query...");
-        Embedding queryEmbedding = embeddingModel.embed(userQuestion).content();
-        
-        // 2. Buscar documentos similares
-        System.out.println("   🔎 Buscando documentos relevantes...");
-        EmbeddingSearchRequest searchRequest = EmbeddingSearchRequest.builder()
-                .queryEmbedding(queryEmbedding)
-                .maxResults(Config.MAX_RESULTS_FOR_RETRIEVAL)
-                .minScore(Config.MIN_SCORE_FOR_RETRIEVAL)
-                .build();
-        
-        EmbeddingSearchResult<TextSegment> searchResult = embeddingStore.search(searchRequest);
-        List<EmbeddingMatch<TextSegment>> matches = searchResult.matches();
+        // 1-2. Converter a pergunta em embedding e buscar documentos similares
+        System.out.println("   🔄 Gerando embedding da query e buscando documentos relevantes...");
+        List<EmbeddingMatch<TextSegment>> matches = search(userQuestion, null).matches();
         
         System.out.println("   ✅ Encontrados " + matches.size() + " documentos relevantes");
         
@@ -230,24 +415,177 @@ public class RagQueryEngine {
         System.out.println("\n   💡 Contexto recuperado com sucesso!");
         System.out.println("   📊 Total de caracteres no contexto: " + context.length());
         
-        // 6. Se Gemini estiver configurado, gerar resposta
-        if (chatModel != null) {
-            System.out.println("   🤖 Enviando para Gemini...");
-            try {
-                String answer = chatModel.chat(augmentedPrompt);
-                System.out.println("   ✅ Resposta recebida do Gemini");
-                return answer;
-            } catch (Exception e) {
-                // Log detalhado da exceção, mas NÃO retornar o prompt como resposta.
-                // Retornar null permite que o QuestionProcessor trate como "INFORMAÇÃO NÃO ENCONTRADA".
-                System.err.println("   ❌ Erro ao chamar Gemini: " + e.getClass().getSimpleName() + " - " + e.getMessage());
-                e.printStackTrace(System.err);
-                return null;
+        return augmentedPrompt;
+    }
+    
+    /**
+     * Envia um prompt já montado diretamente ao LLM (somente GENERATION).
+     * 
+     * Não gera embedding nem faz busca no EmbeddingStore: o chamador é
+     * responsável pelo retrieval e por incluir o contexto no prompt.
+     * 
+     * QUANDO USAR:
+     * - QuestionProcessor, que já chamou retrieveOnly() e montou um prompt
+     *   estruturado com os chunks recuperados
+     * - Evita re-vetorizar o prompt inteiro (vários KB) e repetir a busca
+     * 
+     * @param prompt Prompt completo (instruções + contexto + pergunta)
+     * Respostas são gravadas no ResponseCache; um prompt idêntico em execução
+     * posterior é respondido do disco, sem chamada à API nem espera do rate limiter.
+     * Erros (null) não são gravados.
+     * 
+     * @return Resposta do Gemini, null em caso de erro na chamada,
+     *         ou o próprio prompt se o Gemini não estiver configurado
+     */
+    public String generate(String prompt) {
+        if (chatModel == null) {
+            // Sem Gemini, retorna apenas o prompt
+            return prompt;
+        }
+        
+        // Resposta já obtida em execução anterior para o mesmo prompt/modelo/temperature
+        String cacheKey = null;
+        if (responseCache != null) {
+            cacheKey = ResponseCache.computeKey(prompt, Config.GEMINI_MODEL, TEMPERATURE);
+            String cached = responseCache.get(cacheKey);
+            if (cached != null) {
+                System.out.println("   💾 Resposta recuperada do cache");
+                return cached;
             }
-        } else {
-            // Sem Gemini, retorna apenas o prompt aumentado
-            return augmentedPrompt;
         }
+        
+        // Respeitar a cota compartilhada (RPM + TPM) antes de chamar o modelo
+        try {
+            long waited = rateLimiter.acquire(RateLimiter.estimateTokens(prompt));
+            if (waited > 0) {
+                System.out.println("   ⏳ Rate limiter: aguardou " + (waited / 1000.0) + "s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("   ❌ Interrompido aguardando o rate limiter");
+            return null;
+        }
+        
+        System.out.println("   🤖 Enviando para Gemini...");
+        generationCalls.incrementAndGet();
+        try {
+            String answer = chatModel.chat(prompt);
+            System.out.println("   ✅ Resposta recebida do Gemini");
+            if (cacheKey != null && answer != null) {
+                responseCache.put(cacheKey, answer);
+            }
+            return answer;
+        } catch (Exception e) {
+            // Log detalhado da exceção, mas NÃO retornar o prompt como resposta.
+            // Retornar null permite que o QuestionProcessor trate como "INFORMAÇÃO NÃO ENCONTRADA".
+            System.err.println("   ❌ Erro ao chamar Gemini: " + e.getClass().getSimpleName() + " - " + e.getMessage());
+            e.printStackTrace(System.err);
+            return null;
+        }
+    }
+    
+    /**
+     * Versão assíncrona de generate(): mesmo cache, mesma cota e mesmo contrato de retorno.
+     * 
+     * FLUXO (sem bloquear threads):
+     * 1. Cache: um acerto devolve um future já concluído
+     * 2. Rate limiter: RateLimiter.acquireAsync agenda a chamada para quando houver saldo
+     * 3. Gemini: modelo de streaming; o future é concluído no onCompleteResponse
+     * 4. Erro: até MAX_RETRIES novas tentativas (passos 2-3), agendadas com espera
+     *    exponencial (CompletableFuture.delayedExecutor, sem Thread.sleep); cada tentativa
+     *    consome cota do rate limiter como uma chamada nova
+     * 
+     * Erros após a última tentativa concluem o future com null (como generate), nunca com exceção.
+     * 
+     * @param prompt Prompt completo (instruções + contexto + pergunta)
+     * @return Future com a resposta do Gemini, null em caso de erro,
+     *         ou o próprio prompt se o Gemini não estiver configurado
+     */
+    public CompletableFuture<String> generateAsync(String prompt) {
+        if (streamingChatModel == null) {
+            return CompletableFuture.completedFuture(prompt);
+        }
+        
+        String cacheKey = null;
+        if (responseCache != null) {
+            cacheKey = ResponseCache.computeKey(prompt, Config.GEMINI_MODEL, TEMPERATURE);
+            String cached = responseCache.get(cacheKey);
+            if (cached != null) {
+                System.out.println("   💾 Resposta recuperada do cache");
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+        
+        String key = cacheKey;
+        CompletableFuture<String> result = new CompletableFuture<>();
+        attemptAsync(prompt, 0, result);
+        return result
+                .thenApply(answer -> {
+                    System.out.println("   ✅ Resposta recebida do Gemini");
+                    if (key != null && answer != null) {
+                        responseCache.put(key, answer);
+                    }
+                    return answer;
+                })
+                .exceptionally(e -> {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    System.err.println("   ❌ Erro ao chamar Gemini: " + cause.getClass().getSimpleName() + " - " + cause.getMessage());
+                    return null;
+                });
+    }
+    
+    /**
+     * Uma tentativa (rate limiter + chamada); em caso de erro agenda a próxima
+     * ou conclui o resultado com a exceção após MAX_RETRIES novas tentativas.
+     */
+    private void attemptAsync(String prompt, int retry, CompletableFuture<String> result) {
+        rateLimiter.acquireAsync(RateLimiter.estimateTokens(prompt))
+                .thenCompose(waited -> {
+                    if (waited > 0) {
+                        System.out.println("   ⏳ Rate limiter: aguardou " + (waited / 1000.0) + "s");
+                    }
+                    System.out.println("   🤖 Enviando para Gemini (assíncrono)...");
+                    return chatAsync(prompt);
+                })
+                .whenComplete((answer, error) -> {
+                    if (error == null) {
+                        result.complete(answer);
+                    } else if (retry < MAX_RETRIES) {
+                        long backoffMs = RETRY_BACKOFF_MS << retry;
+                        Throwable cause = error.getCause() != null ? error.getCause() : error;
+                        System.err.println("   ⚠️ Erro ao chamar Gemini (" + cause.getClass().getSimpleName()
+                                + "); nova tentativa " + (retry + 1) + "/" + MAX_RETRIES + " em " + backoffMs + "ms");
+                        CompletableFuture.delayedExecutor(backoffMs, TimeUnit.MILLISECONDS)
+                                .execute(() -> attemptAsync(prompt, retry + 1, result));
+                    } else {
+                        result.completeExceptionally(error);
+                    }
+                });
+    }
+    
+    /**
+     * Envia o prompt ao modelo de streaming e conclui o future com o texto completo.
+     */
+    private CompletableFuture<String> chatAsync(String prompt) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        generationCalls.incrementAndGet();
+        streamingChatModel.chat(prompt, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                // Apenas a resposta completa é usada
+            }
+            
+            @Override
+            public void onCompleteResponse(ChatResponse response) {
+                future.complete(response.aiMessage().text());
+            }
+            
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+        });
+        return future;
     }
     
     /**
@@ -277,32 +615,183 @@ public class RagQueryEngine {
      * }
      * 
      * @param userQuestion Pergunta do usuário em linguagem natural
-     * @return Lista de matches ordenados por similaridade (maior para menor)
+     * @return Lista de matches em ordem de relevância (ver retrieveOnly(pergunta, filtro))
      */
     public List<EmbeddingMatch<TextSegment>> retrieveOnly(String userQuestion) {
+        return retrieveOnly(userQuestion, null);
+    }
+    
+    /**
+     * Retrieval restrito aos chunks cujos metadados passam no filtro.
+     * 
+     * O filtro é aplicado pelo store ANTES do cálculo de similaridade: chunks de
+     * outras seções do FR não são pontuados nem chegam ao prompt.
+     * 
+     * FALLBACK:
+     * Se nenhum chunk filtrado atingir MIN_SCORE na similaridade vetorial (ex: seção
+     * não reconhecida na indexação, ou "Onde?" apontando o item errado), a busca é
+     * refeita no store inteiro com o mesmo embedding da query (sem vetorizar de novo).
+     * Na busca híbrida a decisão também é pela similaridade: acertos só do BM25
+     * (termos comuns como "receita" aparecem em quase toda seção) não evitam o fallback.
+     * 
+     * ORDEM:
+     * Por similaridade (maior para menor); na busca híbrida, pela fusão RRF dos dois
+     * rankings. O score de cada match é sempre a similaridade: o primeiro da lista não
+     * tem necessariamente o maior score (usar Retrieval.bestScore()).
+     * 
+     * @param userQuestion Pergunta (ou query enriquecida) em linguagem natural
+     * @param filter Filtro de metadados (ex: SectionFilter.fromOnde), ou null para o store inteiro
+     * @return Lista de matches em ordem de relevância
+     */
+    public List<EmbeddingMatch<TextSegment>> retrieveOnly(String userQuestion, Filter filter) {
+        return retrieve(userQuestion, filter).matches();
+    }
+    
+    /**
+     * Igual a retrieveOnly(pergunta, filtro), informando também quantos embeddings e
+     * buscas esta chamada fez (diagnóstico por questão, correto mesmo com várias
+     * questões em paralelo no mesmo motor).
+     * 
+     * @param userQuestion Pergunta (ou query enriquecida) em linguagem natural
+     * @param filter Filtro de metadados, ou null para o store inteiro
+     * @return Matches (mesma ordem de retrieveOnly) e operações desta chamada
+     */
+    public Retrieval retrieve(String userQuestion, Filter filter) {
         System.out.println("\n🔍 Modo Retrieval Only: \"" + userQuestion + "\"");
         
-        Embedding queryEmbedding = embeddingModel.embed(userQuestion).content();
+        Retrieval retrieval = search(userQuestion, filter);
+        
+        System.out.println("   ✅ Encontrados " + retrieval.matches().size() + " documentos");
+        printMatches(retrieval.matches());
+        
+        return retrieval;
+    }
+    
+    /**
+     * Gera o embedding do texto e busca os chunks mais similares.
+     * 
+     * Único ponto do motor que aciona o modelo de embeddings e o EmbeddingStore,
+     * o que mantém os contadores de diagnóstico exatos. Não lista os matches no
+     * console (usado diretamente pelo RetrievalBenchmark).
+     * 
+     * @param text Texto da query
+     * @param filter Filtro de metadados (null = store inteiro)
+     * @return Matches (por similaridade, ou pela fusão RRF na busca híbrida) e operações desta chamada
+     */
+    Retrieval search(String text, Filter filter) {
+        embeddingCalls.incrementAndGet();
+        Embedding queryEmbedding = embeddingModel.embed(text).content();
+        
+        int candidates = lexicalIndex == null
+                ? Config.MAX_RESULTS_FOR_RETRIEVAL
+                : Config.MAX_RESULTS_FOR_RETRIEVAL * HYBRID_CANDIDATE_FACTOR;
+        List<EmbeddingMatch<TextSegment>> vector = vectorSearch(queryEmbedding, filter, candidates);
+        int searches = 1;
+        
+        // vectorSearch descarta scores abaixo de MIN_SCORE: lista vazia = melhor
+        // similaridade da seção abaixo do mínimo
+        if (filter != null && vector.isEmpty()) {
+            filterFallbacks.incrementAndGet();
+            System.out.println("   ↩️ Nenhum chunk da seção com similaridade >= " + Config.MIN_SCORE_FOR_RETRIEVAL
+                    + "; buscando no documento inteiro");
+            filter = null;
+            vector = vectorSearch(queryEmbedding, null, candidates);
+            searches++;
+        }
+        
+        List<EmbeddingMatch<TextSegment>> matches = lexicalIndex == null
+                ? vector
+                : hybridSearch(text, queryEmbedding, filter, vector);
+        return new Retrieval(matches, 1, searches);
+    }
+    
+    /**
+     * Busca híbrida: une os rankings vetorial e BM25 por Reciprocal Rank Fusion.
+     * 
+     * Cada lado contribui com até MAX_RESULTS * HYBRID_CANDIDATE_FACTOR candidatos.
+     * O filtro de metadados vale para os dois lados (no BM25, pela coluna de seções
+     * do store). Chunks encontrados somente pelo BM25 entram mesmo abaixo de
+     * MIN_SCORE: contêm os termos exatos da questão.
+     * 
+     * @param vector Ranking vetorial já calculado com o mesmo filtro
+     */
+    private List<EmbeddingMatch<TextSegment>> hybridSearch(String text, Embedding queryEmbedding, Filter filter,
+                                                           List<EmbeddingMatch<TextSegment>> vector) {
+        int candidates = Config.MAX_RESULTS_FOR_RETRIEVAL * HYBRID_CANDIDATE_FACTOR;
+        int k = Config.HYBRID_RRF_K;
+        
+        Map<String, EmbeddingMatch<TextSegment>> byId = new LinkedHashMap<>();
+        Map<String, Double> fused = new HashMap<>();
+        
+        for (int rank = 0; rank < vector.size(); rank++) {
+            EmbeddingMatch<TextSegment> match = vector.get(rank);
+            byId.put(match.embeddingId(), match);
+            fused.merge(match.embeddingId(), Config.HYBRID_VECTOR_WEIGHT / (k + rank + 1), Double::sum);
+        }
+        
+        if (Config.HYBRID_LEXICAL_WEIGHT > 0) {
+            IntPredicate accept = mappedStore.rowFilter(filter);
+            List<Bm25Index.Hit> lexical = lexicalIndex.search(text, candidates, accept);
+            for (int rank = 0; rank < lexical.size(); rank++) {
+                EmbeddingMatch<TextSegment> match = mappedStore.matchAt(lexical.get(rank).row(), queryEmbedding);
+                byId.putIfAbsent(match.embeddingId(), match);
+                fused.merge(match.embeddingId(), Config.HYBRID_LEXICAL_WEIGHT / (k + rank + 1), Double::sum);
+            }
+        }
         
+        List<EmbeddingMatch<TextSegment>> ranked = new ArrayList<>(byId.values());
+        ranked.sort((a, b) -> Double.compare(fused.get(b.embeddingId()), fused.get(a.embeddingId())));
+        return ranked.size() > Config.MAX_RESULTS_FOR_RETRIEVAL
+                ? new ArrayList<>(ranked.subList(0, Config.MAX_RESULTS_FOR_RETRIEVAL))
+                : ranked;
+    }
+    
+    private List<EmbeddingMatch<TextSegment>> vectorSearch(Embedding queryEmbedding, Filter filter, int maxResults) {
         EmbeddingSearchRequest searchRequest = EmbeddingSearchRequest.builder()
                 .queryEmbedding(queryEmbedding)
-                .maxResults(Config.MAX_RESULTS_FOR_RETRIEVAL)
+                .maxResults(maxResults)
                 .minScore(Config.MIN_SCORE_FOR_RETRIEVAL)
+                .filter(filter)
                 .build();
         
+        searchCalls.incrementAndGet();
         EmbeddingSearchResult<TextSegment> searchResult = embeddingStore.search(searchRequest);
-        List<EmbeddingMatch<TextSegment>> matches = searchResult.matches();
-        
-        System.out.println("   ✅ Encontrados " + matches.size() + " documentos");
-        printMatches(matches);
-        
-        return matches;
+        return searchResult.matches();
+    }
+    
+    /**
+     * @return Quantidade de embeddings de query gerados por este motor
+     */
+    public long getEmbeddingCallCount() {
+        return embeddingCalls.get();
+    }
+    
+    /**
+     * @return Quantidade de buscas por similaridade executadas no EmbeddingStore
+     */
+    public long getSearchCallCount() {
+        return searchCalls.get();
+    }
+    
+    /**
+     * @return Quantidade de buscas filtradas sem chunk acima de MIN_SCORE que caíram para o store inteiro
+     */
+    public long getFilterFallbackCount() {
+        return filterFallbacks.get();
+    }
+    
+    /**
+     * @return Quantidade de chamadas ao LLM (Gemini)
+     */
+    public long getGenerationCallCount() {
+        return generationCalls.get();
     }
     
     /**
      * Constrói o contexto aumentado a partir dos chunks recuperados.
      * 
-     * Pega todos os TextSegments dos matches e concatena em uma string única.
+     * Junta os TextSegments dos matches (ContextBuilder) dentro de CONTEXT_TOKEN_BUDGET,
+     * sem sobreposições entre chunks vizinhos e sem a cauda de score baixo.
      * Cada chunk é separado por "---" para facilitar a leitura.
      * 
      * Se não houver matches (nenhum documento relevante encontrado),
@@ -328,9 +817,7 @@ public class RagQueryEngine {
             return "Nenhum documento relevante foi encontrado.";
         }
         
-        return matches.stream()
-                .map(match -> match.embedded().text())
-                .collect(Collectors.joining("\n\n---\n\n"));
+        return new ContextBuilder(Config.CONTEXT_TOKEN_BUDGET, Config.CONTEXT_SCORE_MARGIN).build(matches);
     }
     
     /**
@@ -0,0 +1,176 @@
+package com.example.rag.retrieval;
+
+import com.example.rag.config.Config;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limiter do tipo token bucket para as chamadas ao Gemini.
+ *
+ * PROBLEMA DO Thread.sleep FIXO:
+ * Esperar REQUEST_DELAY_MS depois de cada questão desperdiça tempo quando a própria
+ * chamada já demorou (ex: resposta de 10s seguida de mais 6s de espera), e não
+ * protege chamadas feitas de outras threads ou de outros pontos do código.
+ *
+ * COMO FUNCIONA:
+ * Dois baldes são reabastecidos continuamente com o passar do tempo:
+ * - Requisições: GEMINI_REQUESTS_PER_MINUTE por minuto
+ * - Tokens: GEMINI_TOKENS_PER_MINUTE por minuto (estimados a partir do prompt)
+ *
+ * Cada chamada consome 1 requisição + os tokens estimados do prompt. Se algum balde
+ * não tiver saldo, a thread aguarda apenas o tempo necessário para o reabastecimento.
+ * O tempo gasto dentro da chamada anterior já conta como reabastecimento.
+ *
+ * A capacidade do balde de requisições (GEMINI_REQUEST_BURST) controla quantas
+ * chamadas podem sair em rajada; o padrão 1 mantém o espaçamento uniforme.
+ *
+ * Uma única instância (shared()) é compartilhada por todos os RagQueryEngine da JVM,
+ * de modo que várias empresas processadas em paralelo respeitam a mesma cota.
+ */
+public class RateLimiter {
+
+    // Estimativa de tokens: ~4 caracteres por token (português, texto corrido)
+    static final int CHARS_PER_TOKEN = 4;
+
+    private static final RateLimiter SHARED = new RateLimiter(
+            Config.GEMINI_REQUESTS_PER_MINUTE,
+            Config.GEMINI_REQUEST_BURST,
+            Config.GEMINI_TOKENS_PER_MINUTE);
+
+    private final double requestCapacity;
+    private final double requestsPerMs;
+    private final double tokenCapacity;
+    private final double tokensPerMs;
+
+    private double availableRequests;
+    private double availableTokens;
+    private long lastRefill;
+
+    private long totalWaitMs;
+    private long totalAcquired;
+
+    /**
+     * @param requestsPerMinute Limite de requisições por minuto
+     * @param requestBurst Capacidade do balde de requisições (rajada máxima)
+     * @param tokensPerMinute Limite de tokens por minuto
+     */
+    public RateLimiter(double requestsPerMinute, int requestBurst, long tokensPerMinute) {
+        this.requestCapacity = Math.max(1, requestBurst);
+        this.requestsPerMs = requestsPerMinute / 60000.0;
+        this.tokenCapacity = tokensPerMinute;
+        this.tokensPerMs = tokensPerMinute / 60000.0;
+        this.availableRequests = requestCapacity;
+        this.availableTokens = tokenCapacity;
+        this.lastRefill = System.currentTimeMillis();
+    }
+
+    /**
+     * @return Limiter compartilhado por todas as chamadas ao Gemini na JVM
+     */
+    public static RateLimiter shared() {
+        return SHARED;
+    }
+
+    /**
+     * Estima a quantidade de tokens de um prompt.
+     *
+     * @param prompt Texto enviado ao modelo
+     * @return Estimativa de tokens (mínimo 1)
+     */
+    public static int estimateTokens(String prompt) {
+        return Math.max(1, prompt.length() / CHARS_PER_TOKEN);
+    }
+
+    /**
+     * Aguarda até haver saldo para uma requisição com a quantidade de tokens informada.
+     *
+     * Pode ser chamado concorrentemente; cada thread espera somente o necessário.
+     *
+     * @param tokens Tokens estimados da requisição
+     * @return Tempo total de espera em milissegundos (0 se liberado imediatamente)
+     * @throws InterruptedException Se a thread for interrompida durante a espera
+     */
+    public long acquire(int tokens) throws InterruptedException {
+        // Uma requisição maior que a capacidade do balde nunca seria liberada
+        double neededTokens = Math.min(tokens, tokenCapacity);
+        long waited = 0;
+
+        while (true) {
+            long waitMs = tryAcquire(neededTokens, waited);
+            if (waitMs == 0) {
+                return waited;
+            }
+            Thread.sleep(waitMs);
+            waited += waitMs;
+        }
+    }
+
+    /**
+     * Versão não bloqueante de acquire: nenhuma thread fica parada durante a espera.
+     *
+     * Sem saldo, uma nova tentativa é agendada (CompletableFuture.delayedExecutor)
+     * para quando os baldes tiverem sido reabastecidos.
+     *
+     * @param tokens Tokens estimados da requisição
+     * @return Future concluído com o tempo total de espera em milissegundos
+     */
+    public CompletableFuture<Long> acquireAsync(int tokens) {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        retryAcquire(Math.min(tokens, tokenCapacity), 0, result);
+        return result;
+    }
+
+    private void retryAcquire(double neededTokens, long waited, CompletableFuture<Long> result) {
+        long waitMs = tryAcquire(neededTokens, waited);
+        if (waitMs == 0) {
+            result.complete(waited);
+            return;
+        }
+        CompletableFuture.delayedExecutor(waitMs, TimeUnit.MILLISECONDS)
+                .execute(() -> retryAcquire(neededTokens, waited + waitMs, result));
+    }
+
+    /**
+     * Consome uma requisição + tokens se houver saldo.
+     *
+     * @return 0 se a permissão foi concedida; caso contrário, o tempo (ms) até haver saldo
+     */
+    private synchronized long tryAcquire(double neededTokens, long waited) {
+        refill();
+        if (availableRequests >= 1.0 && availableTokens >= neededTokens) {
+            availableRequests -= 1.0;
+            availableTokens -= neededTokens;
+            totalWaitMs += waited;
+            totalAcquired++;
+            return 0;
+        }
+        double requestWait = availableRequests >= 1.0 ? 0 : (1.0 - availableRequests) / requestsPerMs;
+        double tokenWait = availableTokens >= neededTokens ? 0 : (neededTokens - availableTokens) / tokensPerMs;
+        return Math.max(1, (long) Math.ceil(Math.max(requestWait, tokenWait)));
+    }
+
+    private void refill() {
+        long now = System.currentTimeMillis();
+        long elapsed = now - lastRefill;
+        if (elapsed > 0) {
+            availableRequests = Math.min(requestCapacity, availableRequests + elapsed * requestsPerMs);
+            availableTokens = Math.min(tokenCapacity, availableTokens + elapsed * tokensPerMs);
+            lastRefill = now;
+        }
+    }
+
+    /**
+     * @return Tempo total (ms) que as threads passaram aguardando o limiter
+     */
+    public synchronized long getTotalWaitMs() {
+        return totalWaitMs;
+    }
+
+    /**
+     * @return Quantidade de permissões concedidas
+     */
+    public synchronized long getTotalAcquired() {
+        return totalAcquired;
+    }
+}
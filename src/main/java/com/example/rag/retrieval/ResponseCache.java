@@ -0,0 +1,276 @@
+package com.example.rag.retrieval;
+
+import com.example.rag.config.Config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Cache persistente (em disco) das respostas do Gemini.
+ *
+ * PROBLEMA:
+ * Com temperature 0.0 o mesmo prompt produz a mesma resposta, mas cada nova execução
+ * (ex: depois de corrigir apenas o pós-processamento) repete todas as chamadas à API,
+ * consumindo horas de cota do Free Tier.
+ *
+ * SOLUÇÃO:
+ * Cada resposta é gravada em um arquivo cujo nome é a chave do prompt. Antes de chamar
+ * o Gemini, o RagQueryEngine consulta o cache; um acerto não consome cota nem espera
+ * o rate limiter.
+ *
+ * CHAVE DO CACHE (SHA-256 de):
+ * - Texto completo do prompt
+ * - Modelo (GEMINI_MODEL)
+ * - Temperature
+ *
+ * LIMITE DE TAMANHO (LRU):
+ * O total em disco é limitado por LLM_CACHE_MAX_MB. Ao ultrapassar o limite, as
+ * respostas usadas há mais tempo são removidas. A data de modificação do arquivo é
+ * atualizada a cada acerto, de modo que a ordem de uso sobrevive entre execuções.
+ *
+ * ARQUIVOS:
+ * - Pasta: Config.LLM_CACHE_FOLDER (padrão: data/llm-cache)
+ * - Um arquivo por resposta: [chave].txt (UTF-8)
+ * - Gravação em [chave].tmp renomeado ao final (nunca fica resposta pela metade)
+ *
+ * Uma única instância (shared()) é compartilhada por todos os RagQueryEngine da JVM.
+ */
+public class ResponseCache {
+
+    private static final String EXTENSION = ".txt";
+
+    private static volatile ResponseCache shared;
+
+    private final Path cacheFolder;
+    private final long maxBytes;
+
+    // Chave → tamanho em bytes, em ordem de acesso (primeiro = usado há mais tempo)
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param cacheFolder Pasta dos arquivos de resposta
+     * @param maxBytes Tamanho máximo total em disco
+     * @throws IOException Se houver erro ao criar ou listar a pasta
+     */
+    public ResponseCache(Path cacheFolder, long maxBytes) throws IOException {
+        this.cacheFolder = cacheFolder;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(cacheFolder);
+        loadEntries();
+    }
+
+    /**
+     * @return Cache compartilhado da JVM, ou null se desabilitado (LLM_CACHE_ENABLED=false)
+     *         ou se a pasta não puder ser criada
+     */
+    public static ResponseCache shared() {
+        if (!Config.LLM_CACHE_ENABLED) {
+            return null;
+        }
+        ResponseCache cache = shared;
+        if (cache == null) {
+            synchronized (ResponseCache.class) {
+                cache = shared;
+                if (cache == null) {
+                    try {
+                        cache = new ResponseCache(Paths.get(Config.LLM_CACHE_FOLDER),
+                                Config.LLM_CACHE_MAX_MB * 1024 * 1024);
+                        shared = cache;
+                        System.out.println("✅ Cache de respostas: " + cache.size() + " resposta(s) em "
+                                + Config.LLM_CACHE_FOLDER);
+                    } catch (IOException e) {
+                        System.err.println("⚠️ Cache de respostas indisponível: " + e.getMessage());
+                        return null;
+                    }
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Calcula a chave do cache para um prompt.
+     *
+     * @param prompt Prompt completo enviado ao modelo
+     * @param modelName Nome do modelo
+     * @param temperature Temperature usada na geração
+     * @return Hash SHA-256 em hexadecimal
+     */
+    public static String computeKey(String prompt, String modelName, double temperature) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível", e);
+        }
+        digest.update(prompt.getBytes(StandardCharsets.UTF_8));
+        digest.update(("|" + modelName + "|" + temperature).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Busca a resposta gravada para a chave.
+     *
+     * @param key Chave calculada por computeKey
+     * @return Resposta em cache ou null (miss)
+     */
+    public String get(String key) {
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                misses++;
+                return null;
+            }
+        }
+        Path file = fileFor(key);
+        try {
+            String response = Files.readString(file, StandardCharsets.UTF_8);
+            // Registra o uso no próprio arquivo (ordem LRU persistente entre execuções)
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            synchronized (this) {
+                hits++;
+            }
+            return response;
+        } catch (IOException e) {
+            // Arquivo removido ou ilegível: tratar como miss
+            synchronized (this) {
+                Long size = entries.remove(key);
+                if (size != null) {
+                    totalBytes -= size;
+                }
+                misses++;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Grava uma resposta e remove as mais antigas se o limite for ultrapassado.
+     *
+     * @param key Chave calculada por computeKey
+     * @param response Resposta do modelo
+     */
+    public void put(String key, String response) {
+        byte[] bytes = response.getBytes(StandardCharsets.UTF_8);
+        Path file = fileFor(key);
+        Path temp = cacheFolder.resolve(key + ".tmp");
+        try {
+            Files.write(temp, bytes);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("⚠️ Erro ao gravar resposta no cache: " + e.getMessage());
+            return;
+        }
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long previous = entries.put(key, (long) bytes.length);
+            totalBytes += bytes.length - (previous != null ? previous : 0);
+
+            Iterator<Map.Entry<String, Long>> it = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Long> oldest = it.next();
+                if (oldest.getKey().equals(key)) {
+                    continue;
+                }
+                totalBytes -= oldest.getValue();
+                evicted.add(oldest.getKey());
+                it.remove();
+                evictions++;
+            }
+        }
+        for (String evictedKey : evicted) {
+            try {
+                Files.deleteIfExists(fileFor(evictedKey));
+            } catch (IOException e) {
+                System.err.println("⚠️ Erro ao remover resposta do cache: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Reconstrói o índice em memória a partir dos arquivos existentes,
+     * ordenados pela data do último uso.
+     */
+    private void loadEntries() throws IOException {
+        record CachedFile(String key, long size, long lastUsed) {
+        }
+        List<CachedFile> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(cacheFolder)) {
+            for (Path path : paths.toList()) {
+                String name = path.getFileName().toString();
+                if (name.endsWith(".tmp")) {
+                    // Gravação interrompida em execução anterior
+                    Files.deleteIfExists(path);
+                } else if (name.endsWith(EXTENSION)) {
+                    files.add(new CachedFile(name.substring(0, name.length() - EXTENSION.length()),
+                            Files.size(path), Files.getLastModifiedTime(path).toMillis()));
+                }
+            }
+        }
+        files.sort(Comparator.comparingLong(CachedFile::lastUsed));
+        for (CachedFile file : files) {
+            entries.put(file.key(), file.size());
+            totalBytes += file.size();
+        }
+    }
+
+    private Path fileFor(String key) {
+        return cacheFolder.resolve(key + EXTENSION);
+    }
+
+    /**
+     * @return Quantidade de respostas em cache
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Tamanho total das respostas em disco (bytes)
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return Resumo das estatísticas (acertos, falhas, remoções, tamanho)
+     */
+    public synchronized String stats() {
+        long lookups = hits + misses;
+        double hitRate = lookups == 0 ? 0 : 100.0 * hits / lookups;
+        return String.format("%d acerto(s), %d falha(s) (%.1f%% de acerto), %d removida(s), %d resposta(s) / %.1f MB",
+                hits, misses, hitRate, evictions, entries.size(), totalBytes / (1024.0 * 1024.0));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.rag.retrieval;
+
+import com.example.rag.config.Config;
+import com.example.rag.indexer.FrSectionSplitter;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+/**
+ * Filtro de metadados que restringe a busca às seções do FR indicadas no guia.
+ *
+ * A coluna "Onde?" do guia aponta o item do FR onde está a resposta
+ * (ex: "2.1, item h, Condições financeiras e patrimoniais"). Com o chunking por
+ * seção (SECTION_AWARE_CHUNKING), cada chunk tem o metadado "section"; o filtro
+ * "section = 2.1" descarta os demais chunks antes do cálculo de similaridade.
+ *
+ * EXEMPLOS:
+ * - "2.1, item h, Condições financeiras"  → section = "2.1"
+ * - "12.1 e 12.2"                          → section in ("12.1", "12.2")
+ * - "10.2.1 Resultado operacional"         → section = "10.2"
+ * - "Demonstrações financeiras"            → sem filtro (null)
+ */
+public final class SectionFilter {
+
+    // "2.1" isolado (não faz parte de "1.234" nem de datas)
+    private static final Pattern SECTION = Pattern.compile("(?<![\\d.])(\\d{1,2}\\.\\d{1,2})(?!\\d)");
+
+    private SectionFilter() {
+    }
+
+    /**
+     * @param onde Texto da coluna "Onde?" da questão
+     * @return Filtro pelas seções citadas, ou null se não houver seção identificável
+     *         ou se o índice não tiver metadados de seção (SECTION_AWARE_CHUNKING=false)
+     */
+    public static Filter fromOnde(String onde) {
+        if (!Config.SECTION_AWARE_CHUNKING || onde == null || onde.isBlank()) {
+            return null;
+        }
+        List<String> sections = new ArrayList<>();
+        Matcher matcher = SECTION.matcher(onde);
+        while (matcher.find()) {
+            if (!sections.contains(matcher.group(1))) {
+                sections.add(matcher.group(1));
+            }
+        }
+        if (sections.isEmpty()) {
+            return null;
+        }
+        return sections.size() == 1
+                ? metadataKey(FrSectionSplitter.SECTION_KEY).isEqualTo(sections.get(0))
+                : metadataKey(FrSectionSplitter.SECTION_KEY).isIn(sections);
+    }
+}
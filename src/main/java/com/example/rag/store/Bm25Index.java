@@ -0,0 +1,200 @@
+package com.example.rag.store;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido em memória com ranking BM25 (busca lexical).
+ *
+ * PROBLEMA:
+ * A busca vetorial (AllMiniLmL6V2) captura o sentido do texto, mas não garante
+ * que os termos exatos da questão estejam no chunk. Muitas questões do FR dependem
+ * de termos precisos ("Receita Líquida", "Conselho Fiscal", "D&O"), que o guia já
+ * informa na coluna "Palavras-chave RAG".
+ *
+ * SOLUÇÃO:
+ * Cada chunk gravado no MappedEmbeddingStore também é tokenizado aqui, na mesma
+ * ordem (a linha N do índice é a linha N do store). A busca pontua os chunks que
+ * contêm os termos da query pela fórmula BM25:
+ *
+ *   score(d) = Σ idf(t) · tf(t,d) · (k1 + 1) / (tf(t,d) + k1 · (1 - b + b · |d| / média|d|))
+ *   idf(t)   = ln(1 + (N - df(t) + 0.5) / (df(t) + 0.5))
+ *
+ * TOKENIZAÇÃO:
+ * - Minúsculas e sem acentos ("Líquida" = "LIQUIDA" = "liquida")
+ * - Letras e dígitos; "&" entre letras faz parte do termo ("d&o")
+ * - Stopwords do português e termos de 1 caractere são descartados
+ *
+ * As listas de ocorrências (postings) são arrays de int, e a pontuação usa um
+ * único array de double por busca. O índice é preenchido por uma thread (indexação)
+ * e depois só lido; buscas concorrentes são seguras após a publicação.
+ */
+public class Bm25Index {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}]+(?:&[\\p{L}\\p{N}]+)*");
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "o", "as", "os", "de", "da", "do", "das", "dos", "e", "em", "no", "na", "nos", "nas",
+            "um", "uma", "para", "por", "com", "que", "ao", "aos", "se", "ou", "sua", "seu", "suas",
+            "seus", "qual", "quais", "pelo", "pela", "pelos", "pelas", "sobre", "como", "item");
+
+    /**
+     * Linhas (chunks) que contêm um termo e a frequência do termo em cada uma.
+     */
+    private static final class Postings {
+        int[] rows = new int[4];
+        int[] frequencies = new int[4];
+        int size;
+
+        void add(int row, int frequency) {
+            if (size == rows.length) {
+                rows = Arrays.copyOf(rows, size * 2);
+                frequencies = Arrays.copyOf(frequencies, size * 2);
+            }
+            rows[size] = row;
+            frequencies[size] = frequency;
+            size++;
+        }
+    }
+
+    /**
+     * Resultado da busca: linha do chunk no store e score BM25.
+     */
+    public record Hit(int row, double score) {
+    }
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private int[] lengths = new int[256];
+    private int count;
+    private long totalLength;
+
+    /**
+     * Indexa o próximo chunk (linha = quantidade de chunks já indexados).
+     *
+     * @param text Texto do chunk
+     */
+    public synchronized void add(String text) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        for (String term : tokenize(text)) {
+            frequencies.merge(term, 1, Integer::sum);
+            length++;
+        }
+
+        int row = count;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            postings.computeIfAbsent(entry.getKey(), k -> new Postings()).add(row, entry.getValue());
+        }
+        if (row == lengths.length) {
+            lengths = Arrays.copyOf(lengths, row * 2);
+        }
+        lengths[row] = length;
+        totalLength += length;
+        count++;
+    }
+
+    /**
+     * Cria o índice a partir dos chunks de um store já populado (ex: índice recarregado do cache).
+     *
+     * @param store Store de origem
+     * @return Índice com uma linha por chunk do store
+     */
+    public static Bm25Index build(MappedEmbeddingStore store) {
+        Bm25Index index = new Bm25Index();
+        int size = store.size();
+        for (int row = 0; row < size; row++) {
+            index.add(store.segmentAt(row).text());
+        }
+        return index;
+    }
+
+    /**
+     * @return Quantidade de chunks indexados
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Busca os chunks com maior score BM25 para os termos da query.
+     *
+     * @param query Texto da query (termos repetidos contam uma vez)
+     * @param maxResults Quantidade máxima de resultados
+     * @param accept Filtro de linhas (ex: metadados de seção), ou null para todas
+     * @return Resultados com score > 0, do maior para o menor
+     */
+    public List<Hit> search(String query, int maxResults, IntPredicate accept) {
+        if (count == 0 || maxResults <= 0) {
+            return List.of();
+        }
+        double averageLength = Math.max(1.0, (double) totalLength / count);
+        double[] scores = new double[count];
+
+        for (String term : new LinkedHashSet<>(tokenize(query))) {
+            Postings termPostings = postings.get(term);
+            if (termPostings == null) {
+                continue;
+            }
+            double idf = Math.log(1.0 + (count - termPostings.size + 0.5) / (termPostings.size + 0.5));
+            for (int i = 0; i < termPostings.size; i++) {
+                int row = termPostings.rows[i];
+                int tf = termPostings.frequencies[i];
+                double norm = K1 * (1.0 - B + B * lengths[row] / averageLength);
+                scores[row] += idf * tf * (K1 + 1.0) / (tf + norm);
+            }
+        }
+
+        // Min-heap com os melhores resultados (mesma estratégia do MappedEmbeddingStore)
+        PriorityQueue<Hit> best = new PriorityQueue<>(maxResults, (x, y) -> Double.compare(x.score(), y.score()));
+        for (int row = 0; row < count; row++) {
+            double score = scores[row];
+            if (score <= 0.0 || (best.size() == maxResults && score <= best.peek().score())) {
+                continue;
+            }
+            if (accept != null && !accept.test(row)) {
+                continue;
+            }
+            if (best.size() == maxResults) {
+                best.poll();
+            }
+            best.add(new Hit(row, score));
+        }
+
+        List<Hit> ordered = new ArrayList<>(best);
+        ordered.sort((x, y) -> Double.compare(y.score(), x.score()));
+        return ordered;
+    }
+
+    /**
+     * Divide o texto em termos normalizados (minúsculas, sem acentos, sem stopwords).
+     */
+    static List<String> tokenize(String text) {
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        List<String> terms = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(normalized);
+        while (matcher.find()) {
+            String term = matcher.group();
+            if (term.length() > 1 && !STOPWORDS.contains(term)) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+}
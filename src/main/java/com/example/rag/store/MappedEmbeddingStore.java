@@ -0,0 +1,736 @@
+package com.example.rag.store;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsIn;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.function.IntPredicate;
+
+/**
+ * EmbeddingStore baseado em arquivos mapeados em memória (memory-mapped files).
+ *
+ * POR QUE NÃO O InMemoryEmbeddingStore:
+ * O InMemoryEmbeddingStore guarda cada chunk como objetos Embedding + TextSegment
+ * no heap da JVM. Com centenas de FRs indexados isso gera pressão de memória,
+ * pausas de GC e uma busca que percorre listas de objetos espalhados na memória.
+ *
+ * LAYOUT EM DISCO (uma pasta por índice):
+ * - vectors.f32    → float32 contíguo, row-major (dimensão floats por chunk)
+ * - segments.dat   → registros dos chunks (id, texto UTF-8, metadados)
+ * - segments.idx   → offset (long) de cada registro em segments.dat
+ * - sections.i32   → id (int) da seção do FR de cada chunk (-1 = sem seção)
+ * - index.properties → dimensão, quantidade de chunks e nomes das seções (escrito no flush)
+ *
+ * BUSCA:
+ * Os vetores são normalizados ao serem gravados, então a similaridade cosseno
+ * vira um simples produto escalar. A busca percorre o buffer mapeado de forma
+ * sequencial (força bruta) mantendo apenas os N melhores em um heap de tamanho fixo.
+ * O score segue a mesma escala do InMemoryEmbeddingStore: (cosseno + 1) / 2.
+ *
+ * FILTRO POR SEÇÃO:
+ * O metadado "section" (SECTION_KEY) também é gravado como um int por chunk em
+ * sections.i32. Filtros sobre esse metadado (isEqualTo / isIn, ex: SectionFilter)
+ * são avaliados uma vez por seção distinta e depois testados pelo id da linha,
+ * sem decodificar o registro do chunk (texto UTF-8 e metadados). Outros filtros
+ * são avaliados sobre os metadados decodificados.
+ *
+ * Os dados ficam no page cache do sistema operacional, fora do heap da JVM.
+ *
+ * USO:
+ * MappedEmbeddingStore store = MappedEmbeddingStore.create(pasta);
+ * // ... add / addAll (ex: via EmbeddingStoreIngestor)
+ * store.flush();
+ * MappedEmbeddingStore reaberto = MappedEmbeddingStore.open(pasta);
+ */
+public class MappedEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    private static final String VECTORS_FILE = "vectors.f32";
+    private static final String SEGMENTS_FILE = "segments.dat";
+    private static final String OFFSETS_FILE = "segments.idx";
+    private static final String SECTIONS_FILE = "sections.i32";
+    private static final String HEADER_FILE = "index.properties";
+
+    /**
+     * Versão do formato dos arquivos (parte da chave do EmbeddingIndexCache).
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    /**
+     * Metadado gravado também na coluna compacta de seções (sections.i32).
+     */
+    public static final String SECTION_KEY = "section";
+
+    // Id da linha sem metadado de seção
+    private static final int NO_SECTION = -1;
+
+    // Tipos de valores de metadados suportados no registro do chunk
+    private static final byte TYPE_STRING = 'S';
+    private static final byte TYPE_INTEGER = 'I';
+    private static final byte TYPE_LONG = 'L';
+    private static final byte TYPE_FLOAT = 'F';
+    private static final byte TYPE_DOUBLE = 'D';
+
+    private final Path folder;
+
+    // Pasta criada por createTemporary() (apagada por release())
+    private boolean temporary;
+
+    // Escrita (somente enquanto o store está sendo populado)
+    private DataOutputStream vectorsOut;
+    private OutputStream segmentsOut;
+    private DataOutputStream offsetsOut;
+    private DataOutputStream sectionsOut;
+    private long segmentsPosition;
+
+    // Dicionário de seções: id (posição na lista) → nome
+    private final List<String> sectionNames = new ArrayList<>();
+    private final Map<String, Integer> sectionIds = new HashMap<>();
+
+    // Leitura (buffers mapeados, recriados quando há novos chunks)
+    private volatile MappedView view;
+
+    private volatile int dimension;
+    private volatile int count;
+
+    private MappedEmbeddingStore(Path folder, int dimension, int count) {
+        this.folder = folder;
+        this.dimension = dimension;
+        this.count = count;
+    }
+
+    /**
+     * Cria um store vazio na pasta indicada (arquivos existentes são sobrescritos).
+     *
+     * @param folder Pasta do índice
+     * @return Store pronto para receber chunks
+     * @throws IOException Se houver erro ao criar os arquivos
+     */
+    public static MappedEmbeddingStore create(Path folder) throws IOException {
+        Files.createDirectories(folder);
+        MappedEmbeddingStore store = new MappedEmbeddingStore(folder, 0, 0);
+        store.openWriters();
+        return store;
+    }
+
+    /**
+     * Abre (somente leitura) um store previamente gravado com flush().
+     *
+     * @param folder Pasta do índice
+     * @return Store com os vetores mapeados em memória
+     * @throws IOException Se os arquivos não existirem ou estiverem inconsistentes
+     */
+    public static MappedEmbeddingStore open(Path folder) throws IOException {
+        Path header = folder.resolve(HEADER_FILE);
+        if (!Files.exists(header)) {
+            throw new IOException("Índice incompleto (sem " + HEADER_FILE + "): " + folder);
+        }
+        Properties props = new Properties();
+        try (BufferedReader reader = Files.newBufferedReader(header)) {
+            props.load(reader);
+        }
+        int version = Integer.parseInt(props.getProperty("version", "0"));
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Versão de índice incompatível: " + version);
+        }
+        int dimension = Integer.parseInt(props.getProperty("dimension"));
+        int count = Integer.parseInt(props.getProperty("count"));
+
+        MappedEmbeddingStore store = new MappedEmbeddingStore(folder, dimension, count);
+        int sections = Integer.parseInt(props.getProperty("sections", "0"));
+        for (int id = 0; id < sections; id++) {
+            store.sectionId(props.getProperty("section." + id));
+        }
+        store.view = store.map();
+        return store;
+    }
+
+    /**
+     * Cria um store vazio em pasta temporária, removida por release().
+     * Usado quando o cache de índices está desabilitado.
+     *
+     * @return Store pronto para receber chunks
+     * @throws IOException Se houver erro ao criar os arquivos
+     */
+    public static MappedEmbeddingStore createTemporary() throws IOException {
+        MappedEmbeddingStore store = create(Files.createTempDirectory("fr-index-"));
+        store.temporary = true;
+        return store;
+    }
+
+    /**
+     * Verifica se a pasta contém um índice completo.
+     */
+    public static boolean exists(Path folder) {
+        return Files.exists(folder.resolve(HEADER_FILE));
+    }
+
+    /**
+     * Grava em disco os chunks pendentes e o cabeçalho do índice.
+     *
+     * Após o flush o store continua aceitando novos chunks; o cabeçalho
+     * é reescrito a cada chamada.
+     *
+     * @throws IOException Se houver erro de escrita
+     */
+    public synchronized void flush() throws IOException {
+        if (vectorsOut != null) {
+            vectorsOut.flush();
+            segmentsOut.flush();
+            offsetsOut.flush();
+            sectionsOut.flush();
+        }
+        Properties props = new Properties();
+        props.setProperty("version", String.valueOf(FORMAT_VERSION));
+        props.setProperty("dimension", String.valueOf(dimension));
+        props.setProperty("count", String.valueOf(count));
+        props.setProperty("sections", String.valueOf(sectionNames.size()));
+        for (int id = 0; id < sectionNames.size(); id++) {
+            props.setProperty("section." + id, sectionNames.get(id));
+        }
+        try (Writer writer = Files.newBufferedWriter(folder.resolve(HEADER_FILE))) {
+            props.store(writer, "MappedEmbeddingStore");
+        }
+    }
+
+    /**
+     * Grava os chunks pendentes e libera os arquivos de escrita.
+     * Depois disso o store fica somente leitura.
+     *
+     * @throws IOException Se houver erro de escrita
+     */
+    public synchronized void close() throws IOException {
+        flush();
+        if (vectorsOut != null) {
+            vectorsOut.close();
+            segmentsOut.close();
+            offsetsOut.close();
+            sectionsOut.close();
+            vectorsOut = null;
+            segmentsOut = null;
+            offsetsOut = null;
+            sectionsOut = null;
+        }
+    }
+
+    /**
+     * Apaga os arquivos de um store criado por createTemporary() (sem efeito para
+     * índices do cache). O store não pode mais ser consultado depois disso.
+     *
+     * Os buffers mapeados só são desfeitos pelo GC; no Linux o espaço em disco é
+     * liberado nesse momento.
+     *
+     * @throws IOException Se houver erro ao gravar ou apagar os arquivos
+     */
+    public synchronized void release() throws IOException {
+        if (!temporary) {
+            return;
+        }
+        close();
+        view = null;
+        for (String file : List.of(VECTORS_FILE, SEGMENTS_FILE, OFFSETS_FILE, SECTIONS_FILE, HEADER_FILE)) {
+            Files.deleteIfExists(folder.resolve(file));
+        }
+        Files.deleteIfExists(folder);
+        temporary = false;
+    }
+
+    /**
+     * @return Quantidade de chunks no store
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return Dimensão dos vetores (0 enquanto o store estiver vazio)
+     */
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * @return Pasta onde os arquivos do índice estão gravados
+     */
+    public Path folder() {
+        return folder;
+    }
+
+    /**
+     * @param row Linha do chunk (ordem de inserção, 0-based)
+     * @return Texto e metadados do chunk
+     */
+    public TextSegment segmentAt(int row) {
+        return currentView().segmentAt(row);
+    }
+
+    /**
+     * Converte um filtro de metadados em um teste por linha.
+     *
+     * Filtros sobre SECTION_KEY usam a coluna de seções (sem decodificar os chunks);
+     * usado também para filtrar resultados de outro índice alinhado por linha (ex: BM25).
+     *
+     * @param filter Filtro de metadados, ou null
+     * @return Teste por linha, ou null se não houver filtro
+     */
+    public IntPredicate rowFilter(Filter filter) {
+        return rowFilter(currentView(), filter);
+    }
+
+    private static IntPredicate rowFilter(MappedView current, Filter filter) {
+        if (filter == null) {
+            return null;
+        }
+        if (!isSectionFilter(filter)) {
+            return row -> filter.test(current.segmentAt(row).metadata());
+        }
+        // Uma avaliação do filtro por seção distinta; a linha só consulta a tabela
+        boolean[] accepted = new boolean[current.sectionNames.length];
+        for (int id = 0; id < accepted.length; id++) {
+            accepted[id] = filter.test(new Metadata().put(SECTION_KEY, current.sectionNames[id]));
+        }
+        boolean acceptNoSection = filter.test(new Metadata());
+        return row -> {
+            int id = current.sections.get(row);
+            return id == NO_SECTION ? acceptNoSection : accepted[id];
+        };
+    }
+
+    private static boolean isSectionFilter(Filter filter) {
+        return (filter instanceof IsEqualTo equalTo && SECTION_KEY.equals(equalTo.key()))
+                || (filter instanceof IsIn in && SECTION_KEY.equals(in.key()));
+    }
+
+    /**
+     * Monta o match de uma linha específica, com o score de similaridade em relação à query
+     * (mesma escala da busca). Usado para chunks encontrados por outro critério (ex: BM25).
+     *
+     * @param row Linha do chunk
+     * @param queryEmbedding Embedding da query
+     * @return Match com id, embedding, chunk e score
+     */
+    public EmbeddingMatch<TextSegment> matchAt(int row, Embedding queryEmbedding) {
+        MappedView current = currentView();
+        float[] query = queryEmbedding.vector();
+        float[] vector = new float[dimension];
+        current.vectors.get(row * dimension, vector);
+        float dot = 0f;
+        for (int j = 0; j < dimension; j++) {
+            dot += vector[j] * query[j];
+        }
+        float queryNorm = norm(query);
+        double cosine = queryNorm == 0f ? 0.0 : dot / queryNorm;
+        double score = Math.min(1.0, (cosine + 1.0) / 2.0);
+        Record record = current.recordAt(row);
+        return new EmbeddingMatch<>(score, record.id(), new Embedding(vector), record.segment());
+    }
+
+    // ========================================
+    // ESCRITA
+    // ========================================
+
+    @Override
+    public String add(Embedding embedding) {
+        return add(embedding, null);
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        append(id, embedding, null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment textSegment) {
+        String id = UUID.randomUUID().toString();
+        append(id, embedding, textSegment);
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = new ArrayList<>(embeddings.size());
+        for (Embedding embedding : embeddings) {
+            ids.add(add(embedding));
+        }
+        return ids;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> embedded) {
+        List<String> ids = new ArrayList<>(embeddings.size());
+        for (int i = 0; i < embeddings.size(); i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        addAll(ids, embeddings, embedded);
+        return ids;
+    }
+
+    @Override
+    public synchronized void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> embedded) {
+        if (ids.size() != embeddings.size() || (embedded != null && embedded.size() != embeddings.size())) {
+            throw new IllegalArgumentException("ids, embeddings e segments devem ter o mesmo tamanho");
+        }
+        for (int i = 0; i < embeddings.size(); i++) {
+            append(ids.get(i), embeddings.get(i), embedded != null ? embedded.get(i) : null);
+        }
+    }
+
+    private synchronized void append(String id, Embedding embedding, TextSegment segment) {
+        if (vectorsOut == null) {
+            throw new IllegalStateException("Store aberto somente para leitura: " + folder);
+        }
+        float[] vector = embedding.vector();
+        if (dimension == 0) {
+            dimension = vector.length;
+        } else if (vector.length != dimension) {
+            throw new IllegalArgumentException("Dimensão inválida: " + vector.length + " (esperado " + dimension + ")");
+        }
+
+        try {
+            // Vetor normalizado → cosseno = produto escalar na busca
+            float norm = norm(vector);
+            for (float v : vector) {
+                vectorsOut.writeFloat(norm == 0f ? 0f : v / norm);
+            }
+
+            byte[] record = encodeRecord(id, segment);
+            offsetsOut.writeLong(segmentsPosition);
+            String section = segment != null ? segment.metadata().getString(SECTION_KEY) : null;
+            sectionsOut.writeInt(section != null ? sectionId(section) : NO_SECTION);
+            segmentsOut.write(record);
+            segmentsPosition += record.length;
+            count++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao gravar chunk no índice", e);
+        }
+    }
+
+    // ========================================
+    // BUSCA
+    // ========================================
+
+    /**
+     * Busca por similaridade com varredura sequencial do buffer de vetores.
+     *
+     * Respeita maxResults, minScore e o filtro de metadados da requisição
+     * (o filtro é avaliado antes do produto escalar).
+     */
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        MappedView current = currentView();
+        int maxResults = request.maxResults();
+        double minScore = request.minScore();
+        IntPredicate accept = rowFilter(current, request.filter());
+
+        float[] query = request.queryEmbedding().vector();
+        if (current.count > 0 && query.length != dimension) {
+            throw new IllegalArgumentException("Dimensão da query inválida: " + query.length + " (esperado " + dimension + ")");
+        }
+        float queryNorm = norm(query);
+
+        // Min-heap com os melhores resultados até o momento
+        PriorityQueue<ScoredRow> best = new PriorityQueue<>(Math.max(1, maxResults),
+                Comparator.comparingDouble(ScoredRow::score));
+        float[] row = new float[dimension];
+
+        for (int i = 0; i < current.count; i++) {
+            if (accept != null && !accept.test(i)) {
+                continue;
+            }
+            current.vectors.get(i * dimension, row);
+            float dot = 0f;
+            for (int j = 0; j < dimension; j++) {
+                dot += row[j] * query[j];
+            }
+            double cosine = queryNorm == 0f ? 0.0 : dot / queryNorm;
+            // Clamp: arredondamento de float pode gerar cosseno levemente acima de 1
+            double score = Math.min(1.0, (cosine + 1.0) / 2.0);
+            if (score < minScore) {
+                continue;
+            }
+            if (best.size() < maxResults) {
+                best.add(new ScoredRow(i, score));
+            } else if (maxResults > 0 && score > best.peek().score()) {
+                best.poll();
+                best.add(new ScoredRow(i, score));
+            }
+        }
+
+        List<ScoredRow> ordered = new ArrayList<>(best);
+        ordered.sort(Comparator.comparingDouble(ScoredRow::score).reversed());
+
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(ordered.size());
+        for (ScoredRow scored : ordered) {
+            float[] vector = new float[dimension];
+            current.vectors.get(scored.row() * dimension, vector);
+            Record record = current.recordAt(scored.row());
+            matches.add(new EmbeddingMatch<>(scored.score(), record.id(), new Embedding(vector), record.segment()));
+        }
+        return new EmbeddingSearchResult<>(matches);
+    }
+
+    private record ScoredRow(int row, double score) {
+    }
+
+    /**
+     * Id da seção no dicionário, incluindo a seção se ainda não existir.
+     */
+    private int sectionId(String section) {
+        Integer id = sectionIds.get(section);
+        if (id == null) {
+            id = sectionNames.size();
+            sectionNames.add(section);
+            sectionIds.put(section, id);
+        }
+        return id;
+    }
+
+    // ========================================
+    // MAPEAMENTO
+    // ========================================
+
+    /**
+     * Retorna a visão mapeada atual, remapeando se houver chunks gravados depois do último mapeamento.
+     */
+    private MappedView currentView() {
+        MappedView current = view;
+        if (current != null && current.count == count) {
+            return current;
+        }
+        synchronized (this) {
+            if (view == null || view.count != count) {
+                try {
+                    flush();
+                    view = map();
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Falha ao mapear índice: " + folder, e);
+                }
+            }
+            return view;
+        }
+    }
+
+    private MappedView map() throws IOException {
+        if (count == 0) {
+            return new MappedView(0, FloatBuffer.allocate(0), ByteBuffer.allocate(0), ByteBuffer.allocate(0),
+                    IntBuffer.allocate(0), new String[0]);
+        }
+        long vectorBytes = (long) count * dimension * Float.BYTES;
+        if (vectorBytes > Integer.MAX_VALUE) {
+            throw new IOException("Índice excede 2 GB de vetores: " + folder);
+        }
+        // Offsets dos registros são lidos como int em recordAt
+        long segmentBytes = Files.size(folder.resolve(SEGMENTS_FILE));
+        if (segmentBytes > Integer.MAX_VALUE) {
+            throw new IOException("Índice excede 2 GB de chunks (" + SEGMENTS_FILE + "): " + folder);
+        }
+        ByteBuffer vectorBuffer = mapFile(folder.resolve(VECTORS_FILE), vectorBytes);
+        ByteBuffer offsets = mapFile(folder.resolve(OFFSETS_FILE), (long) count * Long.BYTES);
+        ByteBuffer segments = mapFile(folder.resolve(SEGMENTS_FILE), segmentBytes);
+        ByteBuffer sections = mapFile(folder.resolve(SECTIONS_FILE), (long) count * Integer.BYTES);
+        return new MappedView(count, vectorBuffer.asFloatBuffer(), offsets, segments,
+                sections.asIntBuffer(), sectionNames.toArray(new String[0]));
+    }
+
+    private static ByteBuffer mapFile(Path file, long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    private void openWriters() throws IOException {
+        vectorsOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(folder.resolve(VECTORS_FILE))));
+        segmentsOut = new BufferedOutputStream(Files.newOutputStream(folder.resolve(SEGMENTS_FILE)));
+        offsetsOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(folder.resolve(OFFSETS_FILE))));
+        sectionsOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(folder.resolve(SECTIONS_FILE))));
+        segmentsPosition = 0;
+    }
+
+    /**
+     * Buffers mapeados de uma versão do índice. Somente leituras absolutas são usadas,
+     * então uma mesma visão pode ser compartilhada entre threads.
+     */
+    private static final class MappedView {
+        private final int count;
+        private final FloatBuffer vectors;
+        private final ByteBuffer offsets;
+        private final ByteBuffer segments;
+        private final IntBuffer sections;
+        private final String[] sectionNames;
+
+        private MappedView(int count, FloatBuffer vectors, ByteBuffer offsets, ByteBuffer segments,
+                           IntBuffer sections, String[] sectionNames) {
+            this.count = count;
+            this.vectors = vectors;
+            this.offsets = offsets;
+            this.segments = segments;
+            this.sections = sections;
+            this.sectionNames = sectionNames;
+        }
+
+        TextSegment segmentAt(int row) {
+            return recordAt(row).segment();
+        }
+
+        Record recordAt(int row) {
+            int position = (int) offsets.getLong(row * Long.BYTES);
+            return decodeRecord(segments, position);
+        }
+    }
+
+    // ========================================
+    // SERIALIZAÇÃO DOS CHUNKS
+    // ========================================
+
+    private record Record(String id, TextSegment segment) {
+    }
+
+    /**
+     * Formato do registro:
+     * [short tamanho id][id UTF-8][int tamanho texto][texto UTF-8][int qtd metadados]
+     * para cada metadado: [short tamanho chave][chave UTF-8][byte tipo][valor]
+     */
+    private static byte[] encodeRecord(String id, TextSegment segment) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeShortString(out, id);
+
+        byte[] text = segment != null ? segment.text().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        out.writeInt(text.length);
+        out.write(text);
+
+        Map<String, Object> metadata = segment != null ? segment.metadata().toMap() : Map.of();
+        out.writeInt(metadata.size());
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            writeShortString(out, entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof Integer i) {
+                out.writeByte(TYPE_INTEGER);
+                out.writeInt(i);
+            } else if (value instanceof Long l) {
+                out.writeByte(TYPE_LONG);
+                out.writeLong(l);
+            } else if (value instanceof Float f) {
+                out.writeByte(TYPE_FLOAT);
+                out.writeFloat(f);
+            } else if (value instanceof Double d) {
+                out.writeByte(TYPE_DOUBLE);
+                out.writeDouble(d);
+            } else {
+                byte[] str = String.valueOf(value).getBytes(StandardCharsets.UTF_8);
+                out.writeByte(TYPE_STRING);
+                out.writeInt(str.length);
+                out.write(str);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void writeShortString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("Texto excede 65535 bytes: " + value.substring(0, 50));
+        }
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Record decodeRecord(ByteBuffer buffer, int position) {
+        int idLength = Short.toUnsignedInt(buffer.getShort(position));
+        position += Short.BYTES;
+        String id = readString(buffer, position, idLength);
+        position += idLength;
+
+        int textLength = buffer.getInt(position);
+        position += Integer.BYTES;
+        String text = readString(buffer, position, textLength);
+        position += textLength;
+
+        Metadata metadata = new Metadata();
+        int entries = buffer.getInt(position);
+        position += Integer.BYTES;
+        for (int i = 0; i < entries; i++) {
+            int keyLength = Short.toUnsignedInt(buffer.getShort(position));
+            position += Short.BYTES;
+            String key = readString(buffer, position, keyLength);
+            position += keyLength;
+
+            byte type = buffer.get(position);
+            position += 1;
+            switch (type) {
+                case TYPE_INTEGER -> {
+                    metadata.put(key, buffer.getInt(position));
+                    position += Integer.BYTES;
+                }
+                case TYPE_LONG -> {
+                    metadata.put(key, buffer.getLong(position));
+                    position += Long.BYTES;
+                }
+                case TYPE_FLOAT -> {
+                    metadata.put(key, buffer.getFloat(position));
+                    position += Float.BYTES;
+                }
+                case TYPE_DOUBLE -> {
+                    metadata.put(key, buffer.getDouble(position));
+                    position += Double.BYTES;
+                }
+                default -> {
+                    int length = buffer.getInt(position);
+                    position += Integer.BYTES;
+                    metadata.put(key, readString(buffer, position, length));
+                    position += length;
+                }
+            }
+        }
+        return new Record(id, TextSegment.from(text, metadata));
+    }
+
+    /**
+     * Lê uma string UTF-8 de posição absoluta do buffer (sem alterar a posição,
+     * seguro para leituras concorrentes).
+     */
+    private static String readString(ByteBuffer buffer, int position, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static float norm(float[] vector) {
+        float sum = 0f;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        return (float) Math.sqrt(sum);
+    }
+}
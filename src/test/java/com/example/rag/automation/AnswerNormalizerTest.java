@@ -0,0 +1,121 @@
+package com.example.rag.automation;
+
+import com.example.rag.automation.model.Question;
+import com.example.rag.automation.model.TipoQuestao;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AnswerNormalizerTest {
+
+    @Test
+    void monetaryAppliesUnitAndSign() {
+        assertNormalized(TipoQuestao.MONETARIA, new String[][]{
+                {"4.872.707 (em R$ mil)", "R$ 4.872.707.000"},
+                {"R$ 12,7 bilhões", "R$ 12.700.000.000"},
+                {"12,7 milhões", "R$ 12.700.000"},
+                {"-R$ 523.114", "-R$ 523.114"},
+                {"R$ 5", "R$ 5"},
+                {"Sem valor informado", "Sem valor informado"}
+        });
+    }
+
+    @Test
+    void monetaryParenthesesAreNegativeOnlyForTheAmount() {
+        assertNormalized(TipoQuestao.MONETARIA, new String[][]{
+                // Notação contábil: o próprio valor entre parênteses
+                {"(523.114)", "-R$ 523.114"},
+                {"R$ (1.234,5) milhões", "-R$ 1.234.500.000"},
+                {"(R$ 1.234) mil", "-R$ 1.234.000"},
+                // Rótulo entre parênteses (ano): o valor é o número seguinte
+                {"(2023): 1.234 mil", "R$ 1.234.000"},
+                {"(2023) R$ 5", "R$ 5"}
+        });
+    }
+
+    @Test
+    void yesNoKeepsOnlyTheAnswer() {
+        assertNormalized(TipoQuestao.SIM_NAO, new String[][]{
+                {"SIM, pois a Companhia possui comitê", "SIM"},
+                {"**Não**. A Companhia não divulga", "NÃO"},
+                {"NÃO DIVULGADO", "NÃO DIVULGADO"},
+                {"Não se aplica.", "NÃO APLICADO"},
+                {"A Companhia não possui política", "NÃO"},
+                {"A Companhia possui Conselho Fiscal instalado", "SIM"},
+                {"Conforme o item 12.1 do formulário", AnswerNormalizer.NOT_FOUND}
+        });
+    }
+
+    @Test
+    void countingKeepsNamesOrFirstNumber() {
+        assertNormalized(TipoQuestao.CONTAGEM, new String[][]{
+                {"3 (Ana Souza, Bruno Lima, Carla Dias)", "3 (Ana Souza, Bruno Lima, Carla Dias)"},
+                {"O conselho possui 7 membros, 2 independentes", "7"},
+                {"Nenhuma mulher no conselho", "0"},
+                {"Informação não encontrada no documento", AnswerNormalizer.NOT_FOUND}
+        });
+    }
+
+    @Test
+    void specificTextIsCleanedAndShortened() {
+        String firstSentence = "A auditoria interna reporta ao Comitê de Auditoria";
+        String longText = firstSentence + ". " + "Detalhes adicionais sobre a estrutura. ".repeat(6);
+        String longFirstSentence = "Texto ".repeat(40).trim() + ". Fim";
+
+        assertNormalized(TipoQuestao.TEXTO_ESPECIFICO, new String[][]{
+                {"**Deloitte**", "Deloitte"},
+                {"\"KPMG   Auditores\n Independentes\"", "KPMG Auditores Independentes"},
+                {"A Companhia adota a Política de Gerenciamento de Riscos, aprovada em 2020.",
+                        "Política de Gerenciamento de Riscos"},
+                {longText, firstSentence},
+                {longFirstSentence, longFirstSentence}
+        });
+    }
+
+    @Test
+    void multipleChoiceMapsQuestion47Options() {
+        Question q47 = question(47, TipoQuestao.MULTIPLA_ESCOLHA);
+        assertEquals("Seguro D&O", AnswerNormalizer.normalize("A Companhia contrata seguro D&O", q47));
+        assertEquals("Outra forma de reembolso", AnswerNormalizer.normalize("Reembolso direto das despesas", q47));
+        assertEquals("Não Divulgado", AnswerNormalizer.normalize("Não divulgado no FR", q47));
+        assertEquals("Não", AnswerNormalizer.normalize("não", q47));
+
+        Question other = question(48, TipoQuestao.MULTIPLA_ESCOLHA);
+        assertEquals("Seguro D&O", AnswerNormalizer.normalize("Seguro D&O", other));
+        assertEquals("Opção B", AnswerNormalizer.normalize("  Opção B ", other));
+    }
+
+    @Test
+    void blankAnswerIsNotFound() {
+        for (TipoQuestao tipo : TipoQuestao.values()) {
+            assertEquals(AnswerNormalizer.NOT_FOUND, AnswerNormalizer.normalize("  \n", question(2, tipo)));
+            assertEquals(AnswerNormalizer.NOT_FOUND, AnswerNormalizer.normalize(null, question(2, tipo)));
+        }
+    }
+
+    @Test
+    void untypedQuestionOnlyCollapsesWhitespace() {
+        Question untyped = question(2, null);
+        assertEquals("Texto final", AnswerNormalizer.normalize("Texto  final.", untyped));
+        assertEquals("Primeira. Segunda.", AnswerNormalizer.normalize("Primeira.\n\nSegunda.", untyped));
+    }
+
+    @Test
+    void normalizeAllKeepsOrder() {
+        assertEquals(List.of("SIM", "NÃO", AnswerNormalizer.NOT_FOUND),
+                AnswerNormalizer.normalizeAll(List.of("Sim", "não possui", ""), question(10, TipoQuestao.SIM_NAO)));
+    }
+
+    private static void assertNormalized(TipoQuestao tipo, String[][] cases) {
+        Question q = question(2, tipo);
+        for (String[] c : cases) {
+            assertEquals(c[1], AnswerNormalizer.normalize(c[0], q), c[0]);
+        }
+    }
+
+    private static Question question(int numero, TipoQuestao tipo) {
+        return new Question(numero, "Fácil", "Questão " + numero, "", "Preencher conforme o FR", "", tipo, "");
+    }
+}
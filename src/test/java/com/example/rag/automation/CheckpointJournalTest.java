@@ -0,0 +1,122 @@
+package com.example.rag.automation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckpointJournalTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void escapedFieldsSurviveRoundTrip() throws Exception {
+        Path path = folder.resolve("journal.tsv");
+        String company = "Empresa\tS.A.\\Holding";
+        String answer = "linha 1\nlinha 2\r\n\tcoluna \\n literal";
+        try (CheckpointJournal journal = new CheckpointJournal(path, false, 1)) {
+            journal.recordRawAnswer(company, 2, "bruta\t" + answer);
+            journal.recordAnswer(company, 2, answer);
+            journal.markCompleted(company);
+        }
+
+        // Uma linha por evento: os caracteres especiais não quebram o formato
+        assertEquals(3, Files.readAllLines(path, StandardCharsets.UTF_8).size());
+
+        try (CheckpointJournal journal = new CheckpointJournal(path, true, 1)) {
+            assertEquals(answer, journal.getAnswer(company, 2));
+            assertEquals(Map.of(2, "bruta\t" + answer), journal.getRawAnswers(company));
+            assertTrue(journal.isCompleted(company));
+            assertEquals(List.of(company), journal.getCompanies());
+        }
+    }
+
+    @Test
+    void truncatedTailIsDiscardedOnResume() throws Exception {
+        Path path = folder.resolve("journal.tsv");
+        try (CheckpointJournal journal = new CheckpointJournal(path, false, 1)) {
+            journal.recordAnswer("ACME", 2, "R$ 1.000");
+        }
+        // Queda durante a gravação: última linha sem quebra de linha
+        Files.writeString(path, "A\tACME\t3\tR$ 2.0", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+
+        try (CheckpointJournal journal = new CheckpointJournal(path, true, 1)) {
+            assertTrue(journal.isAnswered("ACME", 2));
+            assertFalse(journal.isAnswered("ACME", 3));
+            journal.recordAnswer("ACME", 3, "R$ 2.000");
+        }
+
+        // O trecho incompleto foi cortado antes da nova gravação
+        assertEquals(List.of("A\tACME\t2\tR$ 1.000", "A\tACME\t3\tR$ 2.000"),
+                Files.readAllLines(path, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void resumeKeepsAnswersAndLastLineWins() throws Exception {
+        Path path = folder.resolve("journal.tsv");
+        try (CheckpointJournal journal = new CheckpointJournal(path, false, 10)) {
+            journal.recordAnswer("ACME", 2, "R$ 1.000");
+            journal.markCompleted("ACME");
+            journal.recordAnswer("Beta", 2, "SIM");
+            journal.recordAnswer("Beta", 2, "NÃO");
+        }
+
+        try (CheckpointJournal journal = new CheckpointJournal(path, true, 10)) {
+            assertTrue(journal.isCompleted("ACME"));
+            assertFalse(journal.isCompleted("Beta"));
+            assertEquals("NÃO", journal.getAnswer("Beta", 2));
+            assertFalse(journal.isAnswered("Beta", 3));
+            assertEquals(List.of("ACME", "Beta"), journal.getCompanies());
+        }
+    }
+
+    @Test
+    void newRunDiscardsPreviousJournal() throws Exception {
+        Path path = folder.resolve("journal.tsv");
+        try (CheckpointJournal journal = new CheckpointJournal(path, false, 1)) {
+            journal.recordAnswer("ACME", 2, "R$ 1.000");
+            journal.markCompleted("ACME");
+        }
+
+        try (CheckpointJournal journal = new CheckpointJournal(path, false, 1)) {
+            assertFalse(journal.isCompleted("ACME"));
+            assertNull(journal.getAnswer("ACME", 2));
+        }
+        assertEquals(0, Files.size(path));
+    }
+
+    @Test
+    void pendingAnswersAreWrittenOnClose() throws Exception {
+        Path path = folder.resolve("journal.tsv");
+        try (CheckpointJournal journal = new CheckpointJournal(path, false, 100)) {
+            journal.recordAnswer("ACME", 2, "R$ 1.000");
+            // Abaixo do intervalo de checkpoint: ainda em buffer
+            assertEquals(0, Files.size(path));
+        }
+        assertEquals(List.of("A\tACME\t2\tR$ 1.000"), Files.readAllLines(path, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void failedCheckpointIsReportedToTheCaller() throws Exception {
+        Path path = folder.resolve("journal.tsv");
+        CheckpointJournal journal = new CheckpointJournal(path, false, 1);
+        journal.close();
+
+        // Canal fechado: a gravação falha e o erro chega a quem registrou a resposta
+        assertThrows(CheckpointJournal.WriteFailedException.class, () -> journal.recordAnswer("ACME", 2, "SIM"));
+        assertThrows(CheckpointJournal.WriteFailedException.class, () -> journal.markCompleted("ACME"));
+        assertEquals(0, Files.size(path));
+    }
+}
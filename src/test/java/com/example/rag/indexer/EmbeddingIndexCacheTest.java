@@ -0,0 +1,64 @@
+package com.example.rag.indexer;
+
+import com.example.rag.store.MappedEmbeddingStore;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmbeddingIndexCacheTest {
+
+    private static final String KEY = "ab".repeat(32);
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void damagedPublishedIndexIsReplaced() throws Exception {
+        EmbeddingIndexCache cache = new EmbeddingIndexCache(folder);
+        Path target = folder.resolve(KEY);
+        Files.createDirectories(target);
+        Files.writeString(target.resolve("index.properties"), "version=0\n");
+
+        MappedEmbeddingStore store = cache.create(KEY);
+        store.add(Embedding.from(new float[]{1f, 0f, 0f}), TextSegment.from("Receita líquida"));
+        MappedEmbeddingStore published = cache.commit(KEY, store);
+
+        assertEquals(target, published.folder());
+        assertEquals(1, cache.load(KEY).size());
+        assertEquals(List.of(target), entries());
+    }
+
+    @Test
+    void staleTempFoldersAreSwept() throws Exception {
+        EmbeddingIndexCache cache = new EmbeddingIndexCache(folder);
+        Path crashed = Files.createDirectories(folder.resolve(KEY + "-123"));
+        Files.writeString(crashed.resolve("vectors.dat"), "x");
+        FileTime old = FileTime.from(Instant.now().minus(EmbeddingIndexCache.STALE_TEMP_AGE).minusSeconds(60));
+        Files.setLastModifiedTime(crashed.resolve("vectors.dat"), old);
+        Files.setLastModifiedTime(crashed, old);
+        Path active = Files.createDirectories(folder.resolve(KEY + "-456"));
+
+        cache.sweepStaleTempFolders(Instant.now().minus(EmbeddingIndexCache.STALE_TEMP_AGE));
+
+        assertFalse(Files.exists(crashed));
+        assertTrue(Files.exists(active));
+    }
+
+    private List<Path> entries() throws Exception {
+        try (Stream<Path> paths = Files.list(folder)) {
+            return paths.toList();
+        }
+    }
+}
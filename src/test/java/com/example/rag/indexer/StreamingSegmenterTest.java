@@ -0,0 +1,108 @@
+package com.example.rag.indexer;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StreamingSegmenterTest {
+
+    // Um segmento por parágrafo: deixa visível onde as janelas foram cortadas
+    private static final DocumentSplitter PARAGRAPHS = document -> Arrays.stream(document.text().split("\n[ \t]*\n"))
+            .map(String::strip)
+            .filter(paragraph -> !paragraph.isEmpty())
+            .map(TextSegment::from)
+            .toList();
+
+    private static final String[] PAGES = {
+            "Introdução na página 1.\n\nParágrafo A começa na página 1",
+            "e continua na página 2.\n\nParágrafo B.\n\n",
+            "Parágrafo D começa na página 3",
+            "e termina na página 4.\n\nParágrafo E."
+    };
+
+    @Test
+    void paragraphSpanningPagesStaysInOneSegment() throws Exception {
+        List<TextSegment> segments = segment(2, PAGES);
+
+        assertEquals(List.of(
+                "Introdução na página 1.",
+                "Parágrafo A começa na página 1\ne continua na página 2.",
+                "Parágrafo B.",
+                "Parágrafo D começa na página 3\ne termina na página 4.",
+                "Parágrafo E."), texts(segments));
+    }
+
+    @Test
+    void segmentsAreTaggedWithStartPageAndContinuousIndex() throws Exception {
+        List<TextSegment> segments = segment(2, PAGES);
+
+        assertEquals(List.of("1", "1", "2", "3", "4"), metadata(segments, "page"));
+        assertEquals(List.of("0", "1", "2", "3", "4"), metadata(segments, "index"));
+    }
+
+    @Test
+    void windowSizeDoesNotChangeSegments() throws Exception {
+        List<String> whole = texts(PARAGRAPHS.split(Document.from(String.join("\n", PAGES))));
+
+        for (int windowPages = 1; windowPages <= PAGES.length + 1; windowPages++) {
+            List<TextSegment> segments = segment(windowPages, PAGES);
+            assertEquals(whole, texts(segments), "janela de " + windowPages + " página(s)");
+            assertEquals(List.of("1", "1", "2", "3", "4"), metadata(segments, "page"));
+        }
+    }
+
+    @Test
+    void carriedTextIsEmittedWithTheNextWindow() throws Exception {
+        List<List<String>> windows = new ArrayList<>();
+        StreamingSegmenter segmenter = new StreamingSegmenter(PARAGRAPHS, 2,
+                segments -> windows.add(texts(segments)));
+
+        segmenter.addPage(1, PAGES[0]);
+        segmenter.addPage(2, PAGES[1]);
+        // O trecho da página 2 (a partir da primeira quebra de parágrafo) ainda pode continuar
+        assertEquals(List.of(List.of("Introdução na página 1.", "Parágrafo A começa na página 1\ne continua na página 2.")),
+                windows);
+
+        segmenter.addPage(3, PAGES[2]);
+        segmenter.addPage(4, PAGES[3]);
+        assertEquals(List.of("Parágrafo B.", "Parágrafo D começa na página 3\ne termina na página 4."), windows.get(1));
+
+        segmenter.finish();
+        assertEquals(List.of("Parágrafo E."), windows.get(2));
+        assertEquals(3, windows.size());
+        assertEquals(5, segmenter.getSegmentCount());
+    }
+
+    @Test
+    void blankPagesProduceNoSegments() throws Exception {
+        List<TextSegment> segments = segment(2, "   ", "\n\n", "Única página com texto.");
+
+        assertEquals(List.of("Única página com texto."), texts(segments));
+        assertEquals(List.of("3"), metadata(segments, "page"));
+    }
+
+    private static List<TextSegment> segment(int windowPages, String... pages) throws Exception {
+        List<TextSegment> segments = new ArrayList<>();
+        StreamingSegmenter segmenter = new StreamingSegmenter(PARAGRAPHS, windowPages, segments::addAll);
+        for (int page = 0; page < pages.length; page++) {
+            segmenter.addPage(page + 1, pages[page]);
+        }
+        segmenter.finish();
+        return segments;
+    }
+
+    private static List<String> texts(List<TextSegment> segments) {
+        return segments.stream().map(TextSegment::text).toList();
+    }
+
+    private static List<String> metadata(List<TextSegment> segments, String key) {
+        return segments.stream().map(segment -> segment.metadata().getString(key)).toList();
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.rag.retrieval;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ContextBuilderTest {
+
+    // Trecho repetido entre chunks vizinhos (maior que a sobreposição mínima)
+    private static final String OVERLAP = "O Conselho Fiscal da Companhia é permanente e possui três membros.";
+
+    private static final String BEFORE = "Seção 12.7 - Composição dos órgãos de fiscalização.";
+    private static final String AFTER = "Os membros foram eleitos na assembleia geral de abril.";
+
+    @Test
+    void overlapIsRemovedFromTheNextChunk() {
+        ContextBuilder builder = new ContextBuilder(4000, 1.0);
+
+        String context = builder.build(matches(BEFORE + " " + OVERLAP, OVERLAP + " " + AFTER));
+
+        assertEquals(BEFORE + " " + OVERLAP + ContextBuilder.SEPARATOR + AFTER, context);
+        assertEquals(2, builder.getIncludedChunks());
+        assertEquals(OVERLAP.length(), builder.getTrimmedChars());
+    }
+
+    @Test
+    void overlapIsRemovedFromThePreviousChunk() {
+        // Chunk seguinte no documento vem primeiro no ranking
+        ContextBuilder builder = new ContextBuilder(4000, 1.0);
+
+        String context = builder.build(matches(OVERLAP + " " + AFTER, BEFORE + " " + OVERLAP));
+
+        assertEquals(OVERLAP + " " + AFTER + ContextBuilder.SEPARATOR + BEFORE, context);
+    }
+
+    @Test
+    void repeatedTitleLinesAreKept() {
+        ContextBuilder builder = new ContextBuilder(4000, 1.0);
+        String title = "12.7 Composição do conselho fiscal\n";
+
+        String context = builder.build(matches(BEFORE + " " + OVERLAP, title + OVERLAP + " " + AFTER));
+
+        assertEquals(BEFORE + " " + OVERLAP + ContextBuilder.SEPARATOR + title + AFTER, context);
+    }
+
+    @Test
+    void shortCommonTextIsNotTreatedAsOverlap() {
+        ContextBuilder builder = new ContextBuilder(4000, 1.0);
+
+        String context = builder.build(matches("Receita líquida: R$ 1.234 mil", "R$ 1.234 mil em 2023"));
+
+        assertEquals("Receita líquida: R$ 1.234 mil" + ContextBuilder.SEPARATOR + "R$ 1.234 mil em 2023", context);
+        assertEquals(0, builder.getTrimmedChars());
+    }
+
+    @Test
+    void chunkContainedInAnotherIsDropped() {
+        ContextBuilder builder = new ContextBuilder(4000, 1.0);
+
+        String context = builder.build(matches(BEFORE + " " + OVERLAP + " " + AFTER, "  " + OVERLAP + "\n"));
+
+        assertEquals(BEFORE + " " + OVERLAP + " " + AFTER, context);
+        assertEquals(1, builder.getIncludedChunks());
+        assertEquals(1, builder.getDroppedChunks());
+    }
+
+    @Test
+    void lowScoreTailIsDroppedAfterTheTopChunks() {
+        ContextBuilder builder = new ContextBuilder(4000, 0.10);
+        List<EmbeddingMatch<TextSegment>> matches = List.of(
+                match(0.90, "primeiro"), match(0.50, "segundo"), match(0.40, "terceiro"),
+                match(0.85, "quarto"), match(0.70, "quinto"));
+
+        String context = builder.build(matches);
+
+        // Os três primeiros ficam mesmo com score baixo; depois, só quem está na margem
+        assertEquals(String.join(ContextBuilder.SEPARATOR, "primeiro", "segundo", "terceiro", "quarto"), context);
+        assertEquals(1, builder.getDroppedChunks());
+    }
+
+    @Test
+    void budgetSkipsChunksThatDoNotFitAndTruncatesTheFirst() {
+        int budgetChars = 10 * RateLimiter.CHARS_PER_TOKEN;
+        ContextBuilder builder = new ContextBuilder(10, 1.0);
+
+        String context = builder.build(matches("x".repeat(budgetChars + 15), "cabe?"));
+        assertEquals("x".repeat(budgetChars), context);
+        assertEquals(15, builder.getTrimmedChars());
+        assertEquals(1, builder.getDroppedChunks());
+
+        context = builder.build(matches("a".repeat(20), "b".repeat(30), "c".repeat(5)));
+        assertEquals("a".repeat(20) + ContextBuilder.SEPARATOR + "c".repeat(5), context);
+    }
+
+    @Test
+    void noMatchesGiveEmptyContext() {
+        assertEquals("", new ContextBuilder(4000, 0.10).build(List.of()));
+    }
+
+    // Chunks na ordem do ranking, com scores decrescentes próximos
+    private static List<EmbeddingMatch<TextSegment>> matches(String... texts) {
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>();
+        for (int rank = 0; rank < texts.length; rank++) {
+            matches.add(match(0.9 - rank * 0.01, texts[rank]));
+        }
+        return matches;
+    }
+
+    private static EmbeddingMatch<TextSegment> match(double score, String text) {
+        return new EmbeddingMatch<>(score, "id-" + text.hashCode(), null, TextSegment.from(text));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.rag.retrieval;
+
+import com.example.rag.config.Config;
+import com.example.rag.indexer.FrSectionSplitter;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsIn;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class SectionFilterTest {
+
+    @Test
+    void singleSectionBecomesEquality() {
+        assumeTrue(Config.SECTION_AWARE_CHUNKING, "SECTION_AWARE_CHUNKING desativado");
+
+        Filter filter = SectionFilter.fromOnde("2.1, item h, Condições financeiras e patrimoniais");
+
+        IsEqualTo equality = (IsEqualTo) filter;
+        assertEquals(FrSectionSplitter.SECTION_KEY, equality.key());
+        assertEquals("2.1", equality.comparisonValue());
+        assertTrue(filter.test(section("2.1")));
+        assertFalse(filter.test(section("2.10")));
+        assertFalse(filter.test(new Metadata()));
+    }
+
+    @Test
+    void severalSectionsBecomeMembership() {
+        assumeTrue(Config.SECTION_AWARE_CHUNKING, "SECTION_AWARE_CHUNKING desativado");
+
+        Filter filter = SectionFilter.fromOnde("12.1 e 12.2 (ver também 12.1)");
+
+        IsIn membership = (IsIn) filter;
+        assertEquals(FrSectionSplitter.SECTION_KEY, membership.key());
+        assertEquals(Set.of("12.1", "12.2"), Set.copyOf(membership.comparisonValues()));
+        assertTrue(filter.test(section("12.2")));
+        assertFalse(filter.test(section("12.3")));
+    }
+
+    @Test
+    void subitemIsReducedToItsSection() {
+        assumeTrue(Config.SECTION_AWARE_CHUNKING, "SECTION_AWARE_CHUNKING desativado");
+
+        assertEquals("10.2", ((IsEqualTo) SectionFilter.fromOnde("10.2.1 Resultado operacional")).comparisonValue());
+    }
+
+    @Test
+    void textWithoutSectionHasNoFilter() {
+        assertNull(SectionFilter.fromOnde(null));
+        assertNull(SectionFilter.fromOnde("  "));
+        assertNull(SectionFilter.fromOnde("Demonstrações financeiras"));
+        // Valores e anos não são seções
+        assertNull(SectionFilter.fromOnde("Receita de 1.234 mil em 2023"));
+    }
+
+    @Test
+    void noFilterWhenIndexHasNoSections() {
+        assumeTrue(!Config.SECTION_AWARE_CHUNKING, "SECTION_AWARE_CHUNKING ativado");
+
+        assertNull(SectionFilter.fromOnde("2.1, item h"));
+    }
+
+    private static Metadata section(String section) {
+        return new Metadata().put(FrSectionSplitter.SECTION_KEY, section);
+    }
+}
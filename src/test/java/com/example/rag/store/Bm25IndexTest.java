@@ -0,0 +1,117 @@
+package com.example.rag.store;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Bm25IndexTest {
+
+    // {texto, seção ou null}
+    private static final String[][] CHUNKS = {
+            {"Receita líquida consolidada de R$ 1.234 mil no exercício", "2.1"},
+            {"O Conselho Fiscal está instalado e funciona de forma permanente", "12.1"},
+            {"A Companhia contrata seguro D&O para seus administradores", "12.11"},
+            {"Conselho de administração composto por cinco membros", null},
+            {"Composição do conselho fiscal: três membros efetivos e três suplentes", "12.7"}
+    };
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void tokenizeNormalizesAccentsAndDropsStopwords() {
+        assertEquals(List.of("receita", "liquida", "seguro", "d&o"),
+                Bm25Index.tokenize("A Receita LÍQUIDA e o seguro D&O"));
+    }
+
+    @Test
+    void hitsPointToTheSameRowInTheStore() throws Exception {
+        MappedEmbeddingStore store = MappedEmbeddingStore.create(folder);
+        Bm25Index index = new Bm25Index();
+        fill(store, index);
+
+        assertEquals(store.size(), index.size());
+        List<Bm25Index.Hit> hits = index.search("Conselho Fiscal", 2, null);
+        assertEquals(Set.of(1, 4), rows(hits));
+        for (Bm25Index.Hit hit : hits) {
+            String text = store.segmentAt(hit.row()).text().toLowerCase();
+            assertTrue(text.contains("conselho fiscal"), text);
+        }
+        assertEquals(2, index.search("D&O", 5, null).get(0).row());
+        store.close();
+    }
+
+    @Test
+    void indexBuiltFromReopenedStoreMatchesLiveIndex() throws Exception {
+        MappedEmbeddingStore store = MappedEmbeddingStore.create(folder);
+        Bm25Index live = new Bm25Index();
+        fill(store, live);
+        store.close();
+
+        Bm25Index rebuilt = Bm25Index.build(MappedEmbeddingStore.open(folder));
+
+        assertEquals(live.size(), rebuilt.size());
+        for (String query : List.of("conselho fiscal", "receita líquida", "membros", "seguro D&O")) {
+            assertEquals(live.search(query, 5, null), rebuilt.search(query, 5, null), query);
+        }
+    }
+
+    @Test
+    void sectionRowFilterAppliesToLexicalHits() throws Exception {
+        MappedEmbeddingStore store = MappedEmbeddingStore.create(folder);
+        Bm25Index index = new Bm25Index();
+        fill(store, index);
+
+        var section127 = metadataKey(MappedEmbeddingStore.SECTION_KEY).isEqualTo("12.7");
+        assertEquals(Set.of(4), rows(index.search("conselho membros", 5, store.rowFilter(section127))));
+        store.close();
+
+        MappedEmbeddingStore reopened = MappedEmbeddingStore.open(folder);
+        var anyBoardSection = metadataKey(MappedEmbeddingStore.SECTION_KEY).isIn(List.of("12.1", "12.7"));
+        assertEquals(Set.of(1, 4), rows(index.search("conselho", 5, reopened.rowFilter(anyBoardSection))));
+    }
+
+    @Test
+    void queryWithoutKnownTermsHasNoHits() {
+        Bm25Index index = new Bm25Index();
+        for (String[] chunk : CHUNKS) {
+            index.add(chunk[0]);
+        }
+        assertEquals(List.of(), index.search("debêntures", 5, null));
+        assertEquals(List.of(), index.search("de que para", 5, null));
+    }
+
+    // Mesmo caminho da indexação: cada chunk vai para o store e para o índice, na mesma ordem
+    private static void fill(MappedEmbeddingStore store, Bm25Index index) {
+        List<Embedding> embeddings = new ArrayList<>();
+        List<TextSegment> segments = new ArrayList<>();
+        for (int row = 0; row < CHUNKS.length; row++) {
+            Metadata metadata = new Metadata().put("index", String.valueOf(row));
+            if (CHUNKS[row][1] != null) {
+                metadata.put(MappedEmbeddingStore.SECTION_KEY, CHUNKS[row][1]);
+            }
+            embeddings.add(Embedding.from(new float[]{1f, row, -row}));
+            segments.add(TextSegment.from(CHUNKS[row][0], metadata));
+        }
+        store.addAll(embeddings, segments);
+        for (TextSegment segment : segments) {
+            index.add(segment.text());
+        }
+    }
+
+    private static Set<Integer> rows(List<Bm25Index.Hit> hits) {
+        return hits.stream().map(Bm25Index.Hit::row).collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.rag.store;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedEmbeddingStoreTest {
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void releaseDeletesTemporaryStore() throws Exception {
+        MappedEmbeddingStore store = MappedEmbeddingStore.createTemporary();
+        store.add(Embedding.from(new float[]{1f, 0f}), TextSegment.from("Receita líquida"));
+        store.close();
+        assertEquals("Receita líquida", store.segmentAt(0).text());
+
+        store.release();
+
+        assertFalse(Files.exists(store.folder()));
+    }
+
+    @Test
+    void releaseKeepsPersistentStore() throws Exception {
+        MappedEmbeddingStore store = MappedEmbeddingStore.create(folder);
+        store.add(Embedding.from(new float[]{1f, 0f}), TextSegment.from("Receita líquida"));
+        store.close();
+
+        store.release();
+
+        assertTrue(MappedEmbeddingStore.exists(folder));
+        assertEquals(1, MappedEmbeddingStore.open(folder).size());
+    }
+}